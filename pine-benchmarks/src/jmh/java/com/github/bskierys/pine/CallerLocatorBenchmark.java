@@ -0,0 +1,45 @@
+package com.github.bskierys.pine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding caller of log that is called from given depth of stack. Walker is skipped on runtimes older than Java 9.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CallerLocatorBenchmark {
+    @Param({"10", "100"})
+    public int depth;
+
+    private CallerLocator throwableLocator;
+    private CallerLocator stackWalkerLocator;
+
+    @Setup public void setUp() {
+        FrameFilter filter = new FrameFilter(Collections.singletonList(CallerLocatorBenchmark.class.getName()));
+        throwableLocator = new ThrowableCallerLocator(filter, Integer.MAX_VALUE);
+        stackWalkerLocator = StackWalkerCallerLocator.createIfAvailable(filter, Integer.MAX_VALUE);
+    }
+
+    @Benchmark public StackTraceElement throwable() {
+        return locateAt(depth, throwableLocator);
+    }
+
+    @Benchmark public StackTraceElement stackWalker() {
+        return stackWalkerLocator == null ? null : locateAt(depth, stackWalkerLocator);
+    }
+
+    private static StackTraceElement locateAt(int depth, CallerLocator locator) {
+        return depth > 0 ? locateAt(depth - 1, locator) : locator.locateCaller();
+    }
+}
@@ -0,0 +1,46 @@
+package com.github.bskierys.pine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Default tag and message formatters, both creating strings and appending to reused buffer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FormatterBenchmark {
+    private final DefaultTagFormatter tagFormatter = new DefaultTagFormatter();
+    private final DefaultMessageFormatter messageFormatter = new DefaultMessageFormatter();
+
+    private final LogInfo logInfo = new AutoValue_LogInfo("PINE.communication.bluetooth.wrappers",
+                                                          "SppClientDaemonWrapper", "onError", 67, "PINE");
+    private final MessageInfo messageInfo = new AutoValue_MessageInfo(logInfo, "Connection lost, retrying", null);
+    private final StringBuilder buffer = new StringBuilder(256);
+
+    @Benchmark public String formatTag() {
+        return tagFormatter.format(logInfo);
+    }
+
+    @Benchmark public StringBuilder formatTagTo() {
+        buffer.setLength(0);
+        tagFormatter.formatTo(logInfo, buffer);
+        return buffer;
+    }
+
+    @Benchmark public String formatMessage() {
+        return messageFormatter.format(messageInfo);
+    }
+
+    @Benchmark public StringBuilder formatMessageTo() {
+        buffer.setLength(0);
+        messageFormatter.formatTo(messageInfo, buffer);
+        return buffer;
+    }
+}
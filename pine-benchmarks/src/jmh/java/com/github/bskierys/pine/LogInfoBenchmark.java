@@ -0,0 +1,44 @@
+package com.github.bskierys.pine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building {@link LogInfo} out of stack frame. It is done once per call site when cache is on.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LogInfoBenchmark {
+    private final StackTraceElement element = new StackTraceElement(
+            "com.github.bskierys.communication.bluetooth.SppClientDaemonWrapper$1", "onError",
+            "SppClientDaemonWrapper.java", 67);
+
+    private LogPipeline pipeline;
+    private LogPipeline placeholderPipeline;
+
+    @Setup public void setUp() {
+        pipeline = new LogPipeline.Builder()
+                .addPackageReplacePattern("com.github.bskierys", "PINE")
+                .build();
+        placeholderPipeline = new LogPipeline.Builder()
+                .addPackageReplacePattern("com.github.bskierys", "PINE")
+                .usePackagePlaceholders()
+                .build();
+    }
+
+    @Benchmark public LogInfo getLogInfo() {
+        return pipeline.getLogInfo(element);
+    }
+
+    @Benchmark public LogInfo getLogInfoWithPlaceholders() {
+        return placeholderPipeline.getLogInfo(element);
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.bskierys.pine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replacing packages with {@link PackageNameHelper} (placeholder mode) and with {@link PackageTrie} (default) for
+ * growing number of replace patterns. Package that is looked up matches the last pattern added.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PackageReplaceBenchmark {
+    @Param({"1", "10", "100"}) int patterns;
+
+    private PackageNameHelper helper;
+    private PackageTrie<String> trie;
+    private String packageName;
+    private String tagWithPlaceholder;
+
+    @Setup public void setUp() {
+        LinkedHashMap<String, String> replacePatterns = new LinkedHashMap<>();
+        for (int i = 0; i < patterns; i++) {
+            replacePatterns.put("com.example.module" + i, "MOD" + i);
+        }
+        helper = new PackageNameHelper(replacePatterns);
+        trie = new PackageTrie<>();
+        for (Map.Entry<String, String> pattern : replacePatterns.entrySet()) {
+            trie.put(pattern.getKey(), pattern.getValue());
+        }
+
+        packageName = "com.example.module" + (patterns - 1) + ".ui.wrappers";
+        tagWithPlaceholder = helper.replacePackageWithPattern(packageName);
+    }
+
+    @Benchmark public String helperReplacePackageWithPattern() {
+        return helper.replacePackageWithPattern(packageName);
+    }
+
+    @Benchmark public String helperReplacePatternWithReplacement() {
+        return helper.replacePatternWithReplacement(tagWithPlaceholder);
+    }
+
+    @Benchmark public PackageTrie.Entry<String> trieFindLongestPrefix() {
+        return trie.findLongestPrefix(packageName);
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.bskierys.pine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole log call: filtering, finding caller, formatting, log actions and output (that does nothing here). Caller is
+ * logged from given depth of stack, because cost of finding it depends on how deep stack is.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PineLogBenchmark {
+    @Param({"0", "20", "100"}) int stackDepth;
+    @Param({"512", "0"}) int callSiteCacheSize;
+
+    private LogPipeline pipeline;
+    private final LastMessageAction action = new LastMessageAction();
+
+    @Setup public void setUp() {
+        pipeline = new LogPipeline.Builder()
+                .addPackageReplacePattern("com.github.bskierys", "PINE")
+                .setCallSiteCacheSize(callSiteCacheSize)
+                .addLogAction(action)
+                .setOutput(new LogOutput() {
+                    @Override public void print(int priority, String tag, String message, Throwable t) {}
+                })
+                .build();
+    }
+
+    @Benchmark public String log() {
+        logAtDepth(stackDepth);
+        return action.message;
+    }
+
+    private void logAtDepth(int depth) {
+        if (depth > 0) {
+            logAtDepth(depth - 1);
+        } else {
+            if (pipeline.isLoggable(null, Priority.DEBUG)) {
+                pipeline.log(Priority.DEBUG, null, "Benchmark message", null);
+            }
+        }
+    }
+
+    private static class LastMessageAction implements LogAction {
+        String message;
+
+        @Override public void action(int priority, String tag, String message, Throwable t) {
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.bskierys.pine;
+
+/**
+ * Histogram of latencies for single thread of {@link LoadTest}. Every power of two is split into 32 buckets, so
+ * reported percentiles are at most about 3% above real value. Recording is plain array increment - each thread has
+ * its own histogram and they are merged when test ends, so measuring adds no contention of its own.
+ */
+class LoadHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[(64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+    private long count;
+    private long max;
+
+    void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts[index(nanos)]++;
+        count++;
+        if (nanos > max) {
+            max = nanos;
+        }
+    }
+
+    void add(LoadHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        max = Math.max(max, other.max);
+    }
+
+    long count() {
+        return count;
+    }
+
+    long max() {
+        return max;
+    }
+
+    /**
+     * @return upper bound of bucket that holds given percentile, never more than max
+     */
+    long percentile(double percentile) {
+        long rank = Math.max(1, (long) Math.ceil(count * percentile));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+        int subBucket = (int) (value >>> exponent) - SUB_BUCKETS / 2;
+        return exponent * SUB_BUCKETS / 2 + SUB_BUCKETS / 2 + subBucket;
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = (index - SUB_BUCKETS / 2) / (SUB_BUCKETS / 2);
+        int subBucket = (index - SUB_BUCKETS / 2) % (SUB_BUCKETS / 2);
+        return ((long) (subBucket + SUB_BUCKETS / 2 + 1) << exponent) - 1;
+    }
+}
@@ -0,0 +1,400 @@
+package com.github.bskierys.pine;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Load test of whole logging pipeline: many threads log at the same time through shared log actions, shared call
+ * site cache and shared package replacement. Unlike JMH benchmarks it shows contention and tail latency. Every log
+ * call is timed, and test reports throughput, p50/p99/p99.9/max latency, GC count and time, and bytes allocated by
+ * logging threads.</p> <p>Run with {@code ./gradlew :pine-benchmarks:loadTest -PloadArgs="--threads=32
+ * --sinks=file,memory"}. Options:</p> <ul> <li>--threads: number of logging threads, default 16</li>
+ * <li>--duration, --warmup: seconds of measured run and of warmup before it, default 10 and 3</li> <li>--messages:
+ * mix of messages as weights, default short:70,long:25,throwable:5</li> <li>--priorities: weights of priorities,
+ * default V:10,D:30,I:40,W:15,E:5</li> <li>--min-priority: lower priorities are filtered, default D</li>
+ * <li>--patterns: number of package replace patterns, default 10</li> <li>--sinks: log actions, any of none, memory,
+ * file, json, default memory</li> <li>--dispatch: sync, async (one shared buffer) or isolated (buffer and thread per
+ * action), default sync</li> </ul>
+ */
+public class LoadTest {
+    private static final String LONG_MESSAGE = longMessage();
+
+    private final Options options;
+    private final List<LogAction> actions = new ArrayList<>();
+    private final List<File> directories = new ArrayList<>();
+    private volatile boolean measuring;
+    private volatile boolean running = true;
+
+    LoadTest(Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        System.out.println(options);
+        new LoadTest(options).run();
+    }
+
+    void run() throws Exception {
+        LogPipeline pipeline = createPipeline();
+        Worker[] workers = new Worker[options.threads];
+        Thread[] threads = new Thread[options.threads];
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(pipeline, start, i);
+            threads[i] = new Thread(workers[i], "load-" + i);
+            threads[i].start();
+        }
+
+        start.countDown();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(options.warmupSeconds));
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        long allocated = allocatedBytes(threads);
+        long startNanos = System.nanoTime();
+        measuring = true;
+        Thread.sleep(TimeUnit.SECONDS.toMillis(options.durationSeconds));
+        measuring = false;
+        long elapsedNanos = System.nanoTime() - startNanos;
+        allocated = allocatedBytes(threads) - allocated;
+        gcCount = gcCount() - gcCount;
+        gcMillis = gcMillis() - gcMillis;
+        running = false;
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        pipeline.flushLogActions(TimeUnit.SECONDS.toMillis(30));
+
+        LoadHistogram histogram = new LoadHistogram();
+        for (Worker worker : workers) {
+            histogram.add(worker.histogram);
+        }
+        report(histogram, elapsedNanos, gcCount, gcMillis, allocated, pipeline);
+        close();
+    }
+
+    private LogPipeline createPipeline() throws IOException {
+        LogPipeline.Builder builder = new LogPipeline.Builder().setMinPriority(options.minPriority);
+        for (int i = 0; i < options.patterns - 1; i++) {
+            builder.addPackageReplacePattern("com.example.module" + i, "MOD" + i);
+        }
+        if (options.patterns > 0) {
+            // the one that matches logging threads
+            builder.addPackageReplacePattern("com.github.bskierys", "PINE");
+        }
+        for (String sink : options.sinks) {
+            LogAction action = createAction(sink);
+            if (action == null) {
+                continue;
+            }
+            actions.add(action);
+            builder.addLogAction("isolated".equals(options.dispatch)
+                                         ? new IsolatedLogAction.Builder(action).build() : action);
+        }
+        if ("async".equals(options.dispatch)) {
+            builder.setAsyncDispatch(new AsyncDispatch.Builder().setCapacity(64 * 1024).build());
+        }
+        return builder.enableMetrics().build();
+    }
+
+    private LogAction createAction(String sink) throws IOException {
+        switch (sink) {
+            case "none":
+                return null;
+            case "memory":
+                return new CountingAction();
+            case "file":
+                return new FileLogAction.Builder(newDirectory()).rotateBySize(64 * 1024 * 1024)
+                                                                .keepRotatedFiles(2)
+                                                                .build();
+            case "json":
+                return new JsonFileLogAction.Builder(newDirectory()).rotateBySize(64 * 1024 * 1024)
+                                                                    .keepRotatedFiles(2)
+                                                                    .build();
+            default:
+                throw new IllegalArgumentException("Unknown sink: " + sink);
+        }
+    }
+
+    private File newDirectory() throws IOException {
+        File directory = File.createTempFile("pine-load", "");
+        if (!directory.delete() || !directory.mkdir()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+        directories.add(directory);
+        return directory;
+    }
+
+    private void close() throws IOException {
+        for (LogAction action : actions) {
+            if (action instanceof BufferedFileAction) {
+                ((BufferedFileAction) action).close();
+            }
+        }
+        for (File directory : directories) {
+            File[] files = directory.listFiles();
+            for (File file : files != null ? files : new File[0]) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    private void report(LoadHistogram histogram, long elapsedNanos, long gcCount, long gcMillis, long allocated,
+                        LogPipeline pipeline) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.println(String.format(Locale.US, "Throughput: %,.0f logs/s (%,d logs in %.1f s)",
+                                         histogram.count() / seconds, histogram.count(), seconds));
+        System.out.println(String.format(Locale.US, "Latency ns: p50=%,d p99=%,d p99.9=%,d max=%,d",
+                                         histogram.percentile(0.5), histogram.percentile(0.99),
+                                         histogram.percentile(0.999), histogram.max()));
+        System.out.println(String.format(Locale.US, "GC: %d collections, %d ms", gcCount, gcMillis));
+        if (allocated >= 0) {
+            System.out.println(String.format(Locale.US, "Allocated: %,d MB, %,d bytes/log", allocated >> 20,
+                                             histogram.count() == 0 ? 0 : allocated / histogram.count()));
+        } else {
+            System.out.println("Allocated: not supported by this JVM");
+        }
+        System.out.println(pipeline.metrics());
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * @return bytes allocated so far by given threads or -1 if JVM does not count them
+     */
+    private static long allocatedBytes(Thread[] threads) {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        long total = 0;
+        for (Thread thread : threads) {
+            total += Math.max(0, ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(thread.getId()));
+        }
+        return total;
+    }
+
+    private static String longMessage() {
+        StringBuilder builder = new StringBuilder("Response {\"items\":[");
+        for (int i = 0; i < 40; i++) {
+            builder.append(i > 0 ? "," : "").append("{\"id\":").append(i).append(",\"name\":\"item ").append(i)
+                   .append("\",\"tags\":[\"a\",\"b\"]}");
+        }
+        return builder.append("]}").toString();
+    }
+
+    private class Worker implements Runnable {
+        final LoadHistogram histogram = new LoadHistogram();
+        private final LogPipeline pipeline;
+        private final CountDownLatch start;
+        private final Random random;
+        private final Exception exception = new IllegalStateException("Load test failure");
+
+        Worker(LogPipeline pipeline, CountDownLatch start, int seed) {
+            this.pipeline = pipeline;
+            this.start = start;
+            this.random = new Random(seed);
+        }
+
+        @Override public void run() {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            int sequence = 0;
+            while (running) {
+                int priority = options.priorities.pick(random);
+                int kind = options.messages.pick(random);
+                long startNanos = System.nanoTime();
+                log(priority, kind, sequence++);
+                long nanos = System.nanoTime() - startNanos;
+                if (measuring) {
+                    histogram.record(nanos);
+                }
+            }
+        }
+
+        private void log(int priority, int kind, int sequence) {
+            if (!pipeline.isLoggable(null, priority)) {
+                return;
+            }
+            switch (kind) {
+                case Options.SHORT:
+                    pipeline.log(priority, null, "User " + sequence + " logged in", null);
+                    break;
+                case Options.LONG:
+                    pipeline.log(priority, null, LONG_MESSAGE, null);
+                    break;
+                default:
+                    pipeline.log(priority, null, "Request " + sequence + " failed", exception);
+                    break;
+            }
+        }
+    }
+
+    private static class CountingAction implements LogAction {
+        private long characters;
+
+        @Override public synchronized void action(int priority, String tag, String message, Throwable t) {
+            characters += message.length();
+        }
+    }
+
+    /**
+     * Weighted choice of values, picked without allocation.
+     */
+    static class Weights {
+        private final int[] values;
+        private final int[] cumulative;
+
+        Weights(int[] values, int[] weights) {
+            this.values = values;
+            this.cumulative = new int[weights.length];
+            int sum = 0;
+            for (int i = 0; i < weights.length; i++) {
+                sum += weights[i];
+                cumulative[i] = sum;
+            }
+            if (sum <= 0) {
+                throw new IllegalArgumentException("Weights have to add up to positive number");
+            }
+        }
+
+        int pick(Random random) {
+            int point = random.nextInt(cumulative[cumulative.length - 1]);
+            for (int i = 0; i < cumulative.length; i++) {
+                if (point < cumulative[i]) {
+                    return values[i];
+                }
+            }
+            return values[values.length - 1];
+        }
+    }
+
+    static class Options {
+        static final int SHORT = 0;
+        static final int LONG = 1;
+        static final int THROWABLE = 2;
+
+        int threads = 16;
+        int durationSeconds = 10;
+        int warmupSeconds = 3;
+        String messagesSpec = "short:70,long:25,throwable:5";
+        String prioritiesSpec = "V:10,D:30,I:40,W:15,E:5";
+        Weights messages;
+        Weights priorities;
+        int minPriority = Priority.DEBUG;
+        int patterns = 10;
+        String[] sinks = {"memory"};
+        String dispatch = "sync";
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                int equals = arg.indexOf('=');
+                if (!arg.startsWith("--") || equals == -1) {
+                    throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+                }
+                String name = arg.substring(2, equals);
+                String value = arg.substring(equals + 1);
+                switch (name) {
+                    case "threads":
+                        options.threads = Integer.parseInt(value);
+                        break;
+                    case "duration":
+                        options.durationSeconds = Integer.parseInt(value);
+                        break;
+                    case "warmup":
+                        options.warmupSeconds = Integer.parseInt(value);
+                        break;
+                    case "messages":
+                        options.messagesSpec = value;
+                        break;
+                    case "priorities":
+                        options.prioritiesSpec = value;
+                        break;
+                    case "min-priority":
+                        options.minPriority = LogLevelsWatcher.parsePriority(value);
+                        break;
+                    case "patterns":
+                        options.patterns = Integer.parseInt(value);
+                        break;
+                    case "sinks":
+                        options.sinks = value.split(",");
+                        break;
+                    case "dispatch":
+                        if (!value.equals("sync") && !value.equals("async") && !value.equals("isolated")) {
+                            throw new IllegalArgumentException("Unknown dispatch: " + value);
+                        }
+                        options.dispatch = value;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + name);
+                }
+            }
+            options.messages = parseWeights(options.messagesSpec, true);
+            options.priorities = parseWeights(options.prioritiesSpec, false);
+            return options;
+        }
+
+        private static Weights parseWeights(String spec, boolean messages) {
+            String[] parts = spec.split(",");
+            int[] values = new int[parts.length];
+            int[] weights = new int[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                String[] pair = parts[i].split(":");
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("Expected name:weight, got: " + parts[i]);
+                }
+                values[i] = messages ? messageKind(pair[0]) : LogLevelsWatcher.parsePriority(pair[0]);
+                weights[i] = Integer.parseInt(pair[1]);
+            }
+            return new Weights(values, weights);
+        }
+
+        private static int messageKind(String name) {
+            switch (name) {
+                case "short":
+                    return SHORT;
+                case "long":
+                    return LONG;
+                case "throwable":
+                    return THROWABLE;
+                default:
+                    throw new IllegalArgumentException("Unknown message kind: " + name);
+            }
+        }
+
+        @Override public String toString() {
+            return "Load test: " + threads + " threads, " + durationSeconds + " s (+" + warmupSeconds + " s warmup), "
+                    + "messages " + messagesSpec + ", priorities " + prioritiesSpec + ", min priority " + minPriority
+                    + ", " + patterns + " patterns, sinks " + java.util.Arrays.toString(sinks) + ", " + dispatch
+                    + " dispatch";
+        }
+    }
+}
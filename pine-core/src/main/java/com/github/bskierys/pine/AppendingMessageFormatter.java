@@ -0,0 +1,14 @@
+package com.github.bskierys.pine;
+
+/**
+ * {@link MessageFormatter} that writes message into buffer it is given instead of creating new string. {@link
+ * LogPipeline} passes buffer that is reused between logs on the same thread, so formatting costs no intermediate
+ * strings.
+ */
+public interface AppendingMessageFormatter extends MessageFormatter {
+    /**
+     * Appends formatted message to buffer. Buffer can be used only during this call. See {@link
+     * MessageFormatter#format(MessageInfo)} for what is available in info.
+     */
+    void formatTo(MessageInfo info, StringBuilder out);
+}
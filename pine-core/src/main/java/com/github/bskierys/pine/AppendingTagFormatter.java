@@ -0,0 +1,12 @@
+package com.github.bskierys.pine;
+
+/**
+ * {@link TagFormatter} that writes tag into buffer it is given instead of creating new string.
+ */
+public interface AppendingTagFormatter extends TagFormatter {
+    /**
+     * Appends formatted tag to buffer. Buffer can be used only during this call. See {@link
+     * TagFormatter#format(LogInfo)} for what is available in info.
+     */
+    void formatTo(LogInfo info, StringBuilder out);
+}
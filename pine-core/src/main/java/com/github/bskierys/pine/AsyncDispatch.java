@@ -0,0 +1,114 @@
+package com.github.bskierys.pine;
+
+/**
+ * Configuration of asynchronous dispatch of logs to {@link LogAction}s. Use {@link Builder} to create it and pass it
+ * to {@link LogPipeline.BaseBuilder#setAsyncDispatch(AsyncDispatch)}.
+ */
+public final class AsyncDispatch {
+    private final int capacity;
+    private final WaitStrategy waitStrategy;
+    private final OverflowPolicy overflowPolicy;
+    private final int dropPriority;
+    private final boolean virtualThread;
+
+    private AsyncDispatch(Builder builder) {
+        this.capacity = builder.capacity;
+        this.waitStrategy = builder.waitStrategy;
+        this.overflowPolicy = builder.overflowPolicy;
+        this.dropPriority = builder.dropPriority;
+        this.virtualThread = builder.virtualThread;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public WaitStrategy waitStrategy() {
+        return waitStrategy;
+    }
+
+    public OverflowPolicy overflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public int dropPriority() {
+        return dropPriority;
+    }
+
+    public boolean virtualThread() {
+        return virtualThread;
+    }
+
+    /**
+     * Builder for {@link AsyncDispatch}
+     */
+    public static class Builder {
+        private static final int DEFAULT_CAPACITY = 1024;
+
+        private int capacity = DEFAULT_CAPACITY;
+        private WaitStrategy waitStrategy = WaitStrategy.SLEEPING;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+        private int dropPriority = Priority.WARN;
+        private boolean virtualThread;
+
+        /**
+         * Number of logs that can wait for actions. It is rounded up to the nearest power of two. Default is 1024.
+         */
+        public Builder setCapacity(int capacity) {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("Capacity has to be positive: " + capacity);
+            }
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * How threads wait for buffer. Default is {@link WaitStrategy#SLEEPING}.
+         */
+        public Builder setWaitStrategy(WaitStrategy waitStrategy) {
+            if (waitStrategy == null) {
+                throw new NullPointerException("Wait strategy cannot be null");
+            }
+            this.waitStrategy = waitStrategy;
+            return this;
+        }
+
+        /**
+         * What to do with log when buffer is full. Default is {@link OverflowPolicy#BLOCK}.
+         */
+        public Builder setOverflowPolicy(OverflowPolicy overflowPolicy) {
+            if (overflowPolicy == null) {
+                throw new NullPointerException("Overflow policy cannot be null");
+            }
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * Logs with lower priority are dropped when buffer is full and policy is {@link
+         * OverflowPolicy#DROP_BELOW_PRIORITY}. Default is {@link Priority#WARN}.
+         */
+        public Builder setDropPriority(int priority) {
+            this.dropPriority = priority;
+            return this;
+        }
+
+        /**
+         * Runs actions on virtual thread if runtime has them (Java 21 and later), on daemon thread otherwise. Virtual
+         * thread does not hold platform thread while it waits for logs, so many isolated actions (see {@link
+         * IsolatedLogAction}) cost little. Do not combine it with {@link WaitStrategy#BUSY_SPIN}, which never lets go
+         * of platform thread.
+         */
+        public Builder useVirtualThread() {
+            this.virtualThread = true;
+            return this;
+        }
+
+        /**
+         * Builds {@link AsyncDispatch} object
+         */
+        public AsyncDispatch build() {
+            return new AsyncDispatch(this);
+        }
+    }
+}
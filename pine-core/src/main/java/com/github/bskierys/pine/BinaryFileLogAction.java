@@ -0,0 +1,153 @@
+package com.github.bskierys.pine;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+
+/**
+ * <p>{@link LogAction} that saves logs to file in compact binary form. Package, class, method, line and tag of call
+ * site are written once per file, the first time it logs. Every log after that takes only call site id, priority,
+ * time since previous log and message.</p> <p>Use {@link BinaryLogDecoder} to turn files back into text. Buffering
+ * and rotation work the same as in {@link FileLogAction}. Use {@link Builder} to create it.</p>
+ */
+public class BinaryFileLogAction extends BufferedFileAction implements CallSiteLogAction {
+    private static final int MAX_LOG_OVERHEAD = 2 + 3 * BinaryLogFormat.MAX_VARINT_BYTES;
+
+    private final HashMap<LogInfo, DictionaryEntry> dictionary = new HashMap<>();
+    private int nextId;
+    private boolean segmentStarted;
+    private long lastLogMillis;
+
+    private BinaryFileLogAction(Builder builder) {
+        super(builder, "plog");
+    }
+
+    @Override public synchronized void action(int priority, String tag, LogInfo logInfo, String message,
+                                              Throwable t) {
+        write(priority, tag, logInfo, message);
+    }
+
+    /**
+     * Used when log does not come through {@link LogPipeline}. Message is saved as it is, with no call site.
+     */
+    @Override public synchronized void action(int priority, String tag, String message, Throwable t) {
+        write(priority, tag, null, message);
+    }
+
+    private void write(int priority, String tag, LogInfo logInfo, String message) {
+        long now = System.currentTimeMillis();
+        tag = tag == null ? "" : tag;
+        message = message == null ? "" : message;
+        try {
+            int messageBytes = Utf8.encodedLength(message);
+            if (file.shouldRotate(now, buffer.position() + messageBytes + MAX_LOG_OVERHEAD)) {
+                // logs in buffer refer to dictionary of current segment, so they have to stay in it
+                writeBuffer(now);
+                rotate(now);
+                segmentStarted = false;
+            }
+            if (!segmentStarted) {
+                startSegment(now);
+            }
+
+            int id = logInfo == null ? BinaryLogFormat.NO_CALL_SITE : callSiteId(logInfo, tag);
+            ensureRemaining(MAX_LOG_OVERHEAD);
+            buffer.put(BinaryLogFormat.TYPE_LOG);
+            BinaryLogFormat.putVarint(buffer, id);
+            buffer.put((byte) priority);
+            BinaryLogFormat.putVarint(buffer, BinaryLogFormat.zigzag(now - lastLogMillis));
+            lastLogMillis = now;
+            if (id == BinaryLogFormat.NO_CALL_SITE) {
+                putString(tag, Utf8.encodedLength(tag));
+            }
+            putString(message, messageBytes);
+
+            endRecord(priority, now);
+        } catch (IOException e) {
+            writeFailed();
+        }
+    }
+
+    /**
+     * Header and dictionary entries could be lost with buffer, so new header and dictionary are written before next
+     * log.
+     */
+    @Override void bufferDropped() {
+        segmentStarted = false;
+        dictionary.clear();
+    }
+
+    private void startSegment(long now) throws IOException {
+        dictionary.clear();
+        nextId = BinaryLogFormat.NO_CALL_SITE + 1;
+        ensureRemaining(BinaryLogFormat.HEADER_BYTES);
+        buffer.put(BinaryLogFormat.MAGIC);
+        buffer.put(BinaryLogFormat.VERSION);
+        buffer.putLong(now);
+        lastLogMillis = now;
+        segmentStarted = true;
+    }
+
+    private int callSiteId(LogInfo logInfo, String tag) throws IOException {
+        DictionaryEntry first = dictionary.get(logInfo);
+        for (DictionaryEntry entry = first; entry != null; entry = entry.next) {
+            if (entry.tag.equals(tag)) {
+                return entry.id;
+            }
+        }
+
+        DictionaryEntry entry = new DictionaryEntry(nextId++, tag, first);
+        dictionary.put(logInfo, entry);
+        ensureRemaining(1 + BinaryLogFormat.MAX_VARINT_BYTES);
+        buffer.put(BinaryLogFormat.TYPE_CALL_SITE);
+        BinaryLogFormat.putVarint(buffer, entry.id);
+        putString(logInfo.packageName(), Utf8.encodedLength(logInfo.packageName()));
+        putString(logInfo.className(), Utf8.encodedLength(logInfo.className()));
+        putString(logInfo.methodName(), Utf8.encodedLength(logInfo.methodName()));
+        ensureRemaining(BinaryLogFormat.MAX_VARINT_BYTES);
+        BinaryLogFormat.putVarint(buffer, BinaryLogFormat.zigzag(logInfo.lineNumber()));
+        putString(tag, Utf8.encodedLength(tag));
+        return entry.id;
+    }
+
+    private void putString(String text, int encodedLength) throws IOException {
+        ensureRemaining(BinaryLogFormat.MAX_VARINT_BYTES);
+        BinaryLogFormat.putVarint(buffer, encodedLength);
+        put(text);
+    }
+
+    /**
+     * Call sites with the same {@link LogInfo} but different tags are chained.
+     */
+    private static final class DictionaryEntry {
+        final int id;
+        final String tag;
+        final DictionaryEntry next;
+
+        DictionaryEntry(int id, String tag, DictionaryEntry next) {
+            this.id = id;
+            this.tag = tag;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Builder for {@link BinaryFileLogAction}. Files are named {name}.plog. See {@link BufferedFileAction.BaseBuilder}
+     * for all settings.
+     */
+    public static class Builder extends BufferedFileAction.BaseBuilder<Builder> {
+        /**
+         * @param directory Directory to keep log files in. It is created if it does not exist.
+         */
+        public Builder(File directory) {
+            super(directory);
+        }
+
+        /**
+         * Builds {@link BinaryFileLogAction} object
+         */
+        public BinaryFileLogAction build() {
+            return new BinaryFileLogAction(this);
+        }
+    }
+}
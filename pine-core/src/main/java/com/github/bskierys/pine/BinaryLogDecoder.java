@@ -0,0 +1,164 @@
+package com.github.bskierys.pine;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Turns files written by {@link BinaryFileLogAction} back into text. Every log becomes the same line {@link
+ * FileLogAction} would write with {@link DefaultMessageFormatter}: {yyyy-MM-dd HH:mm:ss.SSS} {priority}/{tag}: {class
+ * name}, {method name}, {line number} ---&gt; {message}.
+ */
+public final class BinaryLogDecoder {
+    private final DataInputStream in;
+    private final Appendable out;
+    private final HashMap<Integer, CallSiteEntry> dictionary = new HashMap<>();
+    private final DefaultMessageFormatter messageFormatter = new DefaultMessageFormatter();
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+    private long lastLogMillis;
+    private boolean headerFound;
+
+    private BinaryLogDecoder(InputStream in, Appendable out) {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+        this.out = out;
+    }
+
+    /**
+     * Decodes every log in file. Files compressed after rotation (with .gz extension) are decompressed on the way. Log
+     * that was cut in half by crash at the end of file is skipped.
+     *
+     * @return number of logs decoded
+     */
+    public static long decode(File file, Appendable out) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            if (file.getName().endsWith(SegmentArchiver.COMPRESSED_EXTENSION)) {
+                in = new GZIPInputStream(in);
+            }
+            return decode(in, out);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * See {@link #decode(File, Appendable)}. Stream is not closed.
+     */
+    public static long decode(InputStream in, Appendable out) throws IOException {
+        return new BinaryLogDecoder(in, out).decodeAll();
+    }
+
+    /**
+     * Decodes files given as arguments to standard output.
+     */
+    public static void main(String[] args) throws IOException {
+        Writer out = new OutputStreamWriter(System.out, "UTF-8");
+        for (String path : args) {
+            decode(new File(path), out);
+        }
+        out.flush();
+    }
+
+    private long decodeAll() throws IOException {
+        long logs = 0;
+        try {
+            int type;
+            while ((type = in.read()) != -1) {
+                if (type == BinaryLogFormat.TYPE_HEADER) {
+                    readHeader();
+                } else if (!headerFound) {
+                    throw new IOException("Not a binary Pine log");
+                } else if (type == BinaryLogFormat.TYPE_CALL_SITE) {
+                    readCallSite();
+                } else if (type == BinaryLogFormat.TYPE_LOG) {
+                    readLog();
+                    logs++;
+                } else {
+                    throw new IOException("Unknown record type: " + type);
+                }
+            }
+        } catch (EOFException e) {
+            // last record was not written completely
+        }
+        return logs;
+    }
+
+    private void readHeader() throws IOException {
+        for (int i = 1; i < BinaryLogFormat.MAGIC.length; i++) {
+            if (in.readByte() != BinaryLogFormat.MAGIC[i]) {
+                throw new IOException("Not a binary Pine log");
+            }
+        }
+        byte version = in.readByte();
+        if (version != BinaryLogFormat.VERSION) {
+            throw new IOException("Unsupported version of binary log: " + version);
+        }
+        lastLogMillis = in.readLong();
+        dictionary.clear();
+        headerFound = true;
+    }
+
+    private void readCallSite() throws IOException {
+        int id = (int) BinaryLogFormat.readVarint(in);
+        String packageName = readString();
+        String className = readString();
+        String methodName = readString();
+        int lineNumber = (int) BinaryLogFormat.unzigzag(BinaryLogFormat.readVarint(in));
+        String tag = readString();
+        LogInfo logInfo = new AutoValue_LogInfo(packageName, className, methodName, lineNumber, null);
+        dictionary.put(id, new CallSiteEntry(logInfo, tag));
+    }
+
+    private void readLog() throws IOException {
+        int id = (int) BinaryLogFormat.readVarint(in);
+        int priority = in.readByte();
+        lastLogMillis += BinaryLogFormat.unzigzag(BinaryLogFormat.readVarint(in));
+
+        String tag;
+        String message;
+        if (id == BinaryLogFormat.NO_CALL_SITE) {
+            tag = readString();
+            message = readString();
+        } else {
+            CallSiteEntry callSite = dictionary.get(id);
+            if (callSite == null) {
+                throw new IOException("Unknown call site: " + id);
+            }
+            tag = callSite.tag;
+            message = messageFormatter.format(new AutoValue_MessageInfo(callSite.logInfo, readString(), null));
+        }
+
+        out.append(dateFormat.format(new Date(lastLogMillis)))
+           .append(' ').append(BufferedFileAction.priorityLetter(priority))
+           .append('/').append(tag)
+           .append(": ").append(message)
+           .append('\n');
+    }
+
+    private String readString() throws IOException {
+        byte[] bytes = new byte[(int) BinaryLogFormat.readVarint(in)];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    private static final class CallSiteEntry {
+        final LogInfo logInfo;
+        final String tag;
+
+        CallSiteEntry(LogInfo logInfo, String tag) {
+            this.logInfo = logInfo;
+            this.tag = tag;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.bskierys.pine;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * <p>Layout of files written by {@link BinaryFileLogAction}. File is a sequence of records, each starting with type
+ * byte:</p> <ul> <li>segment header: "PINE", version byte, 8 byte time in millis. Starts every segment and every
+ * restart of writing to it. Clears dictionary and sets time base.</li> <li>call site: varint id, package, class,
+ * method, zigzag varint line, tag. Written the first time call site (with given tag) appears in segment.</li>
+ * <li>log: varint call site id, priority byte, zigzag varint millis since previous log, message. Logs without call
+ * site have id 0 and tag before message.</li> </ul> <p>Strings are varint length of UTF-8 bytes followed by
+ * them.</p>
+ */
+final class BinaryLogFormat {
+    static final byte[] MAGIC = {'P', 'I', 'N', 'E'};
+    static final byte VERSION = 1;
+    static final byte TYPE_HEADER = MAGIC[0];
+    static final byte TYPE_CALL_SITE = 1;
+    static final byte TYPE_LOG = 2;
+    static final int NO_CALL_SITE = 0;
+    static final int MAX_VARINT_BYTES = 10;
+    static final int HEADER_BYTES = MAGIC.length + 1 + 8;
+
+    private BinaryLogFormat() {}
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Buffer has to have at least {@link #MAX_VARINT_BYTES} bytes left.
+     */
+    static void putVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static long readVarint(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
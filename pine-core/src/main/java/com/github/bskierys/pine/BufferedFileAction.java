@@ -0,0 +1,345 @@
+package com.github.bskierys.pine;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Base of log actions that save logs to rotated files. Records are encoded straight into reusable buffer and
+ * written to file only when {@link BaseBuilder} policy says so, so logging does not touch the disk on every log. Files
+ * are rotated by size or age. Rotated files can be compressed and the oldest ones deleted in background.</p>
+ */
+public abstract class BufferedFileAction implements Closeable {
+    private static final char[] PRIORITY_LETTERS = {'?', '?', 'V', 'D', 'I', 'W', 'E', 'A'};
+    // single thread flushes buffers of every action, started with the first one that needs it
+    private static ScheduledExecutorService flusher;
+
+    final RotatingFileChannel file;
+    final ByteBuffer buffer;
+    final SegmentArchiver archiver;
+    private final int flushEveryRecords;
+    private final long flushIntervalMillis;
+    private final int forcePriority;
+    private final AtomicLong failedWrites = new AtomicLong();
+
+    private int unflushedRecords;
+    private long lastFlushMillis;
+    private ScheduledFuture<?> flushTask;
+
+    BufferedFileAction(BaseBuilder<?> builder, String extension) {
+        this.file = new RotatingFileChannel(builder.directory, builder.name, extension, builder.maxSegmentBytes,
+                                            builder.rotationIntervalMillis);
+        this.buffer = ByteBuffer.allocateDirect(builder.bufferSize);
+        this.flushEveryRecords = builder.flushEveryRecords;
+        this.flushIntervalMillis = builder.flushIntervalMillis;
+        this.forcePriority = builder.forcePriority;
+        this.lastFlushMillis = System.currentTimeMillis();
+        if (builder.compressRotated || builder.maxRotatedSegments > 0 || builder.maxRotatedBytes > 0) {
+            this.archiver = new SegmentArchiver(builder.directory, builder.name, extension, builder.compressRotated,
+                                                builder.maxRotatedSegments, builder.maxRotatedBytes);
+            // segments rotated by previous run could be left unarchived
+            archiver.segmentRotated();
+        } else {
+            this.archiver = null;
+        }
+    }
+
+    /**
+     * Writes every buffered record to file.
+     */
+    public synchronized void flush() throws IOException {
+        writeBuffer(System.currentTimeMillis());
+    }
+
+    /**
+     * @return number of times writing to file has failed. Records that were buffered when it happened are lost.
+     */
+    public long failedWrites() {
+        return failedWrites.get();
+    }
+
+    /**
+     * @return number of times compressing or deleting rotated file has failed
+     */
+    public long failedArchives() {
+        return archiver == null ? 0 : archiver.failures();
+    }
+
+    /**
+     * Writes buffered records and closes file. Stops flushing on timer until next record comes. Action can still be
+     * used afterwards - it will open file again.
+     */
+    @Override public synchronized void close() throws IOException {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+        try {
+            flush();
+        } finally {
+            file.close();
+        }
+    }
+
+    static char priorityLetter(int priority) {
+        return priority >= 0 && priority < PRIORITY_LETTERS.length ? PRIORITY_LETTERS[priority] : '?';
+    }
+
+    /**
+     * Moves active segment aside and hands it over to archiver.
+     */
+    void rotate(long now) throws IOException {
+        if (file.rotate(now) != null && archiver != null) {
+            archiver.segmentRotated();
+        }
+    }
+
+    /**
+     * Counts record as complete and writes buffer to file if flush policy says so.
+     */
+    void endRecord(int priority, long now) throws IOException {
+        unflushedRecords++;
+        if (flushTask == null && flushIntervalMillis > 0) {
+            scheduleFlush();
+        }
+        if (priority >= forcePriority) {
+            writeBuffer(now);
+            file.force();
+        } else if ((flushEveryRecords > 0 && unflushedRecords >= flushEveryRecords)
+                || (flushIntervalMillis > 0 && now - lastFlushMillis >= flushIntervalMillis)) {
+            writeBuffer(now);
+        }
+    }
+
+    /**
+     * Records that come after last burst of logs are written once interval passes, without waiting for next log.
+     */
+    private void scheduleFlush() {
+        flushTask = flusher().scheduleWithFixedDelay(new Runnable() {
+            @Override public void run() {
+                flushIfDue();
+            }
+        }, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static synchronized ScheduledExecutorService flusher() {
+        if (flusher == null) {
+            flusher = LogPipeline.newDaemonScheduler("Pine-flush");
+        }
+        return flusher;
+    }
+
+    private synchronized void flushIfDue() {
+        long now = System.currentTimeMillis();
+        if (unflushedRecords > 0 && now - lastFlushMillis >= flushIntervalMillis) {
+            try {
+                writeBuffer(now);
+            } catch (IOException e) {
+                writeFailed();
+            }
+        }
+    }
+
+    /**
+     * Drops buffered records after write has failed.
+     */
+    void writeFailed() {
+        failedWrites.incrementAndGet();
+        buffer.clear();
+        bufferDropped();
+    }
+
+    /**
+     * Called when buffered bytes are dropped without reaching file, whichever write failed: log, timer flush, {@link
+     * #flush()} or {@link #close()}. Does nothing by default.
+     */
+    void bufferDropped() {
+    }
+
+    void writeBuffer(long now) throws IOException {
+        buffer.flip();
+        try {
+            if (buffer.hasRemaining()) {
+                file.write(buffer, now);
+            }
+        } catch (IOException e) {
+            bufferDropped();
+            throw e;
+        } finally {
+            buffer.clear();
+        }
+        unflushedRecords = 0;
+        lastFlushMillis = now;
+    }
+
+    /**
+     * Makes sure buffer has room for given number of bytes, writing it to file if it has not.
+     */
+    void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            writeBuffer(System.currentTimeMillis());
+        }
+    }
+
+    void put(CharSequence text) throws IOException {
+        put(text, 0, text.length());
+    }
+
+    void put(CharSequence text, int start, int end) throws IOException {
+        int index = start;
+        while (index < end) {
+            index = Utf8.encode(text, index, end, buffer);
+            if (index < end) {
+                writeBuffer(System.currentTimeMillis());
+            }
+        }
+    }
+
+    void put(char ascii) throws IOException {
+        ensureRemaining(1);
+        buffer.put((byte) ascii);
+    }
+
+    /**
+     * Settings shared by every builder of action that saves logs to files. Methods return builder of type that
+     * extends it, so they can be chained with its own methods.
+     *
+     * @param <B> Type of builder that extends this one
+     */
+    public static abstract class BaseBuilder<B extends BaseBuilder<B>> {
+        private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+        private static final long DEFAULT_MAX_SEGMENT_BYTES = 4 * 1024 * 1024;
+        private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+        private final File directory;
+        private String name = "pine";
+        private int bufferSize = DEFAULT_BUFFER_SIZE;
+        private long maxSegmentBytes = DEFAULT_MAX_SEGMENT_BYTES;
+        private long rotationIntervalMillis;
+        private int flushEveryRecords;
+        private long flushIntervalMillis = DEFAULT_FLUSH_INTERVAL_MILLIS;
+        private int forcePriority = Priority.ERROR;
+        private boolean compressRotated;
+        private int maxRotatedSegments;
+        private long maxRotatedBytes;
+
+        /**
+         * @param directory Directory to keep log files in. It is created if it does not exist.
+         */
+        BaseBuilder(File directory) {
+            if (directory == null) {
+                throw new NullPointerException("Directory cannot be null");
+            }
+            this.directory = directory;
+        }
+
+        @SuppressWarnings("unchecked") private B self() {
+            return (B) this;
+        }
+
+        /**
+         * Name of log files. Active file is called {name}.{extension} and rotated ones
+         * {name}-{yyyyMMdd-HHmmss}.{extension}. Default is "pine".
+         */
+        public B setName(String name) {
+            if (name == null || name.length() == 0) {
+                throw new IllegalArgumentException("Name cannot be empty");
+            }
+            this.name = name;
+            return self();
+        }
+
+        /**
+         * Size of buffer logs are encoded into before they are written to file. Default is 64 KB.
+         */
+        public B setBufferSize(int bytes) {
+            if (bytes < 64) {
+                throw new IllegalArgumentException("Buffer is too small: " + bytes);
+            }
+            this.bufferSize = bytes;
+            return self();
+        }
+
+        /**
+         * File is rotated when it would grow over this size. Default is 4 MB. Set 0 to turn it off.
+         */
+        public B rotateBySize(long maxBytes) {
+            this.maxSegmentBytes = maxBytes;
+            return self();
+        }
+
+        /**
+         * File is rotated when it is older than this. Turned off by default.
+         */
+        public B rotateByTime(long interval, TimeUnit unit) {
+            this.rotationIntervalMillis = unit.toMillis(interval);
+            return self();
+        }
+
+        /**
+         * Buffered logs are written to file every time this number of logs is reached. Turned off by default.
+         */
+        public B flushEveryRecords(int records) {
+            this.flushEveryRecords = records;
+            return self();
+        }
+
+        /**
+         * Buffered logs are written to file once this time passes since last write - with the next log or on
+         * background thread if no log comes, so the last ones are not held back until {@link #close()}. Default is 1
+         * second. Set 0 to turn it off.
+         */
+        public B flushEvery(long interval, TimeUnit unit) {
+            this.flushIntervalMillis = unit.toMillis(interval);
+            return self();
+        }
+
+        /**
+         * Logs with this priority or higher are written to file and forced to storage device right away, so they
+         * survive crash of application or system. Default is {@link Priority#ERROR}.
+         */
+        public B forceFromPriority(int priority) {
+            this.forcePriority = priority;
+            return self();
+        }
+
+        /**
+         * Rotated files are compressed with gzip on background thread of low priority and get .gz extension. Active
+         * file is never compressed, so logging does not wait for it. Turned off by default.
+         */
+        public B compressRotated() {
+            this.compressRotated = true;
+            return self();
+        }
+
+        /**
+         * The oldest rotated files are deleted on background thread when there are more of them than this. Active
+         * file is not counted. Turned off by default.
+         */
+        public B keepRotatedFiles(int count) {
+            if (count <= 0) {
+                throw new IllegalArgumentException("Count has to be positive: " + count);
+            }
+            this.maxRotatedSegments = count;
+            return self();
+        }
+
+        /**
+         * The oldest rotated files are deleted on background thread when together they take more bytes than this.
+         * Size is checked after compression (see {@link #compressRotated()}). Active file is not counted. Turned off
+         * by default.
+         */
+        public B keepRotatedBytes(long bytes) {
+            if (bytes <= 0) {
+                throw new IllegalArgumentException("Size has to be positive: " + bytes);
+            }
+            this.maxRotatedBytes = bytes;
+            return self();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.bskierys.pine;
+
+import com.google.auto.value.AutoValue;
+
+/**
+ * Snapshot of call site cache statistics. Use it to size cache with {@link
+ * LogPipeline.BaseBuilder#setCallSiteCacheSize(int)}.
+ */
+@AutoValue
+public abstract class CacheStats {
+    /**
+     * Number of log calls that found their call site in cache.
+     */
+    public abstract long hitCount();
+    /**
+     * Number of log calls that had to resolve their call site.
+     */
+    public abstract long missCount();
+    /**
+     * Number of call sites currently cached.
+     */
+    public abstract int size();
+    /**
+     * Maximum number of call sites cache can hold.
+     */
+    public abstract int maxSize();
+
+    /**
+     * @return ratio of hits to all lookups or 0 if there were no lookups yet
+     */
+    public double hitRate() {
+        long total = hitCount() + missCount();
+        return total == 0 ? 0 : (double) hitCount() / total;
+    }
+}
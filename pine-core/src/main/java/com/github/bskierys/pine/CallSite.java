@@ -0,0 +1,38 @@
+package com.github.bskierys.pine;
+
+import com.google.auto.value.AutoValue;
+
+import javax.annotation.Nullable;
+
+/**
+ * Everything {@link LogPipeline} resolves for single place in code that logs: {@link LogInfo}, final tag and constant
+ * part of message. None of it changes between calls, so it is computed once and kept in {@link CallSiteCache}.
+ */
+@AutoValue
+abstract class CallSite {
+    abstract LogInfo logInfo();
+    abstract String tag();
+    /**
+     * Constant beginning of formatted message as passed to {@link LogAction}s or null if message formatter does not
+     * produce one.
+     */
+    @Nullable abstract String messagePrefix();
+    /**
+     * {@link #messagePrefix()} with package patterns replaced, ready to be printed.
+     */
+    @Nullable abstract String outputPrefix();
+    /**
+     * Lowest priority logged from this place in code, according to global and package settings.
+     */
+    abstract int minPriority();
+    /**
+     * Rate limit of this place in code or null if it is not limited. Bucket is shared by every call site resolved for
+     * the same place, so it is not refilled when call site is evicted from cache or settings change.
+     */
+    @Nullable abstract TokenBucket rateLimiter();
+    /**
+     * Last message of this place in code with its held back repeats or null if repeats are not coalesced. Shared by
+     * every call site resolved for the same place, like {@link #rateLimiter()}.
+     */
+    @Nullable abstract RepeatTracker repeatTracker();
+}
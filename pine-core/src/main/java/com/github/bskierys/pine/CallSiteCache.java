@@ -0,0 +1,67 @@
+package com.github.bskierys.pine;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, thread safe cache of {@link CallSite}s keyed by caller frame. When cache is full it is cleared, so call
+ * sites that are still hot are resolved once again and the ones that are not get dropped.
+ */
+class CallSiteCache {
+    private final ConcurrentHashMap<StackTraceElement, CallSite> callSites;
+    private final int maxSize;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    CallSiteCache(int maxSize) {
+        this(maxSize, new AtomicLong(), new AtomicLong());
+    }
+
+    private CallSiteCache(int maxSize, AtomicLong hits, AtomicLong misses) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Cache size cannot be negative: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.callSites = new ConcurrentHashMap<>(Math.min(maxSize, 64));
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * @return new empty cache of the same size that keeps counting hits and misses where this one stopped
+     */
+    CallSiteCache emptyCopy() {
+        return new CallSiteCache(maxSize, hits, misses);
+    }
+
+    int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return cached call site for given frame or null if there is none. Every call counts as hit or miss.
+     */
+    CallSite get(StackTraceElement element) {
+        CallSite callSite = maxSize == 0 ? null : callSites.get(element);
+        if (callSite == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return callSite;
+    }
+
+    void put(StackTraceElement element, CallSite callSite) {
+        if (maxSize == 0) {
+            return;
+        }
+        if (callSites.size() >= maxSize) {
+            callSites.clear();
+        }
+        callSites.put(element, callSite);
+    }
+
+    CacheStats stats() {
+        return new AutoValue_CacheStats(hits.get(), misses.get(), callSites.size(), maxSize);
+    }
+}
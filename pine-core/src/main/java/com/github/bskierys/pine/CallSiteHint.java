@@ -0,0 +1,37 @@
+package com.github.bskierys.pine;
+
+/**
+ * <p>Place in code that logs, known before log is made. Pine Gradle plugin surrounds every Timber call it rewrites
+ * with {@link #enter(StackTraceElement)} and {@link #exit()}, giving constant frame created once per call site, so
+ * {@link LogPipeline} takes caller from here and does not walk stack trace at all. Logs from code that was not
+ * rewritten find their caller at runtime as before.</p> <p>Not meant to be called by hand.</p>
+ */
+public final class CallSiteHint {
+    private static final ThreadLocal<StackTraceElement> CURRENT = new ThreadLocal<>();
+
+    private CallSiteHint() {
+        // no instances
+    }
+
+    /**
+     * Marks that log made on this thread comes from given place, until {@link #exit()} is called.
+     */
+    public static void enter(StackTraceElement element) {
+        CURRENT.set(element);
+    }
+
+    /**
+     * Forgets place set with {@link #enter(StackTraceElement)}. Rewritten code calls it after log, also when log
+     * throws.
+     */
+    public static void exit() {
+        CURRENT.set(null);
+    }
+
+    /**
+     * @return place set with {@link #enter(StackTraceElement)} or null if log comes from code that was not rewritten
+     */
+    static StackTraceElement current() {
+        return CURRENT.get();
+    }
+}
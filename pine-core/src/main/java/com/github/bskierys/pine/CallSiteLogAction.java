@@ -0,0 +1,13 @@
+package com.github.bskierys.pine;
+
+/**
+ * {@link LogAction} that wants to know where log was called from rather than get formatted message. {@link
+ * LogPipeline} passes it {@link LogInfo} of call site and message the way it was logged, before {@link
+ * MessageFormatter} touched it.
+ */
+public interface CallSiteLogAction extends LogAction {
+    /**
+     * Invoked instead of {@link #action(int, String, String, Throwable)} when log goes through {@link LogPipeline}.
+     */
+    void action(int priority, String tag, LogInfo logInfo, String message, Throwable t);
+}
@@ -0,0 +1,14 @@
+package com.github.bskierys.pine;
+
+/**
+ * Strategy of finding place in code that logged message. Set your own with {@link
+ * LogPipeline.BaseBuilder#setCallerLocator(CallerLocator)} if none of built in ones fits your needs.
+ */
+public interface CallerLocator {
+    /**
+     * Invoked on thread that logs, from inside of {@link LogPipeline}.
+     *
+     * @return frame of code that called logger or null if it could not be found
+     */
+    StackTraceElement locateCaller();
+}
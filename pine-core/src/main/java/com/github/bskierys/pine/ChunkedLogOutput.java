@@ -0,0 +1,72 @@
+package com.github.bskierys.pine;
+
+/**
+ * <p>{@link LogOutput} for backends that limit length of single entry, like logcat. Long messages are split at line
+ * breaks and then into pieces that fit, and every piece starts with prefix of message, so it is clear where each of
+ * them comes from.</p> <p>When message formatter has constant prefix for call site ({@link DefaultMessageFormatter}),
+ * {@link LogPipeline} gives prefix and message apart: whole formatted message is never built, package names are
+ * replaced only in prefix and every piece is copied straight from logged message into single reused buffer.</p>
+ */
+public abstract class ChunkedLogOutput implements LogOutput {
+    private final int maxLength;
+
+    /**
+     * @param maxLength Maximal length of single entry, prefix included
+     */
+    protected ChunkedLogOutput(int maxLength) {
+        if (maxLength <= 0) {
+            throw new IllegalArgumentException("Max length has to be positive: " + maxLength);
+        }
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Prints message that was formatted as a whole, so it is split without prefix.
+     */
+    @Override public void print(int priority, String tag, String message, Throwable t) {
+        print(priority, tag, "", message, t);
+    }
+
+    /**
+     * @param prefix Constant beginning of formatted message, with package names already replaced
+     * @param message Rest of message
+     */
+    public void print(int priority, String tag, String prefix, CharSequence message, Throwable t) {
+        int length = message.length();
+        if (prefix.length() + length < maxLength) {
+            printChunk(priority, tag, prefix.isEmpty() ? message.toString() : prefix + message);
+            return;
+        }
+
+        // prefix longer than entry would leave no room for message
+        int room = Math.max(maxLength - prefix.length(), maxLength / 4);
+        StringBuilder chunk = StringBuilders.acquire();
+        try {
+            for (int i = 0; i < length; i++) {
+                int newline = indexOfNewline(message, i);
+                do {
+                    int end = Math.min(newline, i + room);
+                    chunk.setLength(0);
+                    printChunk(priority, tag, chunk.append(prefix).append(message, i, end).toString());
+                    i = end;
+                } while (i < newline);
+            }
+        } finally {
+            StringBuilders.release(chunk);
+        }
+    }
+
+    private static int indexOfNewline(CharSequence message, int from) {
+        for (int i = from; i < message.length(); i++) {
+            if (message.charAt(i) == '\n') {
+                return i;
+            }
+        }
+        return message.length();
+    }
+
+    /**
+     * Prints single entry that fits max length.
+     */
+    protected abstract void printChunk(int priority, String tag, String chunk);
+}
@@ -0,0 +1,191 @@
+package com.github.bskierys.pine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Changes settings of running {@link LogPipeline}. Get it with {@link LogPipeline#edit()}, which copies current
+ * settings, change what you need and call {@link #apply()}. Logging threads switch to new settings at once, without
+ * taking any lock - they see either old settings or new ones, never a mix of both.</p> <p>Settings that decide how
+ * pipeline is built (output, asynchronous dispatch, call site cache size, facade classes, metrics, coalescing repeats
+ * and package placeholders) cannot be changed.</p>
+ */
+public final class ConfigEditor {
+    private final LogPipeline pipeline;
+    private final PipelineConfig base;
+
+    private MessageFormatter messageFormatter;
+    private TagFormatter tagFormatter;
+    private final LinkedHashMap<String, String> packageReplacePatterns;
+    private final ArrayList<LogAction> logActions;
+    private int minPriority;
+    private HashMap<String, Integer> tagMinPriorities;
+    private LinkedHashMap<String, Integer> packageMinPriorities;
+    private RateLimit rateLimit;
+    private final LinkedHashMap<String, RateLimit> packageRateLimits;
+    private ThrowableRenderer throwableRenderer;
+
+    ConfigEditor(LogPipeline pipeline, PipelineConfig base) {
+        this.pipeline = pipeline;
+        this.base = base;
+        this.messageFormatter = base.messageFormatter;
+        this.tagFormatter = base.tagFormatter;
+        this.packageReplacePatterns = new LinkedHashMap<>(base.packageReplacePatterns);
+        this.logActions = new ArrayList<>(base.logActions);
+        this.minPriority = base.minPriority;
+        this.tagMinPriorities = new HashMap<>(base.tagMinPriorities);
+        this.packageMinPriorities = new LinkedHashMap<>(base.packageMinPriorities);
+        this.rateLimit = base.rateLimit;
+        this.packageRateLimits = new LinkedHashMap<>(base.packageRateLimits);
+        this.throwableRenderer = base.throwableRenderer;
+    }
+
+    /**
+     * See {@link LogPipeline.BaseBuilder#setMessageFormatter(MessageFormatter)}.
+     */
+    public ConfigEditor setMessageFormatter(MessageFormatter formatter) {
+        if (formatter == null) {
+            throw new NullPointerException("Message formatter cannot be null");
+        }
+        this.messageFormatter = formatter;
+        return this;
+    }
+
+    /**
+     * See {@link LogPipeline.BaseBuilder#setTagFormatter(TagFormatter)}.
+     */
+    public ConfigEditor setTagFormatter(TagFormatter formatter) {
+        if (formatter == null) {
+            throw new NullPointerException("Tag formatter cannot be null");
+        }
+        this.tagFormatter = formatter;
+        return this;
+    }
+
+    /**
+     * See {@link LogPipeline.BaseBuilder#addPackageReplacePattern(String, String)}.
+     */
+    public ConfigEditor addPackageReplacePattern(String packageName, String replacement) {
+        packageReplacePatterns.put(packageName, replacement);
+        return this;
+    }
+
+    public ConfigEditor removePackageReplacePattern(String packageName) {
+        packageReplacePatterns.remove(packageName);
+        return this;
+    }
+
+    /**
+     * See {@link LogPipeline.BaseBuilder#addLogAction(LogAction)}.
+     */
+    public ConfigEditor addLogAction(LogAction logAction) {
+        logActions.add(logAction);
+        return this;
+    }
+
+    /**
+     * Stops passing logs to given action. Logs that wait in asynchronous dispatch buffer still reach it.
+     */
+    public ConfigEditor removeLogAction(LogAction logAction) {
+        logActions.remove(logAction);
+        return this;
+    }
+
+    /**
+     * See {@link LogPipeline.BaseBuilder#setMinPriority(int)}.
+     */
+    public ConfigEditor setMinPriority(int priority) {
+        this.minPriority = priority;
+        return this;
+    }
+
+    /**
+     * See {@link LogPipeline.BaseBuilder#setTagMinPriority(String, int)}.
+     */
+    public ConfigEditor setTagMinPriority(String tag, int priority) {
+        tagMinPriorities.put(tag, priority);
+        return this;
+    }
+
+    public ConfigEditor removeTagMinPriority(String tag) {
+        tagMinPriorities.remove(tag);
+        return this;
+    }
+
+    /**
+     * See {@link LogPipeline.BaseBuilder#setPackageMinPriority(String, int)}.
+     */
+    public ConfigEditor setPackageMinPriority(String packageName, int priority) {
+        packageMinPriorities.put(packageName, priority);
+        return this;
+    }
+
+    public ConfigEditor removePackageMinPriority(String packageName) {
+        packageMinPriorities.remove(packageName);
+        return this;
+    }
+
+    /**
+     * See {@link LogPipeline.BaseBuilder#setRateLimit(double, int)}. Places in code whose limit changes start with
+     * full bucket again, others keep theirs.
+     */
+    public ConfigEditor setRateLimit(double logsPerSecond, int burst) {
+        this.rateLimit = RateLimit.create(logsPerSecond, burst);
+        return this;
+    }
+
+    public ConfigEditor removeRateLimit() {
+        this.rateLimit = null;
+        return this;
+    }
+
+    /**
+     * See {@link LogPipeline.BaseBuilder#setPackageRateLimit(String, double, int)}.
+     */
+    public ConfigEditor setPackageRateLimit(String packageName, double logsPerSecond, int burst) {
+        packageRateLimits.put(packageName, RateLimit.create(logsPerSecond, burst));
+        return this;
+    }
+
+    public ConfigEditor removePackageRateLimit(String packageName) {
+        packageRateLimits.remove(packageName);
+        return this;
+    }
+
+    /**
+     * See {@link LogPipeline.BaseBuilder#setThrowableRenderer(ThrowableRenderer)}. Set null to turn it off.
+     */
+    public ConfigEditor setThrowableRenderer(ThrowableRenderer renderer) {
+        this.throwableRenderer = renderer;
+        return this;
+    }
+
+    /**
+     * Replaces every priority setting at once.
+     */
+    void setPriorities(int minPriority, Map<String, Integer> tagMinPriorities,
+                       Map<String, Integer> packageMinPriorities) {
+        this.minPriority = minPriority;
+        this.tagMinPriorities = new HashMap<>(tagMinPriorities);
+        this.packageMinPriorities = new LinkedHashMap<>(packageMinPriorities);
+    }
+
+    /**
+     * Switches pipeline to new settings, unless they were changed by someone else since this editor was created. In
+     * that case nothing is changed - get new editor and make your changes again. Places in code that logs are
+     * resolved again with new settings.
+     *
+     * @return true if new settings were applied
+     */
+    public boolean apply() {
+        PipelineConfig config = new PipelineConfig(messageFormatter, tagFormatter, packageReplacePatterns,
+                                                   base.usePackagePlaceholders, logActions, minPriority,
+                                                   tagMinPriorities, packageMinPriorities, rateLimit,
+                                                   packageRateLimits, throwableRenderer,
+                                                   base.callSiteCache.emptyCopy(),
+                                                   pipeline.metricsCollector());
+        return pipeline.replaceConfig(base, config);
+    }
+}
@@ -0,0 +1,40 @@
+/*
+* author: Bartlomiej Kierys
+* date: 2016-11-25
+* email: bskierys@gmail.com
+*/
+package com.github.bskierys.pine;
+
+/**
+ * Default message formatter. Message: {class name}, {method name}, {line number} ---&gt; {message}.
+ */
+public class DefaultMessageFormatter implements AppendingMessageFormatter {
+    private static final String DELIMITER = " ---> ";
+
+    @Override public String format(MessageInfo info) {
+        StringBuilder message = new StringBuilder();
+        formatTo(info, message);
+        return message.toString();
+    }
+
+    @Override public void formatTo(MessageInfo info, StringBuilder out) {
+        appendPrefix(info.logInfo(), out);
+        out.append(info.message());
+    }
+
+    /**
+     * Part of message that depends only on where it was logged from.
+     */
+    String prefix(LogInfo info) {
+        StringBuilder prefix = new StringBuilder();
+        appendPrefix(info, prefix);
+        return prefix.toString();
+    }
+
+    private void appendPrefix(LogInfo info, StringBuilder out) {
+        out.append(info.className())
+           .append(", ").append(info.methodName())
+           .append(", ").append(info.lineNumber())
+           .append(DELIMITER);
+    }
+}
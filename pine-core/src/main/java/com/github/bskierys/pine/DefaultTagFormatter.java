@@ -0,0 +1,66 @@
+/*
+* author: Bartlomiej Kierys
+* date: 2016-11-25
+* email: bskierys@gmail.com
+*/
+package com.github.bskierys.pine;
+
+/**
+ * Default tag formatter. Tag: by default your tag will be the name of your package. Vowels are removed to reduce
+ * length of tag. You can use Builder method {@link LogPipeline.BaseBuilder#addPackageReplacePattern(String, String)}
+ * to replace any package with short phrase (your app name for example)
+ */
+public class DefaultTagFormatter implements AppendingTagFormatter {
+    @Override public String format(LogInfo info) {
+        StringBuilder tag = new StringBuilder();
+        formatTo(info, tag);
+        return tag.toString();
+    }
+
+    @Override public void formatTo(LogInfo info, StringBuilder out) {
+        String packageName = info.packageName();
+        String replacement = info.packageReplacement();
+        int start = 0;
+        if (replacement != null && packageName.startsWith(replacement)) {
+            // replacement is chosen by user, so it is kept as it is
+            out.append(replacement);
+            start = replacement.length();
+        }
+
+        while (start <= packageName.length()) {
+            int end = packageName.indexOf('.', start);
+            if (end == -1) {
+                end = packageName.length();
+            }
+            appendWithoutVowels(packageName, start, end, out);
+            if (end < packageName.length()) {
+                out.append('.');
+            }
+            start = end + 1;
+        }
+    }
+
+    private void appendWithoutVowels(String text, int start, int end, StringBuilder out) {
+        int length = out.length();
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (!isVowel(c)) {
+                out.append(c);
+            }
+        }
+        if (out.length() == length) {
+            // do not remove vowels if that removes whole name
+            out.append(text, start, end);
+        }
+    }
+
+    private boolean isVowel(char c) {
+        switch (c) {
+            case 'A': case 'E': case 'I': case 'O': case 'U': case 'Y':
+            case 'a': case 'e': case 'i': case 'o': case 'u': case 'y':
+                return true;
+            default:
+                return false;
+        }
+    }
+}
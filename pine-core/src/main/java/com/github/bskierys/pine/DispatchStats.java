@@ -0,0 +1,30 @@
+package com.github.bskierys.pine;
+
+import com.google.auto.value.AutoValue;
+
+/**
+ * Snapshot of asynchronous dispatch counters.
+ */
+@AutoValue
+public abstract class DispatchStats {
+    /**
+     * Number of logs accepted into buffer.
+     */
+    public abstract long queuedCount();
+    /**
+     * Number of logs dropped because buffer was full.
+     */
+    public abstract long droppedCount();
+    /**
+     * Number of logs waiting in buffer for actions.
+     */
+    public abstract long pendingCount();
+    /**
+     * Number of logs for which action has thrown an exception.
+     */
+    public abstract long failedCount();
+    /**
+     * Size of buffer.
+     */
+    public abstract int capacity();
+}
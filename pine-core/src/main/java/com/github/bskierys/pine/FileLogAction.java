@@ -0,0 +1,108 @@
+package com.github.bskierys.pine;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>{@link LogAction} that saves logs to file. Every log is written as single line: {yyyy-MM-dd HH:mm:ss.SSS}
+ * {priority}/{tag}: {message}.</p> <p>Lines are encoded straight into reusable buffer and written to file only when
+ * {@link Builder} policy says so, so logging does not touch the disk on every line. Files are rotated by size or age.
+ * Use {@link Builder} to create it.</p>
+ */
+public class FileLogAction extends BufferedFileAction implements LogAction {
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final Calendar calendar = Calendar.getInstance();
+    private final byte[] hourPrefix = new byte["yyyy-MM-dd HH:".length()];
+    private long hourStartMillis = Long.MIN_VALUE;
+
+    private FileLogAction(Builder builder) {
+        super(builder, "log");
+    }
+
+    @Override public synchronized void action(int priority, String tag, String message, Throwable t) {
+        long now = System.currentTimeMillis();
+        try {
+            putTimestamp(now);
+            put(' ');
+            put(priorityLetter(priority));
+            put('/');
+            put(tag == null ? "" : tag);
+            put(':');
+            put(' ');
+            put(message == null ? "" : message);
+            put('\n');
+
+            // lines still in buffer go to new segment
+            if (file.shouldRotate(now, buffer.position())) {
+                rotate(now);
+            }
+            endRecord(priority, now);
+        } catch (IOException e) {
+            writeFailed();
+        }
+    }
+
+    private void putTimestamp(long millis) throws IOException {
+        if (millis < hourStartMillis || millis >= hourStartMillis + HOUR_MILLIS) {
+            cacheHour(millis);
+        }
+        if (buffer.remaining() < hourPrefix.length + "mm:ss.SSS".length()) {
+            writeBuffer(millis);
+        }
+        long sinceHour = millis - hourStartMillis;
+        buffer.put(hourPrefix);
+        putDigits((int) (sinceHour / TimeUnit.MINUTES.toMillis(1)), 2);
+        buffer.put((byte) ':');
+        putDigits((int) (sinceHour / TimeUnit.SECONDS.toMillis(1) % 60), 2);
+        buffer.put((byte) '.');
+        putDigits((int) (sinceHour % TimeUnit.SECONDS.toMillis(1)), 3);
+    }
+
+    private void cacheHour(long millis) {
+        calendar.setTimeInMillis(millis);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        hourStartMillis = calendar.getTimeInMillis();
+
+        String prefix = String.format(Locale.US, "%04d-%02d-%02d %02d:", calendar.get(Calendar.YEAR),
+                                      calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH),
+                                      calendar.get(Calendar.HOUR_OF_DAY));
+        for (int i = 0; i < hourPrefix.length; i++) {
+            hourPrefix[i] = (byte) prefix.charAt(i);
+        }
+    }
+
+    private void putDigits(int value, int digits) {
+        int divisor = 1;
+        for (int i = 1; i < digits; i++) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            buffer.put((byte) ('0' + value / divisor % 10));
+        }
+    }
+
+    /**
+     * Builder for {@link FileLogAction}. See {@link BufferedFileAction.BaseBuilder} for all settings.
+     */
+    public static class Builder extends BufferedFileAction.BaseBuilder<Builder> {
+        /**
+         * @param directory Directory to keep log files in. It is created if it does not exist.
+         */
+        public Builder(File directory) {
+            super(directory);
+        }
+
+        /**
+         * Builds {@link FileLogAction} object
+         */
+        public FileLogAction build() {
+            return new FileLogAction(this);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.github.bskierys.pine;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>{@link LogAction} that keeps the most recent logs in memory, so they can be saved when something goes wrong. Logs
+ * are encoded into fixed size ring outside of Java heap and the oldest ones are overwritten. Nothing is allocated and
+ * nothing touches the disk while logging, so verbose logs can stay on in release builds.</p> <p>Use {@link
+ * #dump(OutputStream)} to save logs on demand, {@link Builder#dumpTo(File, int)} to save them every time throwable is
+ * logged with high priority and {@link #dumpOnUncaughtException()} to save them on crash. Logs are dumped as lines
+ * the same as in {@link FileLogAction}.</p>
+ */
+public class FlightRecorderLogAction implements LogAction {
+    // length, time, priority, tag length
+    private static final int HEADER_BYTES = 4 + 8 + 1 + 2;
+    private static final int MAX_TAG_CHARS = 128;
+
+    private final ByteBuffer ring;
+    private final ByteBuffer record;
+    private final int capacity;
+    private final File dumpFile;
+    private final int dumpPriority;
+    private final AtomicLong failedDumps = new AtomicLong();
+
+    // positions are counted from start of recording, ring index is position modulo capacity
+    private long head;
+    private long tail;
+
+    private FlightRecorderLogAction(Builder builder) {
+        this.capacity = builder.capacity;
+        this.ring = ByteBuffer.allocateDirect(capacity);
+        this.record = ByteBuffer.allocateDirect(Math.min(builder.maxRecordBytes, capacity));
+        this.dumpFile = builder.dumpFile;
+        this.dumpPriority = builder.dumpPriority;
+    }
+
+    @Override public void action(int priority, String tag, String message, Throwable t) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            encode(now, priority, tag == null ? "" : tag, message == null ? "" : message);
+            append();
+        }
+        if (t != null && dumpFile != null && priority >= dumpPriority) {
+            dumpToFile();
+        }
+    }
+
+    private void encode(long now, int priority, String tag, String message) {
+        record.clear();
+        record.position(HEADER_BYTES);
+        Utf8.encode(tag.length() > MAX_TAG_CHARS ? tag.substring(0, MAX_TAG_CHARS) : tag, 0, record);
+        int tagBytes = record.position() - HEADER_BYTES;
+        // message that does not fit is cut
+        Utf8.encode(message, 0, record);
+        record.putInt(0, record.position());
+        record.putLong(4, now);
+        record.put(12, (byte) priority);
+        record.putShort(13, (short) tagBytes);
+        record.flip();
+    }
+
+    private void append() {
+        int length = record.remaining();
+        while (tail + length - head > capacity) {
+            head += readLength(head);
+        }
+        int index = (int) (tail % capacity);
+        int firstPart = Math.min(length, capacity - index);
+        record.limit(firstPart);
+        ring.position(index);
+        ring.put(record);
+        if (firstPart < length) {
+            record.limit(length);
+            ring.position(0);
+            ring.put(record);
+        }
+        tail += length;
+    }
+
+    private int readLength(long position) {
+        int length = 0;
+        for (int i = 0; i < 4; i++) {
+            length = (length << 8) | (ring.get((int) ((position + i) % capacity)) & 0xFF);
+        }
+        return length;
+    }
+
+    /**
+     * Writes every log kept in memory to stream, the oldest first. Logs stay in memory. Stream is not closed.
+     */
+    public void dump(OutputStream out) throws IOException {
+        byte[] snapshot;
+        synchronized (this) {
+            snapshot = new byte[(int) (tail - head)];
+            int index = (int) (head % capacity);
+            int firstPart = Math.min(snapshot.length, capacity - index);
+            ByteBuffer view = ring.duplicate();
+            view.position(index);
+            view.get(snapshot, 0, firstPart);
+            view.position(0);
+            view.get(snapshot, firstPart, snapshot.length - firstPart);
+        }
+
+        Writer writer = new OutputStreamWriter(out, "UTF-8");
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+        ByteBuffer records = ByteBuffer.wrap(snapshot);
+        while (records.remaining() >= HEADER_BYTES) {
+            int start = records.position();
+            int length = records.getInt();
+            long millis = records.getLong();
+            int priority = records.get();
+            int tagBytes = records.getShort();
+            int messageStart = start + HEADER_BYTES + tagBytes;
+            writer.append(dateFormat.format(new Date(millis)))
+                  .append(' ').append(BufferedFileAction.priorityLetter(priority))
+                  .append('/').append(new String(snapshot, start + HEADER_BYTES, tagBytes, "UTF-8"))
+                  .append(": ").append(new String(snapshot, messageStart, start + length - messageStart, "UTF-8"))
+                  .append('\n');
+            records.position(start + length);
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes every log kept in memory to file set with {@link Builder#dumpTo(File, int)}, replacing its content.
+     *
+     * @return true if logs were saved
+     */
+    public boolean dumpToFile() {
+        if (dumpFile == null) {
+            throw new IllegalStateException("Dump file is not set");
+        }
+        try {
+            File directory = dumpFile.getAbsoluteFile().getParentFile();
+            if (directory != null && !directory.exists() && !directory.mkdirs()) {
+                throw new IOException("Could not create directory " + directory);
+            }
+            OutputStream out = new FileOutputStream(dumpFile);
+            try {
+                dump(out);
+                out.flush();
+            } finally {
+                out.close();
+            }
+            return true;
+        } catch (IOException e) {
+            failedDumps.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * @return number of times saving logs to file has failed
+     */
+    public long failedDumps() {
+        return failedDumps.get();
+    }
+
+    /**
+     * Installs default uncaught exception handler that logs crash, saves logs to file set with {@link
+     * Builder#dumpTo(File, int)} and passes exception on to handler that was there before.
+     */
+    public void dumpOnUncaughtException() {
+        if (dumpFile == null) {
+            throw new IllegalStateException("Dump file is not set");
+        }
+        final Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override public void uncaughtException(Thread thread, Throwable e) {
+                StringWriter trace = new StringWriter();
+                e.printStackTrace(new PrintWriter(trace));
+                synchronized (FlightRecorderLogAction.this) {
+                    encode(System.currentTimeMillis(), Priority.ASSERT, "Pine",
+                           "Uncaught exception in thread " + thread.getName() + "\n" + trace);
+                    append();
+                }
+                dumpToFile();
+                if (previous != null) {
+                    previous.uncaughtException(thread, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Builder for {@link FlightRecorderLogAction}
+     */
+    public static class Builder {
+        private static final int DEFAULT_CAPACITY = 2 * 1024 * 1024;
+        private static final int DEFAULT_MAX_RECORD_BYTES = 16 * 1024;
+
+        private int capacity = DEFAULT_CAPACITY;
+        private int maxRecordBytes = DEFAULT_MAX_RECORD_BYTES;
+        private File dumpFile;
+        private int dumpPriority = Priority.ERROR;
+
+        /**
+         * Memory taken by logs. When it is full, the oldest logs are overwritten. Default is 2 MB.
+         */
+        public Builder setCapacity(int bytes) {
+            if (bytes < 1024) {
+                throw new IllegalArgumentException("Capacity is too small: " + bytes);
+            }
+            this.capacity = bytes;
+            return this;
+        }
+
+        /**
+         * Logs that take more memory than this are cut. Default is 16 KB.
+         */
+        public Builder setMaxRecordSize(int bytes) {
+            if (bytes < HEADER_BYTES + 4 * MAX_TAG_CHARS + 64) {
+                throw new IllegalArgumentException("Record size is too small: " + bytes);
+            }
+            this.maxRecordBytes = bytes;
+            return this;
+        }
+
+        /**
+         * Logs are saved to given file every time throwable is logged with given priority or higher. File is written
+         * on thread that logs, so logs are there even if application dies right after. Not set by default.
+         *
+         * @param priority Lowest priority that saves logs, one of {@link Priority} constants
+         */
+        public Builder dumpTo(File file, int priority) {
+            this.dumpFile = file;
+            this.dumpPriority = priority;
+            return this;
+        }
+
+        /**
+         * Builds {@link FlightRecorderLogAction} object
+         */
+        public FlightRecorderLogAction build() {
+            return new FlightRecorderLogAction(this);
+        }
+    }
+}
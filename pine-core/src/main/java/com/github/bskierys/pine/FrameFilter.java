@@ -0,0 +1,39 @@
+package com.github.bskierys.pine;
+
+import java.util.Collection;
+
+/**
+ * Tells which stack frames belong to logging itself: Pine, Timber and facades wrapped around them. Frames of inner
+ * and anonymous classes of skipped class are skipped as well.
+ */
+class FrameFilter {
+    private final String[] skippedClasses;
+
+    FrameFilter(Collection<String> skippedClasses) {
+        this.skippedClasses = skippedClasses.toArray(new String[skippedClasses.size()]);
+    }
+
+    boolean isSkipped(String className) {
+        for (String skipped : skippedClasses) {
+            if (className.startsWith(skipped)
+                    && (className.length() == skipped.length() || className.charAt(skipped.length()) == '$')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return first frame that is not skipped, looking no deeper than given number of frames, or null if there is
+     * none
+     */
+    StackTraceElement firstNotSkipped(StackTraceElement[] stackTrace, int maxDepth) {
+        int depth = Math.min(stackTrace.length, maxDepth);
+        for (int i = 0; i < depth; i++) {
+            if (!isSkipped(stackTrace[i].getClassName())) {
+                return stackTrace[i];
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,125 @@
+package com.github.bskierys.pine;
+
+/**
+ * <p>Runs {@link LogAction} on its own thread with its own bounded buffer, apart from other actions and from the
+ * thread that logs. Action that stalls fills only its own buffer and its own {@link OverflowPolicy} decides what
+ * happens then. Exception thrown by action is counted in {@link #stats()} and does not reach other actions. With
+ * several actions isolated, time of log spent in actions is the time of the slowest of them, not the sum.</p> <p>Add
+ * it to {@link LogPipeline.BaseBuilder#addLogAction(LogAction)} instead of action it wraps. It gets everything that
+ * action would: {@link LogInfo}, fields and rendered trace. Use {@link Builder} to create it.</p>
+ */
+public final class IsolatedLogAction implements LogEventAction {
+    private final LogAction action;
+    private final LogRingBuffer buffer;
+
+    private IsolatedLogAction(Builder builder) {
+        this.action = builder.action;
+        final LogEventAction eventAction = LogActionAdapter.adapt(action);
+        this.buffer = new LogRingBuffer(builder.dispatch, new LogRingBuffer.Handler() {
+            @Override public void handle(PipelineConfig config, LogEvent event) {
+                eventAction.action(event);
+            }
+        }, builder.threadName);
+    }
+
+    /**
+     * Used when log does not come through {@link LogPipeline}. Queues formatted message for action.
+     */
+    @Override public void action(int priority, String tag, String message, Throwable t) {
+        LogEvent event = LogEvent.acquire();
+        try {
+            buffer.publish(null, event.set(priority, tag, null, null, null, message, null, t));
+        } finally {
+            LogEvent.release(event);
+        }
+    }
+
+    /**
+     * Only queues copy of event, action gets it on its own thread.
+     */
+    @Override public void action(LogEvent event) {
+        buffer.publish(null, event);
+    }
+
+    /**
+     * @return action that runs on its own thread
+     */
+    public LogAction action() {
+        return action;
+    }
+
+    /**
+     * @return counters of buffer of this action: queued, dropped and failed logs
+     */
+    public DispatchStats stats() {
+        return buffer.stats();
+    }
+
+    /**
+     * Waits until action handles every log queued so far.
+     *
+     * @return true if all logs were handled before timeout
+     */
+    public boolean flush(long timeoutMillis) {
+        return buffer.awaitDrained(timeoutMillis);
+    }
+
+    /**
+     * Stops accepting logs, lets action handle what is left in buffer and stops its thread. Logs that come later are
+     * counted as dropped.
+     *
+     * @return true if thread stopped before timeout
+     */
+    public boolean shutdown(long timeoutMillis) {
+        return buffer.shutdown(timeoutMillis);
+    }
+
+    /**
+     * Builder for {@link IsolatedLogAction}
+     */
+    public static class Builder {
+        private final LogAction action;
+        private AsyncDispatch dispatch = new AsyncDispatch.Builder().build();
+        private String threadName;
+
+        /**
+         * @param action Action to run on its own thread
+         */
+        public Builder(LogAction action) {
+            if (action == null) {
+                throw new NullPointerException("Log action cannot be null");
+            }
+            this.action = action;
+            String name = action.getClass().getSimpleName();
+            this.threadName = "Pine-" + (name.isEmpty() ? "action" : name);
+        }
+
+        /**
+         * Size of buffer, waiting and what happens when buffer is full. Default is {@link AsyncDispatch} with
+         * default settings: 1024 logs, logging thread waits when buffer is full.
+         */
+        public Builder setAsyncDispatch(AsyncDispatch dispatch) {
+            if (dispatch == null) {
+                throw new NullPointerException("Async dispatch cannot be null");
+            }
+            this.dispatch = dispatch;
+            return this;
+        }
+
+        /**
+         * Name of thread that runs action. Default is "Pine-" followed by simple name of action class, or "Pine-action"
+         * for anonymous class.
+         */
+        public Builder setThreadName(String threadName) {
+            this.threadName = threadName;
+            return this;
+        }
+
+        /**
+         * Builds {@link IsolatedLogAction} object and starts its thread
+         */
+        public IsolatedLogAction build() {
+            return new IsolatedLogAction(this);
+        }
+    }
+}
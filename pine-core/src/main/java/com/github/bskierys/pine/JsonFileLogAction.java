@@ -0,0 +1,265 @@
+package com.github.bskierys.pine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * <p>{@link LogAction} that saves logs to file as JSON lines, one object per log: {"time":{epoch millis},
+ * "priority":"{letter}","tag":..., "package":..., "class":..., "method":..., "line":..., "message":...}. Logs made with
+ * {@link StructuredMessage} have "template" and "fields" object instead of "message", so message is never rendered to
+ * text for this action. Stack trace of throwable goes to "throwable"; with {@link ThrowableRenderer} set in {@link
+ * LogPipeline} it is written the way renderer made it.</p> <p>Buffering and rotation work the same as in {@link
+ * FileLogAction}. Use {@link Builder} to create it.</p>
+ */
+public class JsonFileLogAction extends BufferedFileAction
+        implements StructuredLogAction, TraceLogAction, LogEventAction {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final char[] digits = new char[20];
+
+    private JsonFileLogAction(Builder builder) {
+        super(builder, "jsonl");
+    }
+
+    /**
+     * Time of log is taken from event, so logs handled on other thread keep time they were made at.
+     */
+    @Override public synchronized void action(LogEvent event) {
+        if (event.fields() != null && event.logInfo() != null) {
+            writeFields(event.timeMillis(), event.priority(), event.tag(), event.logInfo(), event.fields(),
+                        event.trace(), event.throwable());
+        } else if (event.logInfo() != null) {
+            write(event.timeMillis(), event.priority(), event.tag(), event.logInfo(), event.message(), event.trace(),
+                  event.throwable());
+        } else {
+            write(event.timeMillis(), event.priority(), event.tag(), null, event.formattedMessage(), null,
+                  event.throwable());
+        }
+    }
+
+    @Override public synchronized void action(int priority, String tag, LogInfo logInfo, StructuredMessage message,
+                                              Throwable t) {
+        writeFields(System.currentTimeMillis(), priority, tag, logInfo, message, null, t);
+    }
+
+    private void writeFields(long now, int priority, String tag, LogInfo logInfo, StructuredMessage message,
+                             String trace, Throwable t) {
+        try {
+            putHeader(now, priority, tag, logInfo);
+            putKey("template");
+            putString(message.template());
+            putKey("fields");
+            put('{');
+            for (int i = 0; i < message.size(); i++) {
+                if (i > 0) {
+                    put(',');
+                }
+                putString(message.key(i));
+                put(':');
+                putValue(message, i);
+            }
+            put('}');
+            endLog(now, priority, trace, t);
+        } catch (IOException e) {
+            writeFailed();
+        }
+    }
+
+    @Override public synchronized void action(int priority, String tag, LogInfo logInfo, String message,
+                                              Throwable t) {
+        write(System.currentTimeMillis(), priority, tag, logInfo, message, null, t);
+    }
+
+    @Override public synchronized void action(int priority, String tag, LogInfo logInfo, String message,
+                                              String trace, Throwable t) {
+        write(System.currentTimeMillis(), priority, tag, logInfo, message, trace, t);
+    }
+
+    /**
+     * Used when log does not come through {@link LogPipeline}. Message is saved as it is, with no call site.
+     */
+    @Override public synchronized void action(int priority, String tag, String message, Throwable t) {
+        write(System.currentTimeMillis(), priority, tag, null, message, null, t);
+    }
+
+    private void write(long now, int priority, String tag, LogInfo logInfo, String message, String trace,
+                       Throwable t) {
+        try {
+            putHeader(now, priority, tag, logInfo);
+            putKey("message");
+            putString(message == null ? "" : message);
+            endLog(now, priority, trace, t);
+        } catch (IOException e) {
+            writeFailed();
+        }
+    }
+
+    private void putHeader(long now, int priority, String tag, LogInfo logInfo) throws IOException {
+        put("{\"time\":");
+        putLong(now);
+        putKey("priority");
+        put('"');
+        put(priorityLetter(priority));
+        put('"');
+        putKey("tag");
+        putString(tag == null ? "" : tag);
+        if (logInfo != null) {
+            putKey("package");
+            putString(logInfo.packageName());
+            putKey("class");
+            putString(logInfo.className());
+            putKey("method");
+            putString(logInfo.methodName());
+            putKey("line");
+            putLong(logInfo.lineNumber());
+        }
+    }
+
+    /**
+     * @param trace Trace rendered by {@link ThrowableRenderer} or null to print stack trace of throwable here
+     */
+    private void endLog(long now, int priority, String trace, Throwable t) throws IOException {
+        if (trace != null) {
+            putKey("throwable");
+            putString(trace);
+        } else if (t != null) {
+            StringWriter writer = new StringWriter();
+            t.printStackTrace(new PrintWriter(writer));
+            putKey("throwable");
+            putString(writer.toString());
+        }
+        put('}');
+        put('\n');
+
+        // lines still in buffer go to new segment
+        if (file.shouldRotate(now, buffer.position())) {
+            rotate(now);
+        }
+        endRecord(priority, now);
+    }
+
+    private void putKey(String key) throws IOException {
+        put(',');
+        putString(key);
+        put(':');
+    }
+
+    private void putValue(StructuredMessage message, int index) throws IOException {
+        switch (message.type(index)) {
+            case LONG:
+                putLong(message.longValue(index));
+                break;
+            case DOUBLE:
+                double value = message.doubleValue(index);
+                if (Double.isNaN(value) || Double.isInfinite(value)) {
+                    // not valid JSON number
+                    putString(Double.toString(value));
+                } else {
+                    put(Double.toString(value));
+                }
+                break;
+            case BOOLEAN:
+                put(message.booleanValue(index) ? "true" : "false");
+                break;
+            default:
+                Object object = message.value(index);
+                if (object == null) {
+                    put("null");
+                } else if (object instanceof Boolean
+                        || object instanceof Long || object instanceof Integer
+                        || object instanceof Short || object instanceof Byte) {
+                    put(object.toString());
+                } else {
+                    putString(object.toString());
+                }
+                break;
+        }
+    }
+
+    /**
+     * Writes number without creating string for it.
+     */
+    private void putLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            put(Long.toString(value));
+            return;
+        }
+        ensureRemaining(digits.length);
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int start = digits.length;
+        do {
+            digits[--start] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        for (int i = start; i < digits.length; i++) {
+            buffer.put((byte) digits[i]);
+        }
+    }
+
+    /**
+     * Writes text in quotes. Characters that JSON does not allow in strings are escaped, runs of other characters are
+     * encoded straight into buffer.
+     */
+    private void putString(CharSequence text) throws IOException {
+        put('"');
+        int length = text.length();
+        int copied = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            put(text, copied, i);
+            copied = i + 1;
+            put('\\');
+            switch (c) {
+                case '"':
+                case '\\':
+                    put(c);
+                    break;
+                case '\n':
+                    put('n');
+                    break;
+                case '\r':
+                    put('r');
+                    break;
+                case '\t':
+                    put('t');
+                    break;
+                default:
+                    put('u');
+                    put('0');
+                    put('0');
+                    put(HEX_DIGITS[c >> 4]);
+                    put(HEX_DIGITS[c & 0xF]);
+                    break;
+            }
+        }
+        put(text, copied, length);
+        put('"');
+    }
+
+    /**
+     * Builder for {@link JsonFileLogAction}. See {@link BufferedFileAction.BaseBuilder} for all settings.
+     */
+    public static class Builder extends BufferedFileAction.BaseBuilder<Builder> {
+        /**
+         * @param directory Directory to keep log files in. It is created if it does not exist.
+         */
+        public Builder(File directory) {
+            super(directory);
+        }
+
+        /**
+         * Builds {@link JsonFileLogAction} object
+         */
+        public JsonFileLogAction build() {
+            return new JsonFileLogAction(this);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.bskierys.pine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram of times. Bucket n counts times from 2^(n-1) to 2^n - 1 nanoseconds, so recording costs few
+ * atomic increments and no allocation.
+ */
+class LatencyHistogram {
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(nanos));
+        count.incrementAndGet();
+        total.addAndGet(nanos);
+
+        long currentMax = max.get();
+        while (nanos > currentMax && !max.compareAndSet(currentMax, nanos)) {
+            currentMax = max.get();
+        }
+    }
+
+    StageStats snapshot(String name) {
+        long[] counts = new long[BUCKETS];
+        long recorded = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            recorded += counts[i];
+        }
+        long maxNanos = max.get();
+        return new AutoValue_StageStats(name, count.get(), total.get(), maxNanos,
+                                        percentile(counts, recorded, 0.5, maxNanos),
+                                        percentile(counts, recorded, 0.99, maxNanos));
+    }
+
+    private static long percentile(long[] counts, long recorded, double percentile, long maxNanos) {
+        long rank = (long) Math.ceil(recorded * percentile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                long upperBound = i == 0 ? 0 : (1L << i) - 1;
+                return Math.min(upperBound, maxNanos);
+            }
+        }
+        return 0;
+    }
+}
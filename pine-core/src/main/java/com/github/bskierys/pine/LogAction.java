@@ -5,7 +5,7 @@ package com.github.bskierys.pine;
  */
 public interface LogAction {
     /**
-     * Invoked the same way as {@link Pine#log} is.
+     * Invoked the same way as {@link LogPipeline#log} is.
      */
     void action(int priority, String tag, String message, Throwable t);
 }
@@ -0,0 +1,47 @@
+package com.github.bskierys.pine;
+
+/**
+ * Passes {@link LogEvent}s to action that does not take them: {@link StructuredLogAction} gets fields, {@link
+ * TraceLogAction} gets rendered trace, {@link CallSiteLogAction} gets call site and plain {@link LogAction} gets
+ * formatted message. Kind of action is checked once, when adapter is created, not for every log.
+ */
+final class LogActionAdapter implements LogEventAction {
+    private final LogAction action;
+    private final StructuredLogAction structuredAction;
+    private final TraceLogAction traceAction;
+    private final CallSiteLogAction callSiteAction;
+
+    private LogActionAdapter(LogAction action) {
+        this.action = action;
+        this.structuredAction = action instanceof StructuredLogAction ? (StructuredLogAction) action : null;
+        this.traceAction = action instanceof TraceLogAction ? (TraceLogAction) action : null;
+        this.callSiteAction = action instanceof CallSiteLogAction ? (CallSiteLogAction) action : null;
+    }
+
+    /**
+     * @return action itself if it takes events already, adapter otherwise
+     */
+    static LogEventAction adapt(LogAction action) {
+        return action instanceof LogEventAction ? (LogEventAction) action : new LogActionAdapter(action);
+    }
+
+    @Override public void action(LogEvent event) {
+        if (event.logInfo() == null || callSiteAction == null) {
+            // log did not come through pipeline or action wants it formatted
+            action.action(event.priority(), event.tag(), event.formattedMessage(), event.throwable());
+        } else if (event.fields() != null && structuredAction != null) {
+            structuredAction.action(event.priority(), event.tag(), event.logInfo(), event.fields(),
+                                    event.throwable());
+        } else if (event.trace() != null && traceAction != null) {
+            traceAction.action(event.priority(), event.tag(), event.logInfo(), event.message(), event.trace(),
+                               event.throwable());
+        } else {
+            callSiteAction.action(event.priority(), event.tag(), event.logInfo(),
+                                  LogPipeline.withTrace(event.message(), event.trace()), event.throwable());
+        }
+    }
+
+    @Override public void action(int priority, String tag, String message, Throwable t) {
+        action.action(priority, tag, message, t);
+    }
+}
@@ -0,0 +1,155 @@
+package com.github.bskierys.pine;
+
+import javax.annotation.Nullable;
+
+/**
+ * <p>Single log as {@link LogEventAction} gets it: priority, tag, call site, message, throwable, time and thread that
+ * logged it. Events are reused - every logging thread keeps its own one and asynchronous dispatch keeps one in every
+ * slot of its buffer - so passing log to actions creates no garbage.</p> <p>Event is valid only while {@link
+ * LogEventAction#action(LogEvent)} runs. Do not keep it or hand it to other thread, copy what you need instead.</p>
+ */
+public final class LogEvent {
+    private static final ThreadLocal<LogEvent> EVENTS = new ThreadLocal<>();
+
+    private int priority;
+    private String tag;
+    private LogInfo logInfo;
+    private String message;
+    private StructuredMessage fields;
+    private String formattedMessage;
+    private String trace;
+    private Throwable throwable;
+    private long timeMillis;
+    private Thread thread;
+
+    LogEvent() {}
+
+    /**
+     * Takes event of current thread. It has to be given back with {@link #release(LogEvent)}. If it is taken again
+     * before that (action that logs for example) new event is created, so nested log never overwrites outer one.
+     */
+    static LogEvent acquire() {
+        LogEvent event = EVENTS.get();
+        if (event == null) {
+            return new LogEvent();
+        }
+        EVENTS.set(null);
+        return event;
+    }
+
+    static void release(LogEvent event) {
+        event.clear();
+        EVENTS.set(event);
+    }
+
+    LogEvent set(int priority, String tag, LogInfo logInfo, String message, StructuredMessage fields,
+                 String formattedMessage, String trace, Throwable t) {
+        this.priority = priority;
+        this.tag = tag;
+        this.logInfo = logInfo;
+        this.message = message;
+        this.fields = fields;
+        this.formattedMessage = formattedMessage;
+        this.trace = trace;
+        this.throwable = t;
+        this.timeMillis = System.currentTimeMillis();
+        this.thread = Thread.currentThread();
+        return this;
+    }
+
+    void copyFrom(LogEvent other) {
+        this.priority = other.priority;
+        this.tag = other.tag;
+        this.logInfo = other.logInfo;
+        this.message = other.message;
+        this.fields = other.fields;
+        this.formattedMessage = other.formattedMessage;
+        this.trace = other.trace;
+        this.throwable = other.throwable;
+        this.timeMillis = other.timeMillis;
+        this.thread = other.thread;
+    }
+
+    /**
+     * Drops references, so event kept for reuse does not hold memory of last log.
+     */
+    void clear() {
+        this.tag = null;
+        this.logInfo = null;
+        this.message = null;
+        this.fields = null;
+        this.formattedMessage = null;
+        this.trace = null;
+        this.throwable = null;
+        this.thread = null;
+    }
+
+    public int priority() {
+        return priority;
+    }
+
+    /**
+     * @return tag given with log or created by {@link TagFormatter}
+     */
+    public String tag() {
+        return tag;
+    }
+
+    /**
+     * @return call site of log or null if log did not come through {@link LogPipeline}
+     */
+    @Nullable public LogInfo logInfo() {
+        return logInfo;
+    }
+
+    /**
+     * @return message as it was logged, without stack trace. Message logged with {@link StructuredMessage} is rendered
+     * on first call, on thread that runs action.
+     */
+    public String message() {
+        if (message == null && fields != null) {
+            message = fields.render();
+        }
+        return message;
+    }
+
+    /**
+     * @return fields of message or null if it was logged as text
+     */
+    @Nullable public StructuredMessage fields() {
+        return fields;
+    }
+
+    /**
+     * @return message formatted by {@link MessageFormatter}, or null if no action in pipeline needs it - it is
+     * formatted only for plain {@link LogAction}s
+     */
+    @Nullable public String formattedMessage() {
+        return formattedMessage;
+    }
+
+    /**
+     * @return stack trace rendered by {@link ThrowableRenderer} or null if there is no throwable or renderer is not set
+     */
+    @Nullable public String trace() {
+        return trace;
+    }
+
+    @Nullable public Throwable throwable() {
+        return throwable;
+    }
+
+    /**
+     * @return time of log in milliseconds since epoch, taken on thread that logged
+     */
+    public long timeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * @return thread that logged
+     */
+    public Thread thread() {
+        return thread;
+    }
+}
@@ -0,0 +1,14 @@
+package com.github.bskierys.pine;
+
+/**
+ * {@link LogAction} that gets whole log as single {@link LogEvent}. Event is reused for next logs, so action that
+ * handles it right away, without keeping it, makes passing logs to it free of garbage. Other action interfaces keep
+ * working - {@link LogPipeline} adapts them to events.
+ */
+public interface LogEventAction extends LogAction {
+    /**
+     * Invoked instead of every other action method when log goes through {@link LogPipeline}. Event must not be used
+     * once this method returns.
+     */
+    void action(LogEvent event);
+}
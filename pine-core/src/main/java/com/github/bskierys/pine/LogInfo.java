@@ -7,6 +7,8 @@ package com.github.bskierys.pine;
 
 import com.google.auto.value.AutoValue;
 
+import javax.annotation.Nullable;
+
 /**
  * <p>Wrapper for information about where message was logged from. Available info:</p> <ul> <li>package name</li>
  * <li>class name</li> <li>method name</li> <li>line number</li> </ul>
@@ -17,4 +19,9 @@ public abstract class LogInfo {
     public abstract String className();
     public abstract String methodName();
     public abstract int lineNumber();
+    /**
+     * Phrase that {@link #packageName()} starts with if package was replaced using {@link
+     * LogPipeline.BaseBuilder#addPackageReplacePattern(String, String)} or null if no package was replaced.
+     */
+    @Nullable public abstract String packageReplacement();
 }
\ No newline at end of file
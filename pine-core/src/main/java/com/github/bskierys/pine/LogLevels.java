@@ -0,0 +1,62 @@
+package com.github.bskierys.pine;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Lowest priorities that are logged: globally, for tags and for packages. Tag setting wins over package setting and
+ * package setting wins over global one. Packages are matched the same way replace patterns are - the longest
+ * registered package wins.
+ */
+class LogLevels {
+    private final int minPriority;
+    private final HashMap<String, Integer> tagPriorities;
+    private final PackageTrie<Integer> packagePriorities = new PackageTrie<>();
+    private final int lowestPriority;
+    private final int highestPriority;
+
+    LogLevels(int minPriority, Map<String, Integer> tagPriorities, Map<String, Integer> packagePriorities) {
+        this.minPriority = minPriority;
+        this.tagPriorities = new HashMap<>(tagPriorities);
+
+        int lowest = minPriority;
+        int highest = minPriority;
+        for (Integer priority : tagPriorities.values()) {
+            lowest = Math.min(lowest, priority);
+            highest = Math.max(highest, priority);
+        }
+        for (Map.Entry<String, Integer> entry : packagePriorities.entrySet()) {
+            this.packagePriorities.put(entry.getKey(), entry.getValue());
+            lowest = Math.min(lowest, entry.getValue());
+            highest = Math.max(highest, entry.getValue());
+        }
+        this.lowestPriority = lowest;
+        this.highestPriority = highest;
+    }
+
+    int minPriority() {
+        return minPriority;
+    }
+
+    /**
+     * @return lowest priority logged with given tag or null if tag has no setting
+     */
+    Integer tagMinPriority(String tag) {
+        return tagPriorities.isEmpty() ? null : tagPriorities.get(tag);
+    }
+
+    /**
+     * @return lowest priority logged from given class
+     */
+    int packageMinPriority(String className) {
+        PackageTrie.Entry<Integer> entry = packagePriorities.findLongestPrefix(className);
+        return entry == null ? minPriority : entry.value();
+    }
+
+    /**
+     * @return false if log with given priority is logged or dropped no matter where it was called from
+     */
+    boolean dependsOnCaller(int priority) {
+        return priority >= lowestPriority && priority < highestPriority;
+    }
+}
@@ -0,0 +1,164 @@
+package com.github.bskierys.pine;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Changes priorities of running {@link LogPipeline} when properties file changes, so logging can be turned up or
+ * down without restarting application. File is polled on background thread:</p>
+ * <pre>
+ * priority=INFO
+ * priority.tag.Network=VERBOSE
+ * priority.package.com.example.db=WARN
+ * </pre>
+ * <p>Priorities are names of {@link Priority} constants, their first letters or numbers. Settings from file are put
+ * on top of priorities pipeline had when watcher was created. Removing a line (or whole file) brings back what was
+ * there before. File that cannot be read or parsed is skipped and settings stay as they are.</p>
+ */
+public class LogLevelsWatcher implements Closeable {
+    private static final String PRIORITY_KEY = "priority";
+    private static final String TAG_PREFIX = "priority.tag.";
+    private static final String PACKAGE_PREFIX = "priority.package.";
+    private static final String[] PRIORITY_NAMES = {"VERBOSE", "DEBUG", "INFO", "WARN", "ERROR", "ASSERT"};
+
+    private final LogPipeline pipeline;
+    private final File file;
+    private final int baseMinPriority;
+    private final Map<String, Integer> baseTagMinPriorities;
+    private final Map<String, Integer> basePackageMinPriorities;
+    private final AtomicLong failedReads = new AtomicLong();
+
+    private ScheduledExecutorService scheduler;
+    private long lastModified = -1;
+    private long lastLength = -1;
+
+    /**
+     * Creates watcher that does nothing until {@link #start(long, TimeUnit)} or {@link #check()} is called.
+     */
+    public LogLevelsWatcher(LogPipeline pipeline, File file) {
+        this.pipeline = pipeline;
+        this.file = file;
+        PipelineConfig config = pipeline.config();
+        this.baseMinPriority = config.minPriority;
+        this.baseTagMinPriorities = new HashMap<>(config.tagMinPriorities);
+        this.basePackageMinPriorities = new LinkedHashMap<>(config.packageMinPriorities);
+    }
+
+    /**
+     * Checks file right away and then every given interval on background thread.
+     */
+    public synchronized void start(long interval, TimeUnit unit) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Watcher is already started");
+        }
+        scheduler = LogPipeline.newDaemonScheduler("Pine-levels");
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override public void run() {
+                check();
+            }
+        }, 0, interval, unit);
+    }
+
+    /**
+     * Stops polling file. Priorities stay as they were last set.
+     */
+    @Override public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Reads file if it has changed since last check and applies priorities from it.
+     *
+     * @return true if priorities were changed
+     */
+    public synchronized boolean check() {
+        long modified = file.lastModified();
+        long length = file.length();
+        if (modified == lastModified && length == lastLength) {
+            return false;
+        }
+
+        Properties properties = new Properties();
+        try {
+            if (modified != 0) {
+                load(properties);
+            }
+            apply(properties);
+        } catch (IOException | IllegalArgumentException e) {
+            failedReads.incrementAndGet();
+            return false;
+        }
+        lastModified = modified;
+        lastLength = length;
+        return true;
+    }
+
+    /**
+     * @return number of times file could not be read or parsed
+     */
+    public long failedReads() {
+        return failedReads.get();
+    }
+
+    private void load(Properties properties) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private void apply(Properties properties) {
+        int minPriority = baseMinPriority;
+        HashMap<String, Integer> tagMinPriorities = new HashMap<>(baseTagMinPriorities);
+        LinkedHashMap<String, Integer> packageMinPriorities = new LinkedHashMap<>(basePackageMinPriorities);
+        for (String key : properties.stringPropertyNames()) {
+            int priority = parsePriority(properties.getProperty(key));
+            if (key.equals(PRIORITY_KEY)) {
+                minPriority = priority;
+            } else if (key.startsWith(TAG_PREFIX)) {
+                tagMinPriorities.put(key.substring(TAG_PREFIX.length()), priority);
+            } else if (key.startsWith(PACKAGE_PREFIX)) {
+                packageMinPriorities.put(key.substring(PACKAGE_PREFIX.length()), priority);
+            }
+        }
+
+        // someone else could change settings meanwhile, their changes are kept
+        while (true) {
+            ConfigEditor editor = pipeline.edit();
+            editor.setPriorities(minPriority, tagMinPriorities, packageMinPriorities);
+            if (editor.apply()) {
+                return;
+            }
+        }
+    }
+
+    static int parsePriority(String value) {
+        String name = value.trim().toUpperCase(Locale.US);
+        for (int i = 0; i < PRIORITY_NAMES.length; i++) {
+            if (PRIORITY_NAMES[i].equals(name) || PRIORITY_NAMES[i].substring(0, 1).equals(name)) {
+                return Priority.VERBOSE + i;
+            }
+        }
+        try {
+            return Integer.parseInt(name);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unknown priority: " + value);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.github.bskierys.pine;
+
+/**
+ * Backend {@link LogPipeline} prints formatted logs to: logcat on Android, console or logging framework of your service
+ * on plain JVM.
+ */
+public interface LogOutput {
+    /**
+     * Invoked on thread that logs, after log actions were dispatched.
+     *
+     * @param message Formatted message
+     * @param t Throwable passed with log or null
+     */
+    void print(int priority, String tag, String message, Throwable t);
+}
@@ -0,0 +1,963 @@
+package com.github.bskierys.pine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nonnull;
+
+/**
+ * <p>Everything Pine does with a log that does not depend on Android: finds where log was called from, filters it by
+ * priority, formats tag and message, runs {@link LogAction}s and prints result to {@link LogOutput}.</p> <p>On
+ * Android use {@link LogPipeline} through Pine tree. On plain JVM create it with {@link Builder}, wrap it with your
+ * own logging facade (do not forget {@link BaseBuilder#addFacadeClass(String)}) and call {@link #isLoggable(String,
+ * int)} before {@link #log(int, String, String, Throwable)}.</p>
+ */
+public class LogPipeline {
+    private static final int DEFAULT_CALL_SITE_CACHE_SIZE = 512;
+    private static final int DEFAULT_MAX_CALLER_DEPTH = 64;
+    private static final Pattern ANONYMOUS_CLASS = Pattern.compile("(\\$\\d+)+$");
+
+    private final AtomicReference<PipelineConfig> config;
+    private final LogRingBuffer actionBuffer;
+    private final long coalesceTimeoutNanos;
+    private final Set<CallSite> pendingRepeats = Collections.newSetFromMap(new ConcurrentHashMap<CallSite, Boolean>());
+    private final ConcurrentHashMap<StackTraceElement, RepeatTracker> repeatTrackers = new ConcurrentHashMap<>();
+    // kept apart from call site cache, so limits survive its eviction and changes of settings
+    private final ConcurrentHashMap<StackTraceElement, TokenBucket> rateLimiters = new ConcurrentHashMap<>();
+    private final ThreadLocal<StackTraceElement> loggableCaller = new ThreadLocal<>();
+    private final CallerLocator callerLocator;
+    private final CallerLocator fallbackCallerLocator;
+    private final LogOutput output;
+    private final PipelineMetrics metrics;
+    private final ScheduledExecutorService repeatsScheduler;
+    private final ScheduledExecutorService metricsScheduler;
+
+    private LogPipeline(BaseBuilder<?> builder, LogOutput output) {
+        this.metrics = builder.metricsEnabled ? new PipelineMetrics() : null;
+        this.config = new AtomicReference<>(new PipelineConfig(
+                builder.messageFormatter, builder.tagFormatter, builder.packageReplacePatterns,
+                builder.usePackagePlaceholders, builder.logActions, builder.minPriority, builder.tagMinPriorities,
+                builder.packageMinPriorities, builder.rateLimit, builder.packageRateLimits, builder.throwableRenderer,
+                new CallSiteCache(builder.callSiteCacheSize), metrics));
+        this.coalesceTimeoutNanos = builder.coalesceTimeoutNanos;
+        this.repeatsScheduler = coalesceTimeoutNanos > 0 ? scheduleRepeatsSweep(coalesceTimeoutNanos) : null;
+        this.callerLocator = builder.callerLocator;
+        this.fallbackCallerLocator = new ThrowableCallerLocator(builder.frameFilter, Integer.MAX_VALUE);
+        this.output = output;
+        this.metricsScheduler = builder.metricsListener == null ? null
+                : scheduleMetricsDump(builder.metricsListener, builder.metricsIntervalMillis);
+        this.actionBuffer = builder.asyncDispatch == null ? null : new LogRingBuffer(builder.asyncDispatch,
+                new LogRingBuffer.Handler() {
+                    @Override public void handle(PipelineConfig config, LogEvent event) {
+                        runLogActions(config, event);
+                    }
+                }, "Pine-actions");
+    }
+
+    /**
+     * Starts change of settings while pipeline runs. See {@link ConfigEditor}.
+     *
+     * @return editor with copy of current settings
+     */
+    public ConfigEditor edit() {
+        return new ConfigEditor(this, config.get());
+    }
+
+    boolean replaceConfig(PipelineConfig expected, PipelineConfig next) {
+        return config.compareAndSet(expected, next);
+    }
+
+    PipelineConfig config() {
+        return config.get();
+    }
+
+    PipelineMetrics metricsCollector() {
+        return metrics;
+    }
+
+    /**
+     * @return statistics of cache that keeps resolved info about places log was called from. Cache is emptied every
+     * time settings change, counters are not.
+     */
+    public CacheStats callSiteCacheStats() {
+        return config.get().callSiteCache.stats();
+    }
+
+    /**
+     * @return counters of asynchronous dispatch or null if log actions are run synchronously
+     */
+    public DispatchStats dispatchStats() {
+        return actionBuffer == null ? null : actionBuffer.stats();
+    }
+
+    /**
+     * @return counts and timings of logs or null if metrics are not turned on with {@link BaseBuilder#enableMetrics()}
+     */
+    public MetricsSnapshot metrics() {
+        if (metrics == null) {
+            return null;
+        }
+        PipelineConfig current = config.get();
+        return metrics.snapshot(current.logActions, current.actionHistograms);
+    }
+
+    private ScheduledExecutorService scheduleMetricsDump(final MetricsListener listener, long intervalMillis) {
+        ScheduledExecutorService scheduler = newDaemonScheduler("Pine-metrics");
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override public void run() {
+                listener.onMetrics(metrics());
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        return scheduler;
+    }
+
+    private ScheduledExecutorService scheduleRepeatsSweep(final long timeoutNanos) {
+        ScheduledExecutorService scheduler = newDaemonScheduler("Pine-repeats");
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override public void run() {
+                sweepRepeats(timeoutNanos);
+            }
+        }, timeoutNanos, timeoutNanos, TimeUnit.NANOSECONDS);
+        return scheduler;
+    }
+
+    static ScheduledExecutorService newDaemonScheduler(final String name) {
+        return Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Waits until log actions handle every log that was dispatched asynchronously so far, including logs queued for
+     * {@link IsolatedLogAction}s. Returns immediately if log actions are run synchronously.
+     *
+     * @return true if all logs were handled before timeout
+     */
+    public boolean flushLogActions(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        if (actionBuffer != null && !actionBuffer.awaitDrained(timeoutMillis)) {
+            return false;
+        }
+        for (LogAction action : config.get().logActions) {
+            if (action instanceof IsolatedLogAction
+                    && !((IsolatedLogAction) action).flush(Math.max(0, deadline - System.currentTimeMillis()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stops threads started by pipeline: sweep of repeated logs, metrics reports and asynchronous dispatch, which
+     * handles logs left in its buffer first. Repeats held back so far are reported before dispatch stops. Log actions
+     * are not stopped, shut down {@link IsolatedLogAction}s on your own. Logs that come later are still printed, but
+     * log actions do not get them if dispatch is asynchronous, they are counted as dropped instead.
+     *
+     * @return true if all threads stopped before timeout
+     */
+    public boolean shutdown(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        boolean stopped = stopScheduler(metricsScheduler, timeoutMillis);
+        if (repeatsScheduler != null) {
+            stopped &= stopScheduler(repeatsScheduler, Math.max(0, deadline - System.currentTimeMillis()));
+            sweepRepeats(0);
+        }
+        if (actionBuffer != null) {
+            stopped &= actionBuffer.shutdown(Math.max(1, deadline - System.currentTimeMillis()));
+        }
+        return stopped;
+    }
+
+    private static boolean stopScheduler(ScheduledExecutorService scheduler, long timeoutMillis) {
+        if (scheduler == null) {
+            return true;
+        }
+        scheduler.shutdownNow();
+        try {
+            return scheduler.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Decides whether log is dropped using settings from {@link BaseBuilder#setMinPriority(int)}, {@link
+     * BaseBuilder#setTagMinPriority(String, int)} and {@link BaseBuilder#setPackageMinPriority(String, int)}. Stack
+     * trace is walked only if result depends on where log was called from or if rate limits are set. Logs over rate
+     * limit of their call site are dropped as well. If log passes, caller is remembered for {@link #log(int, String,
+     * String, Throwable)} called next on the same thread. Caller remembered by previous call is forgotten, so log
+     * skipped after this returned true (Timber does it for empty message) never leaks its caller to the next one.
+     *
+     * @param tag Tag given explicitly with log or null if it should be created by {@link TagFormatter}
+     */
+    public boolean isLoggable(String tag, int priority) {
+        loggableCaller.set(null);
+        boolean loggable = checkLoggable(config.get(), tag, priority);
+        if (!loggable && metrics != null) {
+            metrics.countFiltered(priority);
+        }
+        return loggable;
+    }
+
+    private boolean checkLoggable(PipelineConfig config, String tag, int priority) {
+        LogLevels logLevels = config.logLevels;
+        Integer tagMinPriority = tag == null ? null : logLevels.tagMinPriority(tag);
+        if (tagMinPriority != null) {
+            if (priority < tagMinPriority || !config.rateLimits.isEnabled()) {
+                return priority >= tagMinPriority;
+            }
+        } else if (!logLevels.dependsOnCaller(priority)) {
+            if (priority < logLevels.minPriority() || !config.rateLimits.isEnabled()) {
+                return priority >= logLevels.minPriority();
+            }
+        }
+
+        StackTraceElement element = findCaller();
+        CallSite callSite = getCallSite(config, element);
+        if (tagMinPriority == null) {
+            tagMinPriority = tag == null ? logLevels.tagMinPriority(callSite.tag()) : null;
+            if (priority < (tagMinPriority != null ? tagMinPriority : callSite.minPriority())) {
+                return false;
+            }
+        }
+        // checked before anything is formatted, so flood of logs from single line costs only this
+        if (callSite.rateLimiter() != null && !callSite.rateLimiter().tryAcquire(System.nanoTime())) {
+            return false;
+        }
+        // log is called right after this on the same thread, so caller does not have to be found again
+        loggableCaller.set(element);
+        return true;
+    }
+
+    /**
+     * Formats log, runs log actions and prints it to {@link LogOutput}. Does not filter - call {@link
+     * #isLoggable(String, int)} first.
+     *
+     * @param tag Tag given explicitly with log or null if it should be created by {@link TagFormatter}
+     */
+    public void log(int priority, String tag, String message, Throwable t) {
+        log(priority, tag, message, null, t, false);
+    }
+
+    /**
+     * Same as {@link #log(int, String, String, Throwable)} for message that has stack trace of throwable appended
+     * already, the way Timber does it. If {@link ThrowableRenderer} is set, appended trace is replaced with rendered
+     * one.
+     */
+    void logWithAppendedTrace(int priority, String tag, String message, Throwable t) {
+        log(priority, tag, message, null, t, true);
+    }
+
+    /**
+     * Same as {@link #log(int, String, String, Throwable)}, but message is rendered to text only if {@link
+     * MessageFormatter}, output or some of log actions need it. {@link StructuredLogAction}s get fields as they are.
+     * Structured messages are never coalesced with {@link BaseBuilder#coalesceRepeats(long, TimeUnit)}.
+     *
+     * @param tag Tag given explicitly with log or null if it should be created by {@link TagFormatter}
+     */
+    public void log(int priority, String tag, StructuredMessage message, Throwable t) {
+        log(priority, tag, null, message, t, false);
+    }
+
+    private void log(int priority, String tag, String message, StructuredMessage fields, Throwable t,
+                     boolean traceAppended) {
+        // the same settings from start to end of log, even if they change meanwhile
+        PipelineConfig config = this.config.get();
+        if (traceAppended && t != null && config.throwableRenderer != null) {
+            message = stripTrace(message, t);
+        }
+        if (metrics != null) {
+            metrics.countLogged(priority);
+        }
+        StackTraceElement element = loggableCaller.get();
+        if (element != null) {
+            loggableCaller.set(null);
+        } else {
+            element = findCaller();
+        }
+
+        CallSite callSite = getCallSite(config, element);
+        if (tag == null) {
+            tag = callSite.tag();
+        }
+
+        if (callSite.rateLimiter() != null) {
+            long suppressed = callSite.rateLimiter().takeSuppressed();
+            if (suppressed > 0) {
+                String summary = "Suppressed " + suppressed + " logs from this place by rate limit";
+                dispatch(config, priority, tag, callSite, summary, null, null);
+            }
+        }
+
+        RepeatTracker repeatTracker = callSite.repeatTracker();
+        if (repeatTracker != null) {
+            // log with throwable or fields is never a repeat, but it ends run of repeats like any other
+            String repeatable = t == null ? message : null;
+            RepeatTracker.Run run = repeatTracker.track(priority, tag, repeatable, System.nanoTime());
+            if (run == RepeatTracker.HELD_FIRST) {
+                pendingRepeats.add(callSite);
+                return;
+            } else if (run == RepeatTracker.HELD) {
+                return;
+            } else if (run != null) {
+                dispatch(config, run.priority, run.tag, callSite, run.summary(), null, null);
+            }
+        }
+        dispatch(config, priority, tag, callSite, message, fields, t);
+    }
+
+    /**
+     * @return message without stack trace Timber appended to it: "{message}\n{trace}" or "{trace}" if message was empty
+     */
+    static String stripTrace(String message, Throwable t) {
+        String firstLine = t.toString();
+        if (message.startsWith(firstLine + "\n")) {
+            return "";
+        }
+        int index = message.lastIndexOf("\n" + firstLine + "\n");
+        return index == -1 ? message : message.substring(0, index);
+    }
+
+    /**
+     * Reports runs of repeats that last longer than timeout set with {@link BaseBuilder#coalesceRepeats(long,
+     * TimeUnit)}, so repeats of the very last message are not held back forever.
+     */
+    void sweepRepeats(long timeoutNanos) {
+        PipelineConfig config = this.config.get();
+        long now = System.nanoTime();
+        for (CallSite callSite : pendingRepeats) {
+            RepeatTracker repeatTracker = callSite.repeatTracker();
+            RepeatTracker.Run run = repeatTracker.expire(now, timeoutNanos);
+            if (run != null) {
+                dispatch(config, run.priority, run.tag, callSite, run.summary(), null, null);
+            }
+            if (!repeatTracker.hasRepeats()) {
+                pendingRepeats.remove(callSite);
+                // new run could start right before removal
+                if (repeatTracker.hasRepeats()) {
+                    pendingRepeats.add(callSite);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param message Message as it was logged or null if it was logged with fields
+     */
+    private void dispatch(PipelineConfig config, int priority, String tag, CallSite callSite, String message,
+                          StructuredMessage fields, Throwable t) {
+        String formattedMessage = null;
+        String outputMessage = null;
+        String text = null;
+        // rendered once for every action and output, cached between logs
+        String trace = t != null && config.throwableRenderer != null ? config.throwableRenderer.render(t) : null;
+        // chunked output takes prefix and message apart, so message for output is never built
+        boolean chunked = output instanceof ChunkedLogOutput && callSite.outputPrefix() != null;
+        // call site actions format message on their own, so text may not be needed at all
+        if (output != null || config.formatForActions) {
+            long start = startTiming();
+            if (message == null) {
+                message = fields.render();
+            }
+            text = withTrace(message, trace);
+            if (!chunked || config.formatForActions) {
+                StringBuilder buffer = StringBuilders.acquire();
+                try {
+                    formattedMessage = formatMessage(config, callSite, text, fields, buffer);
+                    if (!chunked && output != null) {
+                        outputMessage = formatOutput(config, callSite, text, formattedMessage, buffer);
+                    }
+                } finally {
+                    StringBuilders.release(buffer);
+                }
+            }
+            stopTiming(PipelineStage.MESSAGE_FORMAT, start);
+        }
+
+        LogEvent event = LogEvent.acquire();
+        try {
+            event.set(priority, tag, callSite.logInfo(), message, fields, formattedMessage, trace, t);
+            if (actionBuffer != null) {
+                actionBuffer.publish(config, event);
+            } else {
+                runLogActions(config, event);
+            }
+        } finally {
+            LogEvent.release(event);
+        }
+        if (output != null) {
+            long start = startTiming();
+            if (chunked) {
+                ((ChunkedLogOutput) output).print(priority, tag, callSite.outputPrefix(), text, t);
+            } else {
+                output.print(priority, tag, outputMessage, t);
+            }
+            stopTiming(PipelineStage.OUTPUT, start);
+        }
+    }
+
+    /**
+     * Appends trace the same way Timber does.
+     */
+    static String withTrace(String message, String trace) {
+        if (trace == null) {
+            return message;
+        }
+        return message.length() == 0 ? trace : message + "\n" + trace;
+    }
+
+    private long startTiming() {
+        return metrics == null ? 0 : System.nanoTime();
+    }
+
+    private void stopTiming(PipelineStage stage, long start) {
+        if (metrics != null) {
+            metrics.record(stage, System.nanoTime() - start);
+        }
+    }
+
+    private static String formatMessage(PipelineConfig config, CallSite callSite, String message,
+                                        StructuredMessage fields, StringBuilder buffer) {
+        MessageFormatter messageFormatter = config.messageFormatter;
+        if (callSite.messagePrefix() != null) {
+            buffer.append(callSite.messagePrefix()).append(message);
+        } else if (messageFormatter instanceof AppendingMessageFormatter) {
+            MessageInfo info = new AutoValue_MessageInfo(callSite.logInfo(), message, fields);
+            ((AppendingMessageFormatter) messageFormatter).formatTo(info, buffer);
+        } else {
+            return messageFormatter.format(new AutoValue_MessageInfo(callSite.logInfo(), message, fields));
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Message for output differs from the one for actions only with package placeholders turned on.
+     */
+    private static String formatOutput(PipelineConfig config, CallSite callSite, String message,
+                                       String formattedMessage, StringBuilder buffer) {
+        if (!config.usePackagePlaceholders) {
+            return formattedMessage;
+        }
+        if (callSite.outputPrefix() != null) {
+            buffer.setLength(0);
+            return buffer.append(callSite.outputPrefix()).append(message).toString();
+        }
+        return replacePlaceholders(config, formattedMessage);
+    }
+
+    private StackTraceElement findCaller() {
+        // known at build time for call sites rewritten by Pine Gradle plugin
+        StackTraceElement hint = CallSiteHint.current();
+        if (hint != null) {
+            return hint;
+        }
+        long start = startTiming();
+        StackTraceElement element = callerLocator.locateCaller();
+        if (element == null) {
+            element = fallbackCallerLocator.locateCaller();
+        }
+        stopTiming(PipelineStage.CALLER_LOOKUP, start);
+        if (element == null) {
+            throw new IllegalStateException("Caller not found in stack trace: are you using proguard?");
+        }
+        return element;
+    }
+
+    private void runLogActions(PipelineConfig config, LogEvent event) {
+        LogEventAction[] eventActions = config.eventActions;
+        for (int i = 0; i < eventActions.length; i++) {
+            if (metrics == null) {
+                eventActions[i].action(event);
+            } else {
+                long start = System.nanoTime();
+                try {
+                    eventActions[i].action(event);
+                } finally {
+                    config.actionHistograms[i].record(System.nanoTime() - start);
+                }
+            }
+        }
+    }
+
+    /**
+     * Looks up call site in cache and resolves it if it is not there yet.
+     */
+    CallSite getCallSite(StackTraceElement element) {
+        return getCallSite(config.get(), element);
+    }
+
+    private CallSite getCallSite(PipelineConfig config, StackTraceElement element) {
+        CallSite callSite = config.callSiteCache.get(element);
+        if (callSite == null) {
+            callSite = resolveCallSite(config, element);
+            config.callSiteCache.put(element, callSite);
+        }
+        return callSite;
+    }
+
+    private CallSite resolveCallSite(PipelineConfig config, StackTraceElement element) {
+        MessageFormatter messageFormatter = config.messageFormatter;
+        if (config.tagFormatter == null) {
+            throw new NullPointerException("Tag formatting strategy is null. This should not happen...");
+        }
+        if (messageFormatter == null) {
+            throw new NullPointerException("Message formatting strategy is null. This should not happen...");
+        }
+
+        long start = startTiming();
+        LogInfo logInfo = getLogInfo(config, element);
+        stopTiming(PipelineStage.LOG_INFO, start);
+
+        start = startTiming();
+        String tag = replacePlaceholders(config, formatTag(config.tagFormatter, logInfo));
+        stopTiming(PipelineStage.TAG_FORMAT, start);
+
+        // prefix can be cached only if we know formatter does not depend on anything but call site
+        String messagePrefix = null;
+        String outputPrefix = null;
+        if (messageFormatter.getClass() == DefaultMessageFormatter.class) {
+            messagePrefix = ((DefaultMessageFormatter) messageFormatter).prefix(logInfo);
+            outputPrefix = replacePlaceholders(config, messagePrefix);
+        }
+
+        int minPriority = config.logLevels.packageMinPriority(element.getClassName());
+        TokenBucket rateLimiter = rateLimiter(config, element);
+        RepeatTracker repeatTracker = coalesceTimeoutNanos > 0 ? repeatTracker(element) : null;
+
+        return new AutoValue_CallSite(logInfo, tag, messagePrefix, outputPrefix, minPriority, rateLimiter,
+                                      repeatTracker);
+    }
+
+    /**
+     * @return bucket of call site, the same one as long as its limit does not change, or null if it is not limited
+     */
+    private TokenBucket rateLimiter(PipelineConfig config, StackTraceElement element) {
+        RateLimit limit = config.rateLimits.limitFor(element.getClassName());
+        if (limit == null) {
+            rateLimiters.remove(element);
+            return null;
+        }
+        while (true) {
+            TokenBucket bucket = rateLimiters.get(element);
+            if (bucket != null && bucket.limit().equals(limit)) {
+                return bucket;
+            }
+            // another thread could resolve the same place meanwhile, only one bucket wins
+            TokenBucket created = new TokenBucket(limit, System.nanoTime());
+            if (bucket == null ? rateLimiters.putIfAbsent(element, created) == null
+                               : rateLimiters.replace(element, bucket, created)) {
+                return created;
+            }
+        }
+    }
+
+    /**
+     * @return tracker of call site, the same one every time place is resolved again
+     */
+    private RepeatTracker repeatTracker(StackTraceElement element) {
+        RepeatTracker tracker = repeatTrackers.get(element);
+        if (tracker == null) {
+            RepeatTracker created = new RepeatTracker();
+            tracker = repeatTrackers.putIfAbsent(element, created);
+            if (tracker == null) {
+                tracker = created;
+            }
+        }
+        return tracker;
+    }
+
+    private static String formatTag(TagFormatter tagFormatter, LogInfo logInfo) {
+        if (!(tagFormatter instanceof AppendingTagFormatter)) {
+            return tagFormatter.format(logInfo);
+        }
+        StringBuilder buffer = StringBuilders.acquire();
+        try {
+            ((AppendingTagFormatter) tagFormatter).formatTo(logInfo, buffer);
+            return buffer.toString();
+        } finally {
+            StringBuilders.release(buffer);
+        }
+    }
+
+    LogInfo getLogInfo(StackTraceElement element) {
+        return getLogInfo(config.get(), element);
+    }
+
+    private LogInfo getLogInfo(PipelineConfig config, StackTraceElement element) {
+        String fullClassName = getFullClassName(element);
+        String packageName = getPackageName(fullClassName);
+        String packageReplacement = null;
+        if (config.usePackagePlaceholders) {
+            packageName = config.packageNameHelper.replacePackageWithPattern(packageName);
+        } else {
+            PackageTrie.Entry<String> match = config.packageTrie.findLongestPrefix(packageName);
+            if (match != null) {
+                packageReplacement = match.value();
+                packageName = packageReplacement + packageName.substring(match.packageName().length());
+            }
+        }
+
+        String className = getClassName(fullClassName);
+        String methodName = element.getMethodName();
+        int lineNumber = element.getLineNumber();
+
+        return new AutoValue_LogInfo(packageName, className, methodName, lineNumber, packageReplacement);
+    }
+
+    /**
+     * Without placeholders packages are replaced right away in {@link #getLogInfo(StackTraceElement)}, so there is
+     * nothing left to replace.
+     */
+    private static String replacePlaceholders(PipelineConfig config, String formatted) {
+        return config.usePackagePlaceholders ? config.packageNameHelper.replacePatternWithReplacement(formatted)
+                : formatted;
+    }
+
+    @Nonnull private String getFullClassName(StackTraceElement element) {
+        String className = element.getClassName();
+        Matcher m = ANONYMOUS_CLASS.matcher(className);
+        if (m.find()) {
+            className = m.replaceAll("");
+        }
+
+        return className;
+    }
+
+    @Nonnull private String getPackageName(String fullClassName) {
+        return fullClassName.substring(0, fullClassName.lastIndexOf('.'));
+    }
+
+    @Nonnull private String getClassName(String fullClassName) {
+        return fullClassName.substring(fullClassName.lastIndexOf('.') + 1, fullClassName.length());
+    }
+
+    /**
+     * Builder for {@link LogPipeline} used on plain JVM.
+     */
+    public static class Builder extends BaseBuilder<Builder> {
+        private LogOutput output;
+
+        /**
+         * Backend logs are printed to. If not set logs are only passed to log actions.
+         */
+        public Builder setOutput(LogOutput output) {
+            this.output = output;
+            return this;
+        }
+
+        /**
+         * Builds {@link LogPipeline} object
+         */
+        public LogPipeline build() {
+            return buildPipeline(output);
+        }
+    }
+
+    /**
+     * Settings of {@link LogPipeline} shared by every builder that creates one. Methods return builder of type that
+     * extends it, so they can be chained with its own methods.
+     *
+     * @param <B> Type of builder that extends this one
+     */
+    public static abstract class BaseBuilder<B extends BaseBuilder<B>> {
+        private MessageFormatter messageFormatter;
+        private TagFormatter tagFormatter;
+        private LinkedHashMap<String, String> packageReplacePatterns = new LinkedHashMap<>();
+        private ArrayList<LogAction> logActions = new ArrayList<>();
+        private int callSiteCacheSize = DEFAULT_CALL_SITE_CACHE_SIZE;
+        private boolean usePackagePlaceholders;
+        private AsyncDispatch asyncDispatch;
+        private int minPriority = Priority.VERBOSE;
+        private HashMap<String, Integer> tagMinPriorities = new HashMap<>();
+        private LinkedHashMap<String, Integer> packageMinPriorities = new LinkedHashMap<>();
+        private LinkedHashSet<String> facadeClasses = new LinkedHashSet<>();
+        private RateLimit rateLimit;
+        private LinkedHashMap<String, RateLimit> packageRateLimits = new LinkedHashMap<>();
+        private long coalesceTimeoutNanos;
+        private ThrowableRenderer throwableRenderer;
+        private int maxCallerDepth = DEFAULT_MAX_CALLER_DEPTH;
+        private CallerLocator callerLocator;
+        private FrameFilter frameFilter;
+        private boolean metricsEnabled;
+        private MetricsListener metricsListener;
+        private long metricsIntervalMillis;
+
+        @SuppressWarnings("unchecked") private B self() {
+            return (B) this;
+        }
+
+        /**
+         * You can format message you will see in monitor the way you like. When formatting you can use all the data
+         * from {@link MessageInfo}. If not set {@link DefaultMessageFormatter} will be used.
+         */
+        public B setMessageFormatter(MessageFormatter formatter) {
+            this.messageFormatter = formatter;
+            return self();
+        }
+
+        /**
+         * You can format tag you will see in monitor the way you like. When formatting you can use all the data from
+         * {@link LogInfo}. If not set {@link DefaultTagFormatter} will be used.
+         */
+        public B setTagFormatter(TagFormatter formatter) {
+            this.tagFormatter = formatter;
+            return self();
+        }
+
+        /**
+         * Replace package name with short phrase.
+         *
+         * @param packageName Package name to be replaced
+         * @param replacement Phrase to replace package with
+         */
+        public B addPackageReplacePattern(String packageName, String replacement) {
+            this.packageReplacePatterns.put(packageName, replacement);
+            return self();
+        }
+
+        /**
+         * Makes {@link LogInfo#packageName()} seen by formatters contain package-inner-mark of pattern '{$%d$}' instead
+         * of replacement phrase. Marks are replaced in formatted tag and message afterwards. Use it only if your custom
+         * {@link TagFormatter} or {@link MessageFormatter} depends on it - it costs additional pass over every
+         * formatted message.
+         */
+        public B usePackagePlaceholders() {
+            this.usePackagePlaceholders = true;
+            return self();
+        }
+
+        /**
+         * You can make additional action with this log.
+         */
+        public B addLogAction(LogAction logAction) {
+            this.logActions.add(logAction);
+            return self();
+        }
+
+        /**
+         * Pine remembers everything it resolved about places logs were called from, so logging from the same line
+         * again costs only a lookup. Use {@link LogPipeline#callSiteCacheStats()} to check if size fits your app.
+         * Default size is 512. Set 0 to turn cache off.
+         *
+         * @param size Maximum number of call sites kept in cache
+         */
+        public B setCallSiteCacheSize(int size) {
+            if (size < 0) {
+                throw new IllegalArgumentException("Cache size cannot be negative: " + size);
+            }
+            this.callSiteCacheSize = size;
+            return self();
+        }
+
+        /**
+         * Runs log actions on background thread, so slow actions (writing to file for example) do not block threads
+         * that log. Logs wait for actions in a buffer configured with {@link AsyncDispatch}. Use {@link
+         * LogPipeline#dispatchStats()} to see how many logs were dropped because buffer was full.
+         */
+        public B setAsyncDispatch(AsyncDispatch asyncDispatch) {
+            this.asyncDispatch = asyncDispatch;
+            return self();
+        }
+
+        /**
+         * Logs with lower priority are dropped before Pine does anything with them, unless tag or package setting
+         * says otherwise. Default is {@link Priority#VERBOSE}, so everything is logged.
+         *
+         * @param priority Lowest priority to log, one of {@link Priority} constants
+         */
+        public B setMinPriority(int priority) {
+            this.minPriority = priority;
+            return self();
+        }
+
+        /**
+         * Overrides lowest priority logged with given tag. Applies to tags given explicitly with log as well as to
+         * tags created by {@link TagFormatter}. Wins over package and global settings.
+         *
+         * @param tag Tag to set priority for
+         * @param priority Lowest priority to log, one of {@link Priority} constants
+         */
+        public B setTagMinPriority(String tag, int priority) {
+            this.tagMinPriorities.put(tag, priority);
+            return self();
+        }
+
+        /**
+         * Overrides lowest priority logged from classes in given package. Packages are matched the same way as in
+         * {@link #addPackageReplacePattern(String, String)}: setting of the longest matching package wins. Wins over
+         * global setting.
+         *
+         * @param packageName Package to set priority for
+         * @param priority Lowest priority to log, one of {@link Priority} constants
+         */
+        public B setPackageMinPriority(String packageName, int priority) {
+            this.packageMinPriorities.put(packageName, priority);
+            return self();
+        }
+
+        /**
+         * Limits how many logs every single place in code can emit. Each line that logs gets its own bucket of logs
+         * that refills at given rate. Logs that find it empty are dropped before they are formatted and number of them
+         * is reported with the next log that passes. Turned off by default. Buckets are kept apart from call site
+         * cache, so they work with cache turned off and survive eviction and changes of settings that keep the limit.
+         *
+         * @param logsPerSecond Average number of logs per second allowed from single place
+         * @param burst Number of logs allowed at once before limit kicks in
+         */
+        public B setRateLimit(double logsPerSecond, int burst) {
+            this.rateLimit = RateLimit.create(logsPerSecond, burst);
+            return self();
+        }
+
+        /**
+         * Overrides rate limit (see {@link #setRateLimit(double, int)}) for places in given package. Packages are
+         * matched the same way as in {@link #addPackageReplacePattern(String, String)}: setting of the longest matching
+         * package wins.
+         */
+        public B setPackageRateLimit(String packageName, double logsPerSecond, int burst) {
+            this.packageRateLimits.put(packageName, RateLimit.create(logsPerSecond, burst));
+            return self();
+        }
+
+        /**
+         * Holds back exact repeats of the last message logged from the same place with the same tag and priority.
+         * When different message comes or run of repeats lasts for given time, single "Last message repeated N times"
+         * log is emitted instead of them. Messages are compared by length and hash first, so logs that are not
+         * repeats cost little more. Logs with throwable are never held back. Turned off by default. Last messages are
+         * kept apart from call site cache, so repeats are held back also with cache turned off.
+         *
+         * @param timeout Longest time repeats are held back before they are reported
+         */
+        public B coalesceRepeats(long timeout, TimeUnit unit) {
+            if (timeout <= 0) {
+                throw new IllegalArgumentException("Timeout has to be positive: " + timeout);
+            }
+            this.coalesceTimeoutNanos = unit.toNanos(timeout);
+            return self();
+        }
+
+        /**
+         * Renders stack traces of logged throwables once per log and caches them, so the same failure logged again
+         * is not rendered again (see {@link ThrowableRenderer}). Trace is appended to message for output and log
+         * actions the way Timber does it, {@link TraceLogAction}s get it apart from message. Not set by default.
+         */
+        public B setThrowableRenderer(ThrowableRenderer renderer) {
+            this.throwableRenderer = renderer;
+            return self();
+        }
+
+        /**
+         * If you log through your own class that wraps logging, add it here. Its frames (and frames of its inner
+         * classes) are skipped when looking for place log was called from, just like frames of Pine itself.
+         *
+         * @param className Fully qualified name of class to skip
+         */
+        public B addFacadeClass(String className) {
+            this.facadeClasses.add(className);
+            return self();
+        }
+
+        /**
+         * See {@link #addFacadeClass(String)}.
+         */
+        public B addFacadeClass(Class<?> facadeClass) {
+            return addFacadeClass(facadeClass.getName());
+        }
+
+        /**
+         * Caller is looked for no deeper than this number of stack frames. If it is not found there, whole stack trace
+         * is searched. Default is 64.
+         */
+        public B setMaxCallerDepth(int frames) {
+            if (frames <= 0) {
+                throw new IllegalArgumentException("Depth has to be positive: " + frames);
+            }
+            this.maxCallerDepth = frames;
+            return self();
+        }
+
+        /**
+         * Replaces strategy of finding place log was called from. By default Pine uses StackWalker where runtime has
+         * it and stack trace of new {@link Throwable} otherwise, skipping frames of Pine and classes added with {@link
+         * #addFacadeClass(String)}.
+         */
+        public B setCallerLocator(CallerLocator callerLocator) {
+            this.callerLocator = callerLocator;
+            return self();
+        }
+
+        /**
+         * Counts logs by priority and times every stage of log and every log action. Use {@link
+         * LogPipeline#metrics()} to see where logging spends its time. Costs few atomic operations and clock reads per
+         * log, so it is turned off by default.
+         */
+        public B enableMetrics() {
+            this.metricsEnabled = true;
+            return self();
+        }
+
+        /**
+         * Turns metrics on (see {@link #enableMetrics()}) and passes them to listener periodically, on background
+         * thread. Counts and timings are cumulative.
+         */
+        public B dumpMetricsEvery(long interval, TimeUnit unit, MetricsListener listener) {
+            if (interval <= 0) {
+                throw new IllegalArgumentException("Interval has to be positive: " + interval);
+            }
+            this.metricsEnabled = true;
+            this.metricsIntervalMillis = unit.toMillis(interval);
+            this.metricsListener = listener;
+            return self();
+        }
+
+        private void initEmptyFieldsWithDefaultValues() {
+            if (messageFormatter == null) {
+                messageFormatter = new DefaultMessageFormatter();
+            }
+            if (tagFormatter == null) {
+                tagFormatter = new DefaultTagFormatter();
+            }
+
+            LinkedHashSet<String> skippedClasses = new LinkedHashSet<>();
+            skippedClasses.add(LogPipeline.class.getName());
+            skippedClasses.add(ThrowableCallerLocator.class.getName());
+            skippedClasses.add(StackWalkerCallerLocator.class.getName());
+            skippedClasses.addAll(facadeClasses);
+            frameFilter = new FrameFilter(skippedClasses);
+
+            if (callerLocator == null) {
+                CallerLocator stackWalkerLocator = StackWalkerCallerLocator.createIfAvailable(frameFilter,
+                                                                                              maxCallerDepth);
+                callerLocator = stackWalkerLocator != null ? stackWalkerLocator
+                        : new ThrowableCallerLocator(frameFilter, maxCallerDepth);
+            }
+        }
+
+        /**
+         * Builds {@link LogPipeline} that prints to given output. Builders that extend this one call it when they are
+         * done with their own settings.
+         */
+        protected LogPipeline buildPipeline(LogOutput output) {
+            initEmptyFieldsWithDefaultValues();
+            // settings are copied, so changing builder afterwards does not touch pipeline
+            return new LogPipeline(this, output);
+        }
+    }
+}
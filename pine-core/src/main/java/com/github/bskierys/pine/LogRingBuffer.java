@@ -0,0 +1,288 @@
+package com.github.bskierys.pine;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded buffer of logs that many threads publish to and single background thread takes from. Slots, with {@link
+ * LogEvent} in each of them, are allocated once, producers claim them with compare-and-set and no lock is taken on the
+ * way unless {@link WaitStrategy#BLOCKING} is used.
+ */
+class LogRingBuffer {
+    private static final int SPIN_TRIES = 100;
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * Receives logs on consumer thread.
+     */
+    interface Handler {
+        /**
+         * @param config Settings of pipeline when log was dispatched
+         * @param event Log, valid only until this method returns
+         */
+        void handle(PipelineConfig config, LogEvent event);
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+    private final OverflowPolicy overflowPolicy;
+    private final int dropPriority;
+    private final Handler handler;
+    private final Thread consumer;
+
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+    private volatile boolean running = true;
+
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private volatile boolean consumerWaiting;
+    private volatile int producersWaiting;
+
+    LogRingBuffer(AsyncDispatch dispatch, Handler handler, String threadName) {
+        int capacity = roundUpToPowerOfTwo(dispatch.capacity());
+        this.slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = capacity - 1;
+        this.waitStrategy = dispatch.waitStrategy();
+        this.overflowPolicy = dispatch.overflowPolicy();
+        this.dropPriority = dispatch.dropPriority();
+        this.handler = handler;
+
+        this.consumer = newThread(threadName, new Runnable() {
+            @Override public void run() {
+                consume();
+            }
+        }, dispatch.virtualThread());
+        consumer.start();
+    }
+
+    /**
+     * @return virtual thread if asked for and runtime has them, daemon thread otherwise. Not started yet.
+     */
+    static Thread newThread(String name, Runnable runnable, boolean virtual) {
+        if (virtual) {
+            try {
+                // Thread.ofVirtual().name(name).unstarted(runnable), without compiling against Java 21
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                builder = builderClass.getMethod("name", String.class).invoke(builder, name);
+                return (Thread) builderClass.getMethod("unstarted", Runnable.class).invoke(builder, runnable);
+            } catch (Exception e) {
+                // older runtime or Android, platform thread will do. Not multi-catch, it would make verifier look for
+                // ReflectiveOperationException, which Android has only since API 19
+            }
+        }
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Puts log into buffer. Depending on {@link OverflowPolicy} waits for room or drops log when buffer is full. Log
+     * made by handler on consumer thread is dropped when buffer is full, whatever the policy, because only that thread
+     * makes room.
+     *
+     * @return true if log was accepted, false if it was dropped
+     */
+    boolean publish(PipelineConfig config, LogEvent event) {
+        if (!running) {
+            dropped.incrementAndGet();
+            return false;
+        }
+
+        long sequence;
+        while (true) {
+            sequence = claimed.get();
+            if (sequence - consumed >= slots.length) {
+                // room never comes if consumer is gone or if it is consumer who waits
+                if (shouldDrop(event.priority()) || !consumer.isAlive() || Thread.currentThread() == consumer) {
+                    dropped.incrementAndGet();
+                    return false;
+                }
+                waitForRoom();
+                continue;
+            }
+            if (claimed.compareAndSet(sequence, sequence + 1)) {
+                break;
+            }
+        }
+
+        Slot slot = slots[(int) sequence & mask];
+        slot.config = config;
+        // copied, so logging thread can reuse its event right away
+        slot.event.copyFrom(event);
+        slot.sequence = sequence;
+        queued.incrementAndGet();
+
+        if (consumerWaiting) {
+            signal(notEmpty);
+        }
+        return true;
+    }
+
+    private boolean shouldDrop(int priority) {
+        switch (overflowPolicy) {
+            case DROP_NEWEST:
+                return true;
+            case DROP_BELOW_PRIORITY:
+                return priority < dropPriority;
+            default:
+                return false;
+        }
+    }
+
+    private void consume() {
+        long next = 0;
+        int idle = 0;
+        while (running || next < claimed.get()) {
+            Slot slot = slots[(int) next & mask];
+            if (slot.sequence != next) {
+                idle = waitForLogs(next, idle);
+                continue;
+            }
+            idle = 0;
+
+            try {
+                handler.handle(slot.config, slot.event);
+            } catch (Throwable e) {
+                // even error of single action must not stop consumer, producers would wait for it forever
+                failed.incrementAndGet();
+            }
+            slot.config = null;
+            slot.event.clear();
+            consumed = ++next;
+
+            if (producersWaiting > 0) {
+                signal(notFull);
+            }
+        }
+    }
+
+    private int waitForLogs(long next, int idle) {
+        switch (waitStrategy) {
+            case BLOCKING:
+                lock.lock();
+                try {
+                    consumerWaiting = true;
+                    if (running && slots[(int) next & mask].sequence != next) {
+                        notEmpty.await(PARK_NANOS * 100, TimeUnit.NANOSECONDS);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                } finally {
+                    consumerWaiting = false;
+                    lock.unlock();
+                }
+                return idle;
+            default:
+                return idle(idle);
+        }
+    }
+
+    private void waitForRoom() {
+        if (waitStrategy == WaitStrategy.BLOCKING) {
+            lock.lock();
+            try {
+                producersWaiting++;
+                if (claimed.get() - consumed >= slots.length) {
+                    notFull.await(PARK_NANOS, TimeUnit.NANOSECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                producersWaiting--;
+                lock.unlock();
+            }
+        } else {
+            idle(SPIN_TRIES);
+        }
+    }
+
+    private int idle(int idle) {
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                break;
+            case YIELDING:
+                Thread.yield();
+                break;
+            default:
+                if (idle < SPIN_TRIES) {
+                    break;
+                }
+                LockSupport.parkNanos(PARK_NANOS);
+                break;
+        }
+        return idle < SPIN_TRIES ? idle + 1 : idle;
+    }
+
+    private void signal(Condition condition) {
+        lock.lock();
+        try {
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every log published so far is handled.
+     *
+     * @return true if buffer was drained before timeout
+     */
+    boolean awaitDrained(long timeoutMillis) {
+        long target = claimed.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (consumed < target) {
+            if (System.nanoTime() - deadline > 0 || !consumer.isAlive()) {
+                return false;
+            }
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return true;
+    }
+
+    /**
+     * Stops accepting logs, lets consumer handle what is left in buffer and stops it.
+     *
+     * @return true if consumer stopped before timeout
+     */
+    boolean shutdown(long timeoutMillis) {
+        running = false;
+        signal(notEmpty);
+        try {
+            consumer.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !consumer.isAlive();
+    }
+
+    DispatchStats stats() {
+        return new AutoValue_DispatchStats(queued.get(), dropped.get(), claimed.get() - consumed, failed.get(),
+                                           slots.length);
+    }
+
+    private static int roundUpToPowerOfTwo(int value) {
+        int highest = Integer.highestOneBit(value);
+        return highest == value ? value : highest << 1;
+    }
+
+    private static final class Slot {
+        volatile long sequence = -1;
+        final LogEvent event = new LogEvent();
+        PipelineConfig config;
+    }
+}
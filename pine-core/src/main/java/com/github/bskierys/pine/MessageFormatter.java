@@ -0,0 +1,20 @@
+/*
+* author: Bartlomiej Kierys
+* date: 2016-11-25
+* email: bskierys@gmail.com
+*/
+package com.github.bskierys.pine;
+
+/**
+ * Interface to format log message the way you like. When formatting you can use all the data from {@link MessageInfo}
+ */
+public interface MessageFormatter {
+    /**
+     * Format message to user's liking. At this point {@link LogInfo#packageName()} returns package with replacement
+     * phrase you have added with {@link LogPipeline.BaseBuilder#addPackageReplacePattern(String, String)}
+     * already applied. If you have turned on {@link LogPipeline.BaseBuilder#usePackagePlaceholders()}
+     * package you specified to replace will be replaced with package-inner-mark of pattern '{$%d$}' where '%d' is the
+     * number of package you have added (chronological) instead.
+     */
+    String format(MessageInfo info);
+}
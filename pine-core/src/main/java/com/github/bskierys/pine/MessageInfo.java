@@ -7,16 +7,24 @@ package com.github.bskierys.pine;
 
 import com.google.auto.value.AutoValue;
 
+import javax.annotation.Nullable;
+
 /**
  * <p>Wrapper for information about where message was logged from. Available info:</p> <ul> <li>all available in
- * {@link LogInfo}</li> <li>actual message</li> </ul>
+ * {@link LogInfo}</li> <li>actual message</li> <li>fields of structured message</li> </ul>
  */
 @AutoValue
 public abstract class MessageInfo {
     abstract LogInfo logInfo();
     public abstract String message();
+    /**
+     * Fields of message if it was logged as {@link StructuredMessage} or null if it was logged as plain text. {@link
+     * #message()} is then its rendered template.
+     */
+    @Nullable public abstract StructuredMessage fields();
     public String packageName() {return logInfo().packageName();}
     public String className() {return logInfo().className();}
     public String methodName() {return logInfo().methodName();}
     public int lineNumber() {return logInfo().lineNumber();}
+    @Nullable public String packageReplacement() {return logInfo().packageReplacement();}
 }
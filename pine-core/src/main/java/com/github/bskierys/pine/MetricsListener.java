@@ -0,0 +1,12 @@
+package com.github.bskierys.pine;
+
+/**
+ * Receives metrics periodically. See {@link LogPipeline.BaseBuilder#dumpMetricsEvery(long,
+ * java.util.concurrent.TimeUnit, MetricsListener)}.
+ */
+public interface MetricsListener {
+    /**
+     * Invoked on background thread of Pine.
+     */
+    void onMetrics(MetricsSnapshot snapshot);
+}
@@ -0,0 +1,86 @@
+package com.github.bskierys.pine;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts and timings collected since pipeline was created. See {@link LogPipeline.BaseBuilder#enableMetrics()}.
+ * {@link #toString()} gives readable dump of everything.
+ */
+public final class MetricsSnapshot {
+    private static final String PRIORITY_LETTERS = "??VDIWEA";
+
+    private final long[] loggedCounts;
+    private final long[] filteredCounts;
+    private final StageStats[] stages;
+    private final List<StageStats> actions;
+
+    MetricsSnapshot(long[] loggedCounts, long[] filteredCounts, StageStats[] stages, List<StageStats> actions) {
+        this.loggedCounts = loggedCounts;
+        this.filteredCounts = filteredCounts;
+        this.stages = stages;
+        this.actions = Collections.unmodifiableList(actions);
+    }
+
+    /**
+     * @return number of logs with given priority that were logged
+     */
+    public long loggedCount(int priority) {
+        return priority >= 0 && priority < loggedCounts.length ? loggedCounts[priority] : 0;
+    }
+
+    /**
+     * @return number of logs with given priority that were dropped by priority settings
+     */
+    public long filteredCount(int priority) {
+        return priority >= 0 && priority < filteredCounts.length ? filteredCounts[priority] : 0;
+    }
+
+    public StageStats stage(PipelineStage stage) {
+        return stages[stage.ordinal()];
+    }
+
+    /**
+     * @return timings of log actions, in the order they were added
+     */
+    public List<StageStats> actions() {
+        return actions;
+    }
+
+    @Override public String toString() {
+        StringBuilder dump = new StringBuilder("Pine metrics\n");
+        appendCounts(dump, "logged", loggedCounts);
+        appendCounts(dump, "filtered", filteredCounts);
+        for (StageStats stage : stages) {
+            appendStats(dump, stage);
+        }
+        for (int i = 0; i < actions.size(); i++) {
+            dump.append("action #").append(i).append(' ');
+            appendStats(dump, actions.get(i));
+        }
+        return dump.toString();
+    }
+
+    private void appendCounts(StringBuilder dump, String name, long[] counts) {
+        dump.append(name).append(':');
+        for (int priority = Priority.VERBOSE; priority < counts.length; priority++) {
+            dump.append(' ').append(PRIORITY_LETTERS.charAt(priority)).append('=').append(counts[priority]);
+        }
+        if (counts[0] > 0) {
+            dump.append(" other=").append(counts[0]);
+        }
+        dump.append('\n');
+    }
+
+    private void appendStats(StringBuilder dump, StageStats stats) {
+        dump.append(String.format(Locale.US, "%s count=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus\n",
+                                  stats.name(), stats.count(), micros(stats.meanNanos()), micros(stats.p50Nanos()),
+                                  micros(stats.p99Nanos()), micros(stats.maxNanos())));
+    }
+
+    private static double micros(long nanos) {
+        return (double) nanos / TimeUnit.MICROSECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,21 @@
+package com.github.bskierys.pine;
+
+/**
+ * What happens to log when {@link AsyncDispatch} buffer is full. Log made by log action itself, on thread that handles
+ * buffer, is always dropped when buffer is full, because no room would ever come for it.
+ */
+public enum OverflowPolicy {
+    /**
+     * Logging thread waits until there is room in buffer. No log is lost, but slow action can block the caller.
+     */
+    BLOCK,
+    /**
+     * Log that does not fit into buffer is dropped.
+     */
+    DROP_NEWEST,
+    /**
+     * Log with priority lower than {@link AsyncDispatch.Builder#setDropPriority(int)} is dropped, others wait until
+     * there is room in buffer.
+     */
+    DROP_BELOW_PRIORITY
+}
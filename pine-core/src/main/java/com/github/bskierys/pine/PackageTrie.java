@@ -0,0 +1,107 @@
+package com.github.bskierys.pine;
+
+import java.util.Arrays;
+
+/**
+ * Prefix tree of package names. Finds the longest registered package that given package name starts with in a single
+ * pass over its characters, no matter how many packages were registered. Fill it before sharing between threads -
+ * lookups are safe only as long as nothing is added anymore.
+ *
+ * @param <V> type of value kept for every package
+ */
+class PackageTrie<V> {
+    private final Node<V> root = new Node<>();
+    private int size;
+
+    /**
+     * Registers value for package. Registering the same package again replaces its value.
+     */
+    void put(String packageName, V value) {
+        Node<V> node = root;
+        for (int i = 0; i < packageName.length(); i++) {
+            node = node.childOrCreate(packageName.charAt(i));
+        }
+        if (node.entry == null) {
+            size++;
+        }
+        node.entry = new Entry<>(packageName, value);
+    }
+
+    /**
+     * @return entry of the longest registered package that given name starts with or null if there is none
+     */
+    Entry<V> findLongestPrefix(String packageName) {
+        Node<V> node = root;
+        Entry<V> longest = root.entry;
+        for (int i = 0; i < packageName.length(); i++) {
+            node = node.child(packageName.charAt(i));
+            if (node == null) {
+                break;
+            }
+            if (node.entry != null) {
+                longest = node.entry;
+            }
+        }
+        return longest;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Registered package with its value.
+     */
+    static final class Entry<V> {
+        private final String packageName;
+        private final V value;
+
+        Entry(String packageName, V value) {
+            this.packageName = packageName;
+            this.value = value;
+        }
+
+        String packageName() {
+            return packageName;
+        }
+
+        V value() {
+            return value;
+        }
+    }
+
+    private static final class Node<V> {
+        private static final char[] NO_LABELS = new char[0];
+
+        private char[] labels = NO_LABELS;
+        private Node<?>[] children = new Node<?>[0];
+        private Entry<V> entry;
+
+        @SuppressWarnings("unchecked")
+        Node<V> child(char label) {
+            // packages branch rarely, so linear scan over few children beats hashing
+            for (int i = 0; i < labels.length; i++) {
+                if (labels[i] == label) {
+                    return (Node<V>) children[i];
+                }
+            }
+            return null;
+        }
+
+        Node<V> childOrCreate(char label) {
+            Node<V> child = child(label);
+            if (child == null) {
+                child = new Node<>();
+                labels = Arrays.copyOf(labels, labels.length + 1);
+                children = Arrays.copyOf(children, children.length + 1);
+                labels[labels.length - 1] = label;
+                children[children.length - 1] = child;
+            }
+            return child;
+        }
+    }
+}
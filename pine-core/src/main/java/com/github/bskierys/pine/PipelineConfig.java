@@ -0,0 +1,93 @@
+package com.github.bskierys.pine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Snapshot of everything in {@link LogPipeline} that can be changed while it runs: formatters, log actions, package
+ * replace patterns, priorities, rate limits and throwable renderer. Never changes once created - {@link ConfigEditor}
+ * creates new one and pipeline switches to it at once. Settings are copied, so nothing passed in can change it later.
+ * Call sites are resolved against single snapshot, so every snapshot has its own {@link CallSiteCache}.
+ */
+final class PipelineConfig {
+    final MessageFormatter messageFormatter;
+    final TagFormatter tagFormatter;
+    final LinkedHashMap<String, String> packageReplacePatterns;
+    final boolean usePackagePlaceholders;
+    final List<LogAction> logActions;
+    /**
+     * {@link #logActions} in the same order, each of them taking {@link LogEvent}s directly or through {@link
+     * LogActionAdapter}.
+     */
+    final LogEventAction[] eventActions;
+    final int minPriority;
+    final Map<String, Integer> tagMinPriorities;
+    final LinkedHashMap<String, Integer> packageMinPriorities;
+    final RateLimit rateLimit;
+    final LinkedHashMap<String, RateLimit> packageRateLimits;
+    final ThrowableRenderer throwableRenderer;
+
+    final PackageNameHelper packageNameHelper;
+    final PackageTrie<String> packageTrie = new PackageTrie<>();
+    final LogLevels logLevels;
+    final RateLimits rateLimits;
+    final CallSiteCache callSiteCache;
+    /**
+     * True if some action needs message formatted by {@link MessageFormatter}, see {@link CallSiteLogAction} and {@link
+     * LogEventAction}.
+     */
+    final boolean formatForActions;
+    /**
+     * Timings of {@link #logActions} or null if metrics are off.
+     */
+    final LatencyHistogram[] actionHistograms;
+
+    PipelineConfig(MessageFormatter messageFormatter, TagFormatter tagFormatter,
+                   Map<String, String> packageReplacePatterns, boolean usePackagePlaceholders,
+                   List<LogAction> logActions, int minPriority, Map<String, Integer> tagMinPriorities,
+                   Map<String, Integer> packageMinPriorities, RateLimit rateLimit,
+                   Map<String, RateLimit> packageRateLimits, ThrowableRenderer throwableRenderer,
+                   CallSiteCache callSiteCache, PipelineMetrics metrics) {
+        this.messageFormatter = messageFormatter;
+        this.tagFormatter = tagFormatter;
+        this.packageReplacePatterns = new LinkedHashMap<>(packageReplacePatterns);
+        this.usePackagePlaceholders = usePackagePlaceholders;
+        this.logActions = Collections.unmodifiableList(new ArrayList<>(logActions));
+        this.eventActions = new LogEventAction[this.logActions.size()];
+        for (int i = 0; i < eventActions.length; i++) {
+            eventActions[i] = LogActionAdapter.adapt(this.logActions.get(i));
+        }
+        this.minPriority = minPriority;
+        this.tagMinPriorities = Collections.unmodifiableMap(new HashMap<>(tagMinPriorities));
+        this.packageMinPriorities = new LinkedHashMap<>(packageMinPriorities);
+        this.rateLimit = rateLimit;
+        this.packageRateLimits = new LinkedHashMap<>(packageRateLimits);
+        this.throwableRenderer = throwableRenderer;
+
+        this.packageNameHelper = new PackageNameHelper(this.packageReplacePatterns);
+        for (Map.Entry<String, String> pattern : this.packageReplacePatterns.entrySet()) {
+            packageTrie.put(pattern.getKey(), pattern.getValue());
+        }
+        this.logLevels = new LogLevels(minPriority, this.tagMinPriorities, this.packageMinPriorities);
+        this.rateLimits = new RateLimits(rateLimit, this.packageRateLimits);
+        this.callSiteCache = callSiteCache;
+        this.formatForActions = anyNeedsFormattedMessage(this.logActions);
+        this.actionHistograms = metrics == null ? null : metrics.actionHistograms(this.logActions);
+    }
+
+    private static boolean anyNeedsFormattedMessage(List<LogAction> logActions) {
+        for (LogAction action : logActions) {
+            if (action instanceof IsolatedLogAction) {
+                action = ((IsolatedLogAction) action).action();
+            }
+            if (!(action instanceof CallSiteLogAction) && !(action instanceof LogEventAction)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
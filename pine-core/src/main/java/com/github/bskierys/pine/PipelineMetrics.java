@@ -0,0 +1,92 @@
+package com.github.bskierys.pine;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects counts and timings of {@link LogPipeline}. Safe to use from many threads.
+ */
+class PipelineMetrics {
+    private static final int PRIORITIES = Priority.ASSERT + 1;
+
+    private final AtomicLongArray loggedCounts = new AtomicLongArray(PRIORITIES);
+    private final AtomicLongArray filteredCounts = new AtomicLongArray(PRIORITIES);
+    private final LatencyHistogram[] stages = new LatencyHistogram[PipelineStage.values().length];
+    private final IdentityHashMap<LogAction, LatencyHistogram> actions = new IdentityHashMap<>();
+
+    PipelineMetrics() {
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Timings of actions in the same order. Actions that were timed before keep their timings, timings of actions
+     * that are gone are dropped.
+     */
+    synchronized LatencyHistogram[] actionHistograms(List<LogAction> logActions) {
+        LatencyHistogram[] histograms = new LatencyHistogram[logActions.size()];
+        IdentityHashMap<LogAction, LatencyHistogram> kept = new IdentityHashMap<>();
+        for (int i = 0; i < histograms.length; i++) {
+            LogAction action = logActions.get(i);
+            histograms[i] = actions.get(action);
+            if (histograms[i] == null) {
+                histograms[i] = new LatencyHistogram();
+            }
+            kept.put(action, histograms[i]);
+        }
+        actions.clear();
+        actions.putAll(kept);
+        return histograms;
+    }
+
+    void countLogged(int priority) {
+        loggedCounts.incrementAndGet(priorityIndex(priority));
+    }
+
+    void countFiltered(int priority) {
+        filteredCounts.incrementAndGet(priorityIndex(priority));
+    }
+
+    void record(PipelineStage stage, long nanos) {
+        stages[stage.ordinal()].record(nanos);
+    }
+
+    /**
+     * @param logActions Actions to report, in the same order as their timings
+     * @param actionHistograms Timings from {@link #actionHistograms(List)}
+     */
+    MetricsSnapshot snapshot(List<LogAction> logActions, LatencyHistogram[] actionHistograms) {
+        long[] logged = new long[PRIORITIES];
+        long[] filtered = new long[PRIORITIES];
+        for (int i = 0; i < PRIORITIES; i++) {
+            logged[i] = loggedCounts.get(i);
+            filtered[i] = filteredCounts.get(i);
+        }
+
+        PipelineStage[] stageValues = PipelineStage.values();
+        StageStats[] stageStats = new StageStats[stageValues.length];
+        for (int i = 0; i < stageValues.length; i++) {
+            stageStats[i] = stages[i].snapshot(stageValues[i].name());
+        }
+
+        List<StageStats> actionStats = new ArrayList<>(actionHistograms.length);
+        for (int i = 0; i < actionHistograms.length; i++) {
+            LogAction action = logActions.get(i);
+            if (action instanceof IsolatedLogAction) {
+                action = ((IsolatedLogAction) action).action();
+            }
+            actionStats.add(actionHistograms[i].snapshot(action.getClass().getName()));
+        }
+        return new MetricsSnapshot(logged, filtered, stageStats, actionStats);
+    }
+
+    /**
+     * Priorities out of range of {@link Priority} constants are counted together under 0.
+     */
+    private static int priorityIndex(int priority) {
+        return priority > 0 && priority < PRIORITIES ? priority : 0;
+    }
+}
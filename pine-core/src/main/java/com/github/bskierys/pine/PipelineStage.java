@@ -0,0 +1,28 @@
+package com.github.bskierys.pine;
+
+/**
+ * Stages of log that are timed when metrics are turned on with {@link LogPipeline.BaseBuilder#enableMetrics()}. Log
+ * actions are timed separately, each on its own.
+ */
+public enum PipelineStage {
+    /**
+     * Finding place log was called from in stack trace.
+     */
+    CALLER_LOOKUP,
+    /**
+     * Building {@link LogInfo} of call site. Done once per call site while it stays in cache.
+     */
+    LOG_INFO,
+    /**
+     * Formatting tag with {@link TagFormatter}. Done once per call site while it stays in cache.
+     */
+    TAG_FORMAT,
+    /**
+     * Formatting message with {@link MessageFormatter}.
+     */
+    MESSAGE_FORMAT,
+    /**
+     * Printing log to {@link LogOutput} (logcat on Android).
+     */
+    OUTPUT
+}
@@ -0,0 +1,15 @@
+package com.github.bskierys.pine;
+
+/**
+ * Log priorities. Values are the same as constants of android.util.Log, so they can be used interchangeably.
+ */
+public final class Priority {
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+    public static final int ASSERT = 7;
+
+    private Priority() {}
+}
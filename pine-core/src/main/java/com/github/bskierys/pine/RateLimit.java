@@ -0,0 +1,23 @@
+package com.github.bskierys.pine;
+
+import com.google.auto.value.AutoValue;
+
+/**
+ * How many logs single place in code can emit: {@link #logsPerSecond()} on average, with bursts of up to {@link
+ * #burst()} logs.
+ */
+@AutoValue
+abstract class RateLimit {
+    abstract double logsPerSecond();
+    abstract int burst();
+
+    static RateLimit create(double logsPerSecond, int burst) {
+        if (!(logsPerSecond > 0)) {
+            throw new IllegalArgumentException("Logs per second have to be positive: " + logsPerSecond);
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("Burst has to be at least 1: " + burst);
+        }
+        return new AutoValue_RateLimit(logsPerSecond, burst);
+    }
+}
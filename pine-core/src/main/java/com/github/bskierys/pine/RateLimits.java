@@ -0,0 +1,31 @@
+package com.github.bskierys.pine;
+
+import java.util.Map;
+
+/**
+ * Rate limits of call sites: default one and ones for packages. Packages are matched the same way replace patterns are
+ * - the longest registered package wins.
+ */
+class RateLimits {
+    private final RateLimit defaultLimit;
+    private final PackageTrie<RateLimit> packageLimits = new PackageTrie<>();
+
+    RateLimits(RateLimit defaultLimit, Map<String, RateLimit> packageLimits) {
+        this.defaultLimit = defaultLimit;
+        for (Map.Entry<String, RateLimit> entry : packageLimits.entrySet()) {
+            this.packageLimits.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    boolean isEnabled() {
+        return defaultLimit != null || !packageLimits.isEmpty();
+    }
+
+    /**
+     * @return limit of call site in given class or null if it is not limited
+     */
+    RateLimit limitFor(String className) {
+        PackageTrie.Entry<RateLimit> entry = packageLimits.findLongestPrefix(className);
+        return entry == null ? defaultLimit : entry.value();
+    }
+}
@@ -0,0 +1,92 @@
+package com.github.bskierys.pine;
+
+/**
+ * Remembers last message logged from single call site and counts exact repeats of it that were held back. Message is
+ * compared by length and hash before it is compared char by char, so messages that differ rarely cost more than that.
+ */
+class RepeatTracker {
+    /**
+     * Returned by {@link #track(int, String, String, long)} for a repeat that is held back.
+     */
+    static final Run HELD = new Run(0, null, 0);
+    /**
+     * Returned by {@link #track(int, String, String, long)} for the first repeat held back in a run.
+     */
+    static final Run HELD_FIRST = new Run(0, null, 0);
+
+    private int priority;
+    private String tag;
+    private String message;
+    private int hash;
+    private long repeats;
+    private long firstRepeatNanos;
+
+    /**
+     * @param message Message to compare or null if log can never be treated as repeat (when it has throwable)
+     * @return {@link #HELD} or {@link #HELD_FIRST} if log should be held back, run of repeats it ends if log should go
+     * on, or null if it should go on and there is nothing to report
+     */
+    synchronized Run track(int priority, String tag, String message, long nowNanos) {
+        if (message != null && isRepeat(priority, tag, message)) {
+            if (repeats++ == 0) {
+                firstRepeatNanos = nowNanos;
+                return HELD_FIRST;
+            }
+            return HELD;
+        }
+        Run ended = repeats > 0 ? new Run(this.priority, this.tag, repeats) : null;
+        this.priority = priority;
+        this.tag = tag;
+        this.message = message;
+        this.hash = message == null ? 0 : message.hashCode();
+        this.repeats = 0;
+        return ended;
+    }
+
+    private boolean isRepeat(int priority, String tag, String message) {
+        return this.message != null
+                && priority == this.priority
+                && message.length() == this.message.length()
+                && message.hashCode() == hash
+                && tag.equals(this.tag)
+                && message.equals(this.message);
+    }
+
+    /**
+     * Ends run of repeats that lasts for given time already. Message is still remembered, so next repeat starts new
+     * run.
+     *
+     * @return run that was ended or null if there is none or it is not old enough
+     */
+    synchronized Run expire(long nowNanos, long timeoutNanos) {
+        if (repeats == 0 || nowNanos - firstRepeatNanos < timeoutNanos) {
+            return null;
+        }
+        Run ended = new Run(priority, tag, repeats);
+        repeats = 0;
+        return ended;
+    }
+
+    synchronized boolean hasRepeats() {
+        return repeats > 0;
+    }
+
+    /**
+     * Repeats of single message that were held back.
+     */
+    static final class Run {
+        final int priority;
+        final String tag;
+        final long repeats;
+
+        Run(int priority, String tag, long repeats) {
+            this.priority = priority;
+            this.tag = tag;
+            this.repeats = repeats;
+        }
+
+        String summary() {
+            return "Last message repeated " + repeats + (repeats == 1 ? " time" : " times");
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.github.bskierys.pine;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * File channel that writes to active segment and moves it aside when it grows too big or gets too old. Active segment
+ * is named {name}.{extension}, rotated ones {name}-{yyyyMMdd-HHmmss}.{extension}. Not thread safe.
+ */
+class RotatingFileChannel implements Closeable {
+    private final File directory;
+    private final String name;
+    private final String extension;
+    private final long maxSegmentBytes;
+    private final long rotationIntervalMillis;
+    private final SimpleDateFormat segmentDateFormat = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US);
+
+    private FileChannel channel;
+    private long segmentSize;
+    private long segmentStartMillis;
+
+    /**
+     * @param maxSegmentBytes segment is rotated when it reaches this size, 0 turns size rotation off
+     * @param rotationIntervalMillis segment is rotated when it is older than that, 0 turns time rotation off
+     */
+    RotatingFileChannel(File directory, String name, String extension, long maxSegmentBytes,
+                        long rotationIntervalMillis) {
+        this.directory = directory;
+        this.name = name;
+        this.extension = extension;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.rotationIntervalMillis = rotationIntervalMillis;
+    }
+
+    File activeSegment() {
+        return new File(directory, name + "." + extension);
+    }
+
+    /**
+     * Checks whether writing given number of bytes at given time should go to new segment.
+     */
+    boolean shouldRotate(long nowMillis, long pendingBytes) {
+        if (channel == null) {
+            return false;
+        }
+        if (maxSegmentBytes > 0 && segmentSize > 0 && segmentSize + pendingBytes > maxSegmentBytes) {
+            return true;
+        }
+        return rotationIntervalMillis > 0 && nowMillis - segmentStartMillis >= rotationIntervalMillis;
+    }
+
+    /**
+     * Closes active segment and moves it aside. Next write opens new active segment.
+     *
+     * @return rotated segment or null if there was nothing to rotate
+     */
+    File rotate(long nowMillis) throws IOException {
+        if (channel == null) {
+            return null;
+        }
+        channel.close();
+        channel = null;
+
+        File active = activeSegment();
+        String prefix = name + "-" + segmentDateFormat.format(new Date(nowMillis));
+        File rotated = new File(directory, prefix + "." + extension);
+        for (int i = 1; rotated.exists() || new File(rotated.getPath() + SegmentArchiver.COMPRESSED_EXTENSION).exists();
+             i++) {
+            rotated = new File(directory, prefix + "-" + i + "." + extension);
+        }
+        if (!active.renameTo(rotated)) {
+            throw new IOException("Could not rotate " + active + " to " + rotated);
+        }
+        return rotated;
+    }
+
+    /**
+     * Writes whole buffer to active segment.
+     */
+    void write(ByteBuffer buffer, long nowMillis) throws IOException {
+        if (channel == null) {
+            open(nowMillis);
+        }
+        while (buffer.hasRemaining()) {
+            segmentSize += channel.write(buffer);
+        }
+    }
+
+    /**
+     * Forces written data to storage device.
+     */
+    void force() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+        }
+    }
+
+    long segmentSize() {
+        return segmentSize;
+    }
+
+    private void open(long nowMillis) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create directory " + directory);
+        }
+        channel = new FileOutputStream(activeSegment(), true).getChannel();
+        segmentSize = channel.size();
+        segmentStartMillis = nowMillis;
+    }
+
+    @Override public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.github.bskierys.pine;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses rotated segments with gzip and deletes the oldest ones over retention limits. Works on single background
+ * thread of low priority, so logging thread only hands work over. Active segment is never touched.
+ */
+class SegmentArchiver {
+    static final String COMPRESSED_EXTENSION = ".gz";
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final int COPY_BUFFER_SIZE = 16 * 1024;
+    private static final long IDLE_THREAD_SECONDS = 30;
+
+    private final File directory;
+    private final Pattern segmentPattern;
+    private final boolean compress;
+    private final int maxSegments;
+    private final long maxBytes;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * @param maxSegments Number of rotated segments to keep, 0 keeps all
+     * @param maxBytes Total size of rotated segments to keep, 0 keeps all
+     */
+    SegmentArchiver(File directory, String name, String extension, boolean compress, int maxSegments,
+                    long maxBytes) {
+        this.directory = directory;
+        this.segmentPattern = Pattern.compile(Pattern.quote(name) + "-(\\d{8}-\\d{6})(?:-(\\d+))?"
+                                                      + Pattern.quote("." + extension) + "("
+                                                      + Pattern.quote(COMPRESSED_EXTENSION) + ")?");
+        this.compress = compress;
+        this.maxSegments = maxSegments;
+        this.maxBytes = maxBytes;
+        this.executor = new ThreadPoolExecutor(1, 1, IDLE_THREAD_SECONDS, TimeUnit.SECONDS,
+                                               new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Pine-archiver");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Schedules compression and cleanup of every rotated segment, including ones left by previous runs.
+     */
+    void segmentRotated() {
+        executor.execute(new Runnable() {
+            @Override public void run() {
+                archive();
+            }
+        });
+    }
+
+    /**
+     * @return number of segments that could not be compressed or deleted
+     */
+    long failures() {
+        return failures.get();
+    }
+
+    /**
+     * Waits until all scheduled work is done.
+     *
+     * @return true if it was done before timeout
+     */
+    boolean awaitIdle(long timeoutMillis) throws InterruptedException {
+        try {
+            executor.submit(new Runnable() {
+                @Override public void run() {}
+            }).get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (ExecutionException e) {
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+
+    private void archive() {
+        List<Segment> segments = listSegments();
+        if (compress) {
+            for (int i = 0; i < segments.size(); i++) {
+                Segment segment = segments.get(i);
+                if (!segment.compressed) {
+                    try {
+                        segments.set(i, new Segment(compress(segment.file), segment.timestamp, segment.index, true));
+                    } catch (IOException e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            }
+        }
+        applyRetention(segments);
+    }
+
+    private File compress(File segment) throws IOException {
+        File target = new File(segment.getPath() + COMPRESSED_EXTENSION);
+        File temp = new File(target.getPath() + TEMP_EXTENSION);
+        InputStream in = new FileInputStream(segment);
+        try {
+            OutputStream out = new GZIPOutputStream(new FileOutputStream(temp), COPY_BUFFER_SIZE);
+            try {
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        } finally {
+            in.close();
+        }
+        // original is deleted only when compressed copy is complete, so killed process loses nothing
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Could not rename " + temp + " to " + target);
+        }
+        if (!segment.delete()) {
+            throw new IOException("Could not delete " + segment);
+        }
+        return target;
+    }
+
+    private void applyRetention(List<Segment> segments) {
+        long totalBytes = 0;
+        for (Segment segment : segments) {
+            totalBytes += segment.file.length();
+        }
+        // oldest first
+        for (int i = 0; i < segments.size(); i++) {
+            boolean overCount = maxSegments > 0 && segments.size() - i > maxSegments;
+            boolean overBytes = maxBytes > 0 && totalBytes > maxBytes;
+            if (!overCount && !overBytes) {
+                break;
+            }
+            File file = segments.get(i).file;
+            long length = file.length();
+            if (file.delete()) {
+                totalBytes -= length;
+            } else {
+                failures.incrementAndGet();
+            }
+        }
+    }
+
+    private List<Segment> listSegments() {
+        List<Segment> segments = new ArrayList<>();
+        String[] names = directory.list();
+        if (names == null) {
+            return segments;
+        }
+        Arrays.sort(names);
+        for (String name : names) {
+            if (name.endsWith(TEMP_EXTENSION)) {
+                // compression that was cut off by death of process
+                if (segmentPattern.matcher(name.substring(0, name.length() - TEMP_EXTENSION.length())).matches()) {
+                    new File(directory, name).delete();
+                }
+                continue;
+            }
+            Matcher matcher = segmentPattern.matcher(name);
+            if (!matcher.matches()) {
+                continue;
+            }
+            boolean compressed = matcher.group(3) != null;
+            if (!compressed && Arrays.binarySearch(names, name + COMPRESSED_EXTENSION) >= 0) {
+                // compressed earlier, but process died before original was deleted
+                new File(directory, name).delete();
+                continue;
+            }
+            int index = matcher.group(2) == null ? 0 : Integer.parseInt(matcher.group(2));
+            segments.add(new Segment(new File(directory, name), matcher.group(1), index, compressed));
+        }
+        Collections.sort(segments, new Comparator<Segment>() {
+            @Override public int compare(Segment first, Segment second) {
+                int byTime = first.timestamp.compareTo(second.timestamp);
+                return byTime != 0 ? byTime : first.index - second.index;
+            }
+        });
+        return segments;
+    }
+
+    private static final class Segment {
+        final File file;
+        final String timestamp;
+        final int index;
+        final boolean compressed;
+
+        Segment(File file, String timestamp, int index, boolean compressed) {
+            this.file = file;
+            this.timestamp = timestamp;
+            this.index = index;
+            this.compressed = compressed;
+        }
+    }
+}
@@ -0,0 +1,606 @@
+package com.github.bskierys.pine;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>{@link LogAction} that streams logs to collector over TCP or UDP. Every log is single record: {epoch millis}
+ * {priority}/{tag}: [{class}.{method}:{line}] {message}, with stack trace on following lines. Call site is left out for
+ * logs that do not come through {@link LogPipeline}.</p> <p>Records are encoded straight into reusable batch and
+ * batch is sent by background thread with single write, once it is full or once its first record waits longer than
+ * linger time. Over TCP every record is framed with its length as 4-byte big-endian number. Over UDP every record goes
+ * in its own datagram, the way syslog collectors expect it.</p> <p>When collector cannot be reached, batches wait in
+ * memory and connection is tried again with growing delay. If waiting batches take more than spill size, the oldest
+ * of them are dropped and counted in {@link #droppedRecords()}.</p> <p>When connection breaks in the middle of batch,
+ * records written completely are not sent again and record that was cut off is sent whole on new connection. Records
+ * that were written, but had not reached collector before connection broke are lost. Use {@link Builder} to create
+ * it.</p>
+ */
+public class SocketLogAction implements LogEventAction {
+    private static final int LENGTH_BYTES = 4;
+    // largest payload of UDP datagram over IPv4
+    private static final int MAX_DATAGRAM_BYTES = 65507;
+
+    private final String host;
+    private final int port;
+    private final boolean udp;
+    private final int batchSize;
+    private final long lingerMillis;
+    private final long spillBytes;
+    private final long minBackoffMillis;
+    private final long maxBackoffMillis;
+    private final int connectTimeoutMillis;
+    private final Thread sender;
+
+    private final char[] digits = new char[20];
+    private final ArrayDeque<Batch> pending = new ArrayDeque<>();
+    private final ArrayDeque<Batch> free = new ArrayDeque<>();
+    private Batch current;
+    private Batch inFlight;
+    private long pendingBytes;
+    private boolean flushRequested;
+    private boolean running = true;
+
+    private ByteChannel channel;
+    private long backoffMillis;
+    private long sentRecords;
+    private long droppedRecords;
+    private long failedConnects;
+
+    private SocketLogAction(Builder builder) {
+        this.host = builder.host;
+        this.port = builder.port;
+        this.udp = builder.udp;
+        this.batchSize = builder.batchSize;
+        this.lingerMillis = builder.lingerMillis;
+        this.spillBytes = builder.spillBytes;
+        this.minBackoffMillis = builder.minBackoffMillis;
+        this.maxBackoffMillis = builder.maxBackoffMillis;
+        this.connectTimeoutMillis = builder.connectTimeoutMillis;
+        this.backoffMillis = minBackoffMillis;
+        this.current = new Batch(batchSize);
+
+        this.sender = LogRingBuffer.newThread(builder.threadName, new Runnable() {
+            @Override public void run() {
+                send();
+            }
+        }, false);
+        sender.start();
+    }
+
+    @Override public void action(LogEvent event) {
+        String trace = event.trace();
+        if (trace == null && event.throwable() != null) {
+            trace = stackTrace(event.throwable());
+        }
+        append(event.timeMillis(), event.priority(), event.tag(), event.logInfo(), event.message(), trace);
+    }
+
+    /**
+     * Used when log does not come through {@link LogPipeline}. Message is sent as it is, with no call site.
+     */
+    @Override public void action(int priority, String tag, String message, Throwable t) {
+        append(System.currentTimeMillis(), priority, tag, null, message, null);
+    }
+
+    private synchronized void append(long now, int priority, String tag, LogInfo logInfo, String message,
+                                     String trace) {
+        if (!running) {
+            droppedRecords++;
+            return;
+        }
+        int start = current.buffer.position();
+        if (!encode(current.buffer, now, priority, tag, logInfo, message, trace) && current.records > 0) {
+            // does not fit in what is left of batch, goes whole to the next one
+            current.buffer.position(start);
+            seal();
+            encode(current.buffer, now, priority, tag, logInfo, message, trace);
+        }
+        current.records++;
+        if (current.records == 1) {
+            current.firstRecordMillis = now;
+            // sender starts counting linger time
+            notifyAll();
+        }
+        if (lingerMillis == 0 || current.buffer.remaining() <= LENGTH_BYTES + Utf8.MAX_CHAR_BYTES) {
+            seal();
+        }
+    }
+
+    /**
+     * Encodes framed record. If it does not fit, as much of it as fits is left in buffer.
+     *
+     * @return true if whole record fit in buffer
+     */
+    private boolean encode(ByteBuffer buffer, long now, int priority, String tag, LogInfo logInfo, String message,
+                           String trace) {
+        int start = buffer.position();
+        if (buffer.remaining() < LENGTH_BYTES + digits.length + Utf8.MAX_CHAR_BYTES) {
+            return false;
+        }
+        int limit = buffer.limit();
+        if (udp) {
+            buffer.limit(Math.min(limit, start + LENGTH_BYTES + MAX_DATAGRAM_BYTES));
+        }
+        buffer.position(start + LENGTH_BYTES);
+        boolean fits = putLong(buffer, now)
+                && put(buffer, " ")
+                && putAscii(buffer, BufferedFileAction.priorityLetter(priority))
+                && put(buffer, "/")
+                && put(buffer, tag == null ? "" : tag)
+                && put(buffer, ": ");
+        if (fits && logInfo != null) {
+            fits = put(buffer, "[")
+                    && put(buffer, logInfo.className())
+                    && put(buffer, ".")
+                    && put(buffer, logInfo.methodName())
+                    && put(buffer, ":")
+                    && putLong(buffer, logInfo.lineNumber())
+                    && put(buffer, "] ");
+        }
+        fits = fits && put(buffer, message == null ? "" : message);
+        if (trace != null) {
+            fits = fits && put(buffer, "\n") && put(buffer, trace);
+        }
+        buffer.limit(limit);
+        buffer.putInt(start, buffer.position() - start - LENGTH_BYTES);
+        return fits;
+    }
+
+    private static boolean put(ByteBuffer buffer, String text) {
+        return Utf8.encode(text, 0, buffer) == text.length();
+    }
+
+    private static boolean putAscii(ByteBuffer buffer, char c) {
+        if (!buffer.hasRemaining()) {
+            return false;
+        }
+        buffer.put((byte) c);
+        return true;
+    }
+
+    /**
+     * Writes number without creating string for it.
+     *
+     * @return false if there was no room for it
+     */
+    private boolean putLong(ByteBuffer buffer, long value) {
+        if (buffer.remaining() < digits.length) {
+            return false;
+        }
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = value == Long.MIN_VALUE ? Long.MAX_VALUE : -value;
+        }
+        int start = digits.length;
+        do {
+            digits[--start] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        for (int i = start; i < digits.length; i++) {
+            buffer.put((byte) digits[i]);
+        }
+        return true;
+    }
+
+    private static String stackTrace(Throwable t) {
+        StringWriter writer = new StringWriter();
+        t.printStackTrace(new PrintWriter(writer));
+        return writer.toString();
+    }
+
+    /**
+     * Hands current batch over to sender and starts new one. Oldest batches are dropped if waiting ones take more
+     * than spill size.
+     */
+    private void seal() {
+        if (current.records == 0) {
+            return;
+        }
+        pending.addLast(current);
+        pendingBytes += current.buffer.position();
+        while (pendingBytes > spillBytes && pending.size() > 1) {
+            Batch dropped = pending.pollFirst();
+            pendingBytes -= dropped.buffer.position();
+            droppedRecords += dropped.records;
+            recycle(dropped);
+        }
+        Batch next = free.pollFirst();
+        current = next != null ? next : new Batch(batchSize);
+        notifyAll();
+    }
+
+    private void recycle(Batch batch) {
+        batch.buffer.clear();
+        batch.records = 0;
+        free.addLast(batch);
+    }
+
+    private void send() {
+        while (true) {
+            Batch batch;
+            synchronized (this) {
+                batch = nextBatch();
+                if (batch == null) {
+                    break;
+                }
+            }
+            boolean sent = write(batch);
+            synchronized (this) {
+                inFlight = null;
+                if (sent) {
+                    sentRecords += batch.records;
+                    recycle(batch);
+                } else if (!running) {
+                    // nobody will wait for collector any longer
+                    droppedRecords += batch.records;
+                    recycle(batch);
+                    dropPending();
+                } else {
+                    // goes first again, so records keep their order
+                    pending.addFirst(batch);
+                    pendingBytes += batch.buffer.position();
+                }
+                notifyAll();
+                if (!sent) {
+                    waitForBackoff();
+                }
+            }
+        }
+        closeChannel();
+    }
+
+    /**
+     * Waits for batch that is full, lingered long enough or is flushed.
+     *
+     * @return batch to send or null if action is shut down and every batch is handled
+     */
+    private Batch nextBatch() {
+        while (true) {
+            Batch batch = pending.pollFirst();
+            if (batch != null) {
+                pendingBytes -= batch.buffer.position();
+                inFlight = batch;
+                return batch;
+            }
+            long waitMillis = 0;
+            if (current.records > 0) {
+                waitMillis = current.firstRecordMillis + lingerMillis - System.currentTimeMillis();
+                if (waitMillis <= 0 || flushRequested || !running) {
+                    seal();
+                    continue;
+                }
+            }
+            flushRequested = false;
+            if (!running) {
+                return null;
+            }
+            try {
+                wait(waitMillis);
+            } catch (InterruptedException e) {
+                running = false;
+            }
+        }
+    }
+
+    private void waitForBackoff() {
+        if (!running) {
+            return;
+        }
+        try {
+            wait(backoffMillis);
+        } catch (InterruptedException e) {
+            running = false;
+        }
+        backoffMillis = Math.min(maxBackoffMillis, backoffMillis * 2);
+    }
+
+    private void dropPending() {
+        for (Batch batch : pending) {
+            droppedRecords += batch.records;
+            recycle(batch);
+        }
+        pending.clear();
+        pendingBytes = 0;
+    }
+
+    /**
+     * Writes batch on sender thread, connecting first if needed.
+     *
+     * @return true if batch was sent, false if connection failed and batch has to be sent again
+     */
+    private boolean write(Batch batch) {
+        ByteBuffer buffer = batch.buffer;
+        buffer.flip();
+        int end = buffer.limit();
+        try {
+            if (channel == null) {
+                channel = connect();
+            }
+            if (udp) {
+                writeDatagrams(buffer);
+            } else {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            synchronized (this) {
+                backoffMillis = minBackoffMillis;
+            }
+            return true;
+        } catch (IOException e) {
+            synchronized (this) {
+                failedConnects++;
+            }
+            closeChannel();
+            // collector drops frame that was cut off, so it goes whole on new connection, but frames before it do not
+            int written = dropWrittenFrames(buffer, buffer.position(), end);
+            synchronized (this) {
+                sentRecords += written;
+                batch.records -= written;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Moves frames of flipped batch that were not written completely to start of buffer and leaves it ready for next
+     * write.
+     *
+     * @param written Number of bytes from start of buffer that were written
+     * @param end Number of bytes in batch
+     * @return number of frames that were written completely and are gone from buffer
+     */
+    static int dropWrittenFrames(ByteBuffer buffer, int written, int end) {
+        int start = 0;
+        int frames = 0;
+        while (start < end && start + LENGTH_BYTES + buffer.getInt(start) <= written) {
+            start += LENGTH_BYTES + buffer.getInt(start);
+            frames++;
+        }
+        buffer.limit(end);
+        buffer.position(start);
+        buffer.compact();
+        return frames;
+    }
+
+    private void writeDatagrams(ByteBuffer buffer) throws IOException {
+        int end = buffer.limit();
+        while (buffer.position() < end) {
+            int length = buffer.getInt();
+            buffer.limit(buffer.position() + length);
+            channel.write(buffer);
+            buffer.limit(end);
+        }
+    }
+
+    private ByteChannel connect() throws IOException {
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        if (udp) {
+            DatagramChannel datagramChannel = DatagramChannel.open();
+            datagramChannel.connect(address);
+            return datagramChannel;
+        }
+        SocketChannel socketChannel = SocketChannel.open();
+        try {
+            socketChannel.socket().setTcpNoDelay(true);
+            socketChannel.socket().connect(address, connectTimeoutMillis);
+        } catch (IOException e) {
+            socketChannel.close();
+            throw e;
+        }
+        return socketChannel;
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // nothing else can be done with it
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * Sends batched records right away and waits until collector gets them.
+     *
+     * @return true if every record logged so far was sent or dropped before timeout
+     */
+    public synchronized boolean flush(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        seal();
+        flushRequested = true;
+        notifyAll();
+        while (!pending.isEmpty() || inFlight != null) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0 || !sender.isAlive()) {
+                return false;
+            }
+            try {
+                wait(left);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stops accepting logs, tries to send what is batched and stops sender thread. Records that cannot be sent are
+     * dropped, logs that come later are counted as dropped as well.
+     *
+     * @return true if sender stopped before timeout
+     */
+    public boolean shutdown(long timeoutMillis) {
+        synchronized (this) {
+            running = false;
+            notifyAll();
+        }
+        try {
+            sender.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !sender.isAlive();
+    }
+
+    /**
+     * @return number of records written to collector
+     */
+    public synchronized long sentRecords() {
+        return sentRecords;
+    }
+
+    /**
+     * @return number of records dropped because spill buffer was full or action was shut down
+     */
+    public synchronized long droppedRecords() {
+        return droppedRecords;
+    }
+
+    /**
+     * @return number of times connecting or sending has failed
+     */
+    public synchronized long failedConnects() {
+        return failedConnects;
+    }
+
+    private static final class Batch {
+        final ByteBuffer buffer;
+        int records;
+        long firstRecordMillis;
+
+        Batch(int size) {
+            this.buffer = ByteBuffer.allocate(size);
+        }
+    }
+
+    /**
+     * Builder for {@link SocketLogAction}
+     */
+    public static class Builder {
+        private static final int DEFAULT_BATCH_SIZE = 16 * 1024;
+        private static final long DEFAULT_LINGER_MILLIS = 200;
+        private static final long DEFAULT_SPILL_BYTES = 1024 * 1024;
+        private static final long DEFAULT_MIN_BACKOFF_MILLIS = 100;
+        private static final long DEFAULT_MAX_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(30);
+        private static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(5);
+
+        private final String host;
+        private final int port;
+        private boolean udp;
+        private int batchSize = DEFAULT_BATCH_SIZE;
+        private long lingerMillis = DEFAULT_LINGER_MILLIS;
+        private long spillBytes = DEFAULT_SPILL_BYTES;
+        private long minBackoffMillis = DEFAULT_MIN_BACKOFF_MILLIS;
+        private long maxBackoffMillis = DEFAULT_MAX_BACKOFF_MILLIS;
+        private int connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+        private String threadName = "Pine-socket";
+
+        /**
+         * @param host Host of collector, usually "localhost"
+         * @param port Port collector listens on
+         */
+        public Builder(String host, int port) {
+            if (host == null) {
+                throw new NullPointerException("Host cannot be null");
+            }
+            if (port <= 0 || port > 0xFFFF) {
+                throw new IllegalArgumentException("Invalid port: " + port);
+            }
+            this.host = host;
+            this.port = port;
+        }
+
+        /**
+         * Sends every record in its own UDP datagram instead of framing them in TCP stream. Datagrams that get lost
+         * are not noticed. Records longer than datagram can carry are cut.
+         */
+        public Builder useUdp() {
+            this.udp = true;
+            return this;
+        }
+
+        /**
+         * Size of single write. Longer records are cut to it. Default is 16 KB.
+         */
+        public Builder setBatchSize(int bytes) {
+            if (bytes < 256) {
+                throw new IllegalArgumentException("Batch is too small: " + bytes);
+            }
+            this.batchSize = bytes;
+            return this;
+        }
+
+        /**
+         * How long first record of batch waits for others before batch is sent. Default is 200 milliseconds. Set 0
+         * to send every record right away.
+         */
+        public Builder setLinger(long linger, TimeUnit unit) {
+            if (linger < 0) {
+                throw new IllegalArgumentException("Linger cannot be negative: " + linger);
+            }
+            this.lingerMillis = unit.toMillis(linger);
+            return this;
+        }
+
+        /**
+         * Memory batches can take while they wait for collector. The oldest batches are dropped above it. Default is
+         * 1 MB.
+         */
+        public Builder setSpillSize(long bytes) {
+            if (bytes <= 0) {
+                throw new IllegalArgumentException("Spill size has to be positive: " + bytes);
+            }
+            this.spillBytes = bytes;
+            return this;
+        }
+
+        /**
+         * Delay before connection is tried again. It starts at min, doubles after every failure up to max and goes
+         * back to min once batch is sent. Default is from 100 milliseconds to 30 seconds.
+         */
+        public Builder setReconnectBackoff(long min, long max, TimeUnit unit) {
+            if (min <= 0 || max < min) {
+                throw new IllegalArgumentException("Invalid backoff: " + min + " - " + max);
+            }
+            this.minBackoffMillis = unit.toMillis(min);
+            this.maxBackoffMillis = unit.toMillis(max);
+            return this;
+        }
+
+        /**
+         * How long TCP connection can take to open. Default is 5 seconds.
+         */
+        public Builder setConnectTimeout(long timeout, TimeUnit unit) {
+            this.connectTimeoutMillis = (int) unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * Name of thread that sends batches. Default is "Pine-socket".
+         */
+        public Builder setThreadName(String threadName) {
+            this.threadName = threadName;
+            return this;
+        }
+
+        /**
+         * Builds {@link SocketLogAction} object and starts its thread
+         */
+        public SocketLogAction build() {
+            return new SocketLogAction(this);
+        }
+    }
+}
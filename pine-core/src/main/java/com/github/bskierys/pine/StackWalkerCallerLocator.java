@@ -0,0 +1,93 @@
+package com.github.bskierys.pine;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Iterator;
+
+/**
+ * Finds caller with {@code java.lang.StackWalker} on runtimes that have it (Java 9 and newer). Frames are walked
+ * lazily and walk stops at the first frame that is not skipped, so cost depends on how deep caller is, not on how deep
+ * the whole stack is. Walker is reached through plain reflection and proxy, because library is built for runtimes that
+ * do not have it. Method handles and Java 8 types are left out on purpose, they do not dex for older Android versions.
+ */
+class StackWalkerCallerLocator implements CallerLocator, InvocationHandler {
+    private final FrameFilter frameFilter;
+    private final int maxDepth;
+    private final Object stackWalker;
+    private final Method walk;
+    private final Method iterator;
+    private final Method getClassName;
+    private final Method toStackTraceElement;
+    private final Object walkFunction;
+
+    private StackWalkerCallerLocator(FrameFilter frameFilter, int maxDepth) throws Exception {
+        this.frameFilter = frameFilter;
+        this.maxDepth = maxDepth;
+
+        Class<?> walkerClass = Class.forName("java.lang.StackWalker");
+        Class<?> frameClass = Class.forName("java.lang.StackWalker$StackFrame");
+        Class<?> functionClass = Class.forName("java.util.function.Function");
+        Class<?> streamClass = Class.forName("java.util.stream.BaseStream");
+
+        this.stackWalker = walkerClass.getMethod("getInstance").invoke(null);
+        this.walk = walkerClass.getMethod("walk", functionClass);
+        this.iterator = streamClass.getMethod("iterator");
+        this.getClassName = frameClass.getMethod("getClassName");
+        this.toStackTraceElement = frameClass.getMethod("toStackTraceElement");
+        this.walkFunction = Proxy.newProxyInstance(StackWalkerCallerLocator.class.getClassLoader(),
+                                                   new Class<?>[]{functionClass}, this);
+    }
+
+    /**
+     * @return locator that uses StackWalker or null if runtime does not have it
+     */
+    static CallerLocator createIfAvailable(FrameFilter frameFilter, int maxDepth) {
+        try {
+            return new StackWalkerCallerLocator(frameFilter, maxDepth);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    @Override public StackTraceElement locateCaller() {
+        try {
+            return (StackTraceElement) walk.invoke(stackWalker, walkFunction);
+        } catch (IllegalAccessException e) {
+            return null;
+        } catch (InvocationTargetException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Body of function passed to StackWalker#walk. Receives stream of frames.
+     */
+    @Override public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (!"apply".equals(method.getName())) {
+            return invokeObjectMethod(proxy, method, args);
+        }
+
+        Iterator<?> frames = (Iterator<?>) iterator.invoke(args[0]);
+        for (int depth = 0; depth < maxDepth && frames.hasNext(); depth++) {
+            Object frame = frames.next();
+            if (!frameFilter.isSkipped((String) getClassName.invoke(frame))) {
+                return toStackTraceElement.invoke(frame);
+            }
+        }
+        return null;
+    }
+
+    private Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if ("equals".equals(name)) {
+            return proxy == args[0];
+        } else if ("hashCode".equals(name)) {
+            return System.identityHashCode(proxy);
+        } else if ("toString".equals(name)) {
+            return "StackWalker caller function";
+        }
+        throw new UnsupportedOperationException(name);
+    }
+}
@@ -0,0 +1,30 @@
+package com.github.bskierys.pine;
+
+import com.google.auto.value.AutoValue;
+
+/**
+ * Timing of single pipeline stage or log action. Percentiles are approximate: they are upper bounds of power of two
+ * ranges the times fall into.
+ */
+@AutoValue
+public abstract class StageStats {
+    /**
+     * Name of {@link PipelineStage} or of log action class.
+     */
+    public abstract String name();
+    /**
+     * Number of times stage was run.
+     */
+    public abstract long count();
+    public abstract long totalNanos();
+    public abstract long maxNanos();
+    public abstract long p50Nanos();
+    public abstract long p99Nanos();
+
+    /**
+     * @return average time or 0 if stage was not run yet
+     */
+    public long meanNanos() {
+        return count() == 0 ? 0 : totalNanos() / count();
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.bskierys.pine;
+
+/**
+ * Keeps one {@link StringBuilder} per thread for formatting logs. Builder taken with {@link #acquire()} has to be
+ * given back with {@link #release(StringBuilder)}. If it is taken again before that (formatter that logs for example)
+ * new builder is created, so nested formatting never overwrites outer one.
+ */
+final class StringBuilders {
+    private static final int INITIAL_CAPACITY = 256;
+    // do not keep memory of single huge message for the whole life of thread
+    private static final int MAX_RETAINED_CAPACITY = 16 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUILDERS = new ThreadLocal<>();
+
+    private StringBuilders() {}
+
+    static StringBuilder acquire() {
+        StringBuilder builder = BUILDERS.get();
+        if (builder == null) {
+            return new StringBuilder(INITIAL_CAPACITY);
+        }
+        BUILDERS.set(null);
+        return builder;
+    }
+
+    static void release(StringBuilder builder) {
+        if (builder.capacity() <= MAX_RETAINED_CAPACITY) {
+            builder.setLength(0);
+            BUILDERS.set(builder);
+        }
+    }
+}
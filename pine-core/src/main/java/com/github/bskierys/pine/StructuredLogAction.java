@@ -0,0 +1,13 @@
+package com.github.bskierys.pine;
+
+/**
+ * {@link CallSiteLogAction} that writes fields of {@link StructuredMessage}s as they are, so message does not have to
+ * be rendered to text for it. Plain text logs still come through {@link CallSiteLogAction#action(int, String,
+ * LogInfo, String, Throwable)}.
+ */
+public interface StructuredLogAction extends CallSiteLogAction {
+    /**
+     * Invoked for logs made with {@link StructuredMessage} when they go through {@link LogPipeline}.
+     */
+    void action(int priority, String tag, LogInfo logInfo, StructuredMessage message, Throwable t);
+}
@@ -0,0 +1,237 @@
+package com.github.bskierys.pine;
+
+import java.util.Arrays;
+
+/**
+ * <p>Message made of template and typed fields, for example {@code StructuredMessage.of("Loaded {count} items in
+ * {millis} ms").with("count", items.size()).with("millis", elapsed)}. Placeholders in template are names of fields in
+ * curly braces. Primitive values are kept as they are, nothing is converted to text when message is created.</p>
+ * <p>Message is rendered to text only when something needs text: {@link MessageFormatter}, output or {@link LogAction}
+ * that is not {@link StructuredLogAction}. Structured actions get fields as they are. Do not change message after it
+ * is logged - it can be handled on another thread.</p>
+ */
+public final class StructuredMessage {
+    /**
+     * Type of field value.
+     */
+    public enum Type {
+        LONG, DOUBLE, BOOLEAN, OBJECT
+    }
+
+    private static final int INITIAL_FIELDS = 4;
+
+    private final String template;
+    private String[] keys = new String[INITIAL_FIELDS];
+    private Type[] types = new Type[INITIAL_FIELDS];
+    private long[] primitives = new long[INITIAL_FIELDS];
+    private Object[] objects = new Object[INITIAL_FIELDS];
+    private int size;
+    private String rendered;
+
+    private StructuredMessage(String template) {
+        if (template == null) {
+            throw new NullPointerException("Template cannot be null");
+        }
+        this.template = template;
+    }
+
+    /**
+     * @param template Text with names of fields in curly braces, replaced by field values when message is rendered
+     */
+    public static StructuredMessage of(String template) {
+        return new StructuredMessage(template);
+    }
+
+    public StructuredMessage with(String key, long value) {
+        return add(key, Type.LONG, value, null);
+    }
+
+    public StructuredMessage with(String key, double value) {
+        return add(key, Type.DOUBLE, Double.doubleToRawLongBits(value), null);
+    }
+
+    public StructuredMessage with(String key, boolean value) {
+        return add(key, Type.BOOLEAN, value ? 1 : 0, null);
+    }
+
+    public StructuredMessage with(String key, Object value) {
+        return add(key, Type.OBJECT, 0, value);
+    }
+
+    private StructuredMessage add(String key, Type type, long primitive, Object object) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            types = Arrays.copyOf(types, size * 2);
+            primitives = Arrays.copyOf(primitives, size * 2);
+            objects = Arrays.copyOf(objects, size * 2);
+        }
+        keys[size] = key;
+        types[size] = type;
+        primitives[size] = primitive;
+        objects[size] = object;
+        size++;
+        rendered = null;
+        return this;
+    }
+
+    public String template() {
+        return template;
+    }
+
+    /**
+     * @return number of fields
+     */
+    public int size() {
+        return size;
+    }
+
+    public String key(int index) {
+        checkIndex(index);
+        return keys[index];
+    }
+
+    public Type type(int index) {
+        checkIndex(index);
+        return types[index];
+    }
+
+    /**
+     * @return value of field of type {@link Type#LONG}
+     */
+    public long longValue(int index) {
+        checkType(index, Type.LONG);
+        return primitives[index];
+    }
+
+    /**
+     * @return value of field of type {@link Type#DOUBLE}
+     */
+    public double doubleValue(int index) {
+        checkType(index, Type.DOUBLE);
+        return Double.longBitsToDouble(primitives[index]);
+    }
+
+    /**
+     * @return value of field of type {@link Type#BOOLEAN}
+     */
+    public boolean booleanValue(int index) {
+        checkType(index, Type.BOOLEAN);
+        return primitives[index] != 0;
+    }
+
+    /**
+     * @return value of field of any type, primitives are boxed
+     */
+    public Object value(int index) {
+        checkIndex(index);
+        switch (types[index]) {
+            case LONG:
+                return primitives[index];
+            case DOUBLE:
+                return Double.longBitsToDouble(primitives[index]);
+            case BOOLEAN:
+                return primitives[index] != 0;
+            default:
+                return objects[index];
+        }
+    }
+
+    /**
+     * @return index of field with given key or -1 if there is none
+     */
+    public int indexOf(String key) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return template with placeholders replaced by field values. Text is computed once and kept.
+     */
+    public String render() {
+        if (rendered == null) {
+            StringBuilder out = new StringBuilder(template.length() + 16 * size);
+            renderTo(out);
+            rendered = out.toString();
+        }
+        return rendered;
+    }
+
+    /**
+     * Appends template with placeholders replaced by field values. Placeholders with no matching field are left as
+     * they are.
+     */
+    public void renderTo(StringBuilder out) {
+        if (rendered != null) {
+            out.append(rendered);
+            return;
+        }
+        int length = template.length();
+        int copied = 0;
+        for (int open = template.indexOf('{'); open != -1; open = template.indexOf('{', open + 1)) {
+            int close = template.indexOf('}', open + 1);
+            if (close == -1) {
+                break;
+            }
+            int index = indexOf(open + 1, close);
+            if (index != -1) {
+                out.append(template, copied, open);
+                appendValue(index, out);
+                copied = close + 1;
+                open = close;
+            }
+        }
+        out.append(template, copied, length);
+    }
+
+    private int indexOf(int keyStart, int keyEnd) {
+        int keyLength = keyEnd - keyStart;
+        for (int i = 0; i < size; i++) {
+            if (keys[i].length() == keyLength && template.regionMatches(keyStart, keys[i], 0, keyLength)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void appendValue(int index, StringBuilder out) {
+        switch (types[index]) {
+            case LONG:
+                out.append(primitives[index]);
+                break;
+            case DOUBLE:
+                out.append(Double.longBitsToDouble(primitives[index]));
+                break;
+            case BOOLEAN:
+                out.append(primitives[index] != 0);
+                break;
+            default:
+                out.append(objects[index]);
+                break;
+        }
+    }
+
+    boolean isRendered() {
+        return rendered != null;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+    }
+
+    private void checkType(int index, Type type) {
+        checkIndex(index);
+        if (types[index] != type) {
+            throw new IllegalArgumentException("Field " + keys[index] + " is " + types[index] + ", not " + type);
+        }
+    }
+
+    @Override public String toString() {
+        return render();
+    }
+}
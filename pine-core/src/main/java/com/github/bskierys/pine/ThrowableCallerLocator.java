@@ -0,0 +1,21 @@
+package com.github.bskierys.pine;
+
+/**
+ * Finds caller in stack trace of new {@link Throwable}, skipping logging frames. Works everywhere, but fills whole
+ * stack trace to use just one frame.
+ */
+class ThrowableCallerLocator implements CallerLocator {
+    private final FrameFilter frameFilter;
+    private final int maxDepth;
+
+    ThrowableCallerLocator(FrameFilter frameFilter, int maxDepth) {
+        this.frameFilter = frameFilter;
+        this.maxDepth = maxDepth;
+    }
+
+    @Override public StackTraceElement locateCaller() {
+        // DO NOT switch this to Thread.getCurrentThread().getStackTrace(). The test will pass
+        // because Robolectric runs them on the JVM but on Android the elements are different.
+        return frameFilter.firstNotSkipped(new Throwable().getStackTrace(), maxDepth);
+    }
+}
@@ -0,0 +1,204 @@
+package com.github.bskierys.pine;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Turns throwables into stack trace text and remembers it, so exception that keeps coming back (the same network
+ * failure every few seconds) is not rendered again every time. Throwables are recognized by fingerprint of their
+ * classes, stack frames, causes and suppressed throwables. Messages are compared as well, so cached text never shows
+ * stale message.</p>
+ * <p>With {@link Builder#referenceRepeats()} full trace is written only the first time, tagged with id, and repeats
+ * get single line that points to it.</p> <p>Safe to use from many threads. Use {@link Builder} to create it.</p>
+ */
+public class ThrowableRenderer {
+    private static final int MAX_CAUSES = 32;
+    private static final Throwable[] NO_SUPPRESSED = new Throwable[0];
+    private static final boolean HAS_SUPPRESSED = hasSuppressed();
+
+    private final boolean referenceRepeats;
+    private final LinkedHashMap<Long, CachedTrace> cache;
+    private int nextId = 1;
+
+    private ThrowableRenderer(final Builder builder) {
+        this.referenceRepeats = builder.referenceRepeats;
+        this.cache = new LinkedHashMap<Long, CachedTrace>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<Long, CachedTrace> eldest) {
+                return size() > builder.cacheSize;
+            }
+        };
+    }
+
+    /**
+     * @return stack trace of throwable in the format of {@link Throwable#printStackTrace()} without trailing line
+     * break, or reference to trace rendered before if repeats are referenced
+     */
+    public String render(Throwable t) {
+        long fingerprint = fingerprint(t);
+        String[] messages = messages(t);
+        CachedTrace entry;
+        boolean first = false;
+        synchronized (this) {
+            entry = cache.get(fingerprint);
+            if (entry == null) {
+                entry = new CachedTrace(nextId++);
+                cache.put(fingerprint, entry);
+                first = true;
+            } else if (entry.trace != null && entry.hasMessages(messages)) {
+                return referenceRepeats ? reference(entry.id, t) : entry.trace;
+            }
+        }
+
+        if (!first && referenceRepeats) {
+            // messages changed, but it is still the same failure
+            return reference(entry.id, t);
+        }
+        String trace = referenceRepeats ? "[trace #" + entry.id + "] " + printStackTrace(t) : printStackTrace(t);
+        synchronized (this) {
+            entry.trace = trace;
+            entry.messages = messages;
+        }
+        return trace;
+    }
+
+    private static String reference(int id, Throwable t) {
+        return "[see trace #" + id + "] " + t;
+    }
+
+    private static String printStackTrace(Throwable t) {
+        StringWriter writer = new StringWriter(256);
+        PrintWriter printWriter = new PrintWriter(writer, false);
+        t.printStackTrace(printWriter);
+        printWriter.flush();
+        int end = writer.getBuffer().length();
+        while (end > 0 && Character.isWhitespace(writer.getBuffer().charAt(end - 1))) {
+            end--;
+        }
+        return writer.getBuffer().substring(0, end);
+    }
+
+    /**
+     * @return hash of classes and stack frames of throwable, its causes and suppressed throwables. Messages are not
+     * part of it.
+     */
+    static long fingerprint(Throwable t) {
+        return fingerprint(t, 1125899906842597L, new IdentityHashMap<Throwable, Boolean>());
+    }
+
+    private static long fingerprint(Throwable t, long hash, IdentityHashMap<Throwable, Boolean> seen) {
+        for (Throwable cause = t; cause != null && seen.size() < MAX_CAUSES && seen.put(cause, true) == null;
+             cause = cause.getCause()) {
+            hash = 31 * hash + cause.getClass().getName().hashCode();
+            for (StackTraceElement frame : cause.getStackTrace()) {
+                hash = 31 * hash + frame.getClassName().hashCode();
+                hash = 31 * hash + frame.getMethodName().hashCode();
+                hash = 31 * hash + frame.getLineNumber();
+            }
+            Throwable[] suppressed = suppressed(cause);
+            // count tells whether next throwable is suppressed by this one or its cause
+            hash = 31 * hash + suppressed.length;
+            for (Throwable each : suppressed) {
+                hash = fingerprint(each, hash, seen);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * @return messages of throwable, its causes and suppressed throwables, in the order fingerprint visits them
+     */
+    private static String[] messages(Throwable t) {
+        List<String> messages = new ArrayList<>();
+        addMessages(t, messages, new IdentityHashMap<Throwable, Boolean>());
+        return messages.toArray(new String[messages.size()]);
+    }
+
+    private static void addMessages(Throwable t, List<String> messages, IdentityHashMap<Throwable, Boolean> seen) {
+        for (Throwable cause = t; cause != null && seen.size() < MAX_CAUSES && seen.put(cause, true) == null;
+             cause = cause.getCause()) {
+            messages.add(cause.getMessage());
+            for (Throwable each : suppressed(cause)) {
+                addMessages(each, messages, seen);
+            }
+        }
+    }
+
+    private static Throwable[] suppressed(Throwable t) {
+        return HAS_SUPPRESSED ? t.getSuppressed() : NO_SUPPRESSED;
+    }
+
+    private static boolean hasSuppressed() {
+        try {
+            Throwable.class.getMethod("getSuppressed");
+            return true;
+        } catch (NoSuchMethodException e) {
+            // Android older than API 19
+            return false;
+        }
+    }
+
+    private static final class CachedTrace {
+        final int id;
+        String trace;
+        String[] messages;
+
+        CachedTrace(int id) {
+            this.id = id;
+        }
+
+        boolean hasMessages(String[] others) {
+            if (messages.length != others.length) {
+                return false;
+            }
+            for (int i = 0; i < messages.length; i++) {
+                if (messages[i] == null ? others[i] != null : !messages[i].equals(others[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Builder for {@link ThrowableRenderer}
+     */
+    public static class Builder {
+        private static final int DEFAULT_CACHE_SIZE = 64;
+
+        private int cacheSize = DEFAULT_CACHE_SIZE;
+        private boolean referenceRepeats;
+
+        /**
+         * Number of different throwables whose traces are kept. The least recently logged one is forgotten first.
+         * Default is 64.
+         */
+        public Builder setCacheSize(int size) {
+            if (size <= 0) {
+                throw new IllegalArgumentException("Cache size has to be positive: " + size);
+            }
+            this.cacheSize = size;
+            return this;
+        }
+
+        /**
+         * Full trace is rendered only the first time throwable is seen and starts with "[trace #id]". Every repeat
+         * that comes while it is still in cache is rendered as "[see trace #id] {throwable}". Turned off by default.
+         */
+        public Builder referenceRepeats() {
+            this.referenceRepeats = true;
+            return this;
+        }
+
+        /**
+         * Builds {@link ThrowableRenderer} object
+         */
+        public ThrowableRenderer build() {
+            return new ThrowableRenderer(this);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.bskierys.pine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket of single call site. Holds up to burst tokens and gets them back at constant rate, every log takes
+ * one. Counts logs that found it empty, so they can be reported once logs flow again.
+ */
+class TokenBucket {
+    private final RateLimit limit;
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefillNanos;
+    private long suppressed;
+
+    TokenBucket(RateLimit limit, long nowNanos) {
+        this.limit = limit;
+        this.tokensPerNano = limit.logsPerSecond() / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = limit.burst();
+        this.tokens = capacity;
+        this.lastRefillNanos = nowNanos;
+    }
+
+    RateLimit limit() {
+        return limit;
+    }
+
+    /**
+     * @return true if log can go on, false if it is suppressed
+     */
+    synchronized boolean tryAcquire(long nowNanos) {
+        if (nowNanos > lastRefillNanos) {
+            tokens = Math.min(capacity, tokens + (nowNanos - lastRefillNanos) * tokensPerNano);
+            lastRefillNanos = nowNanos;
+        }
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        suppressed++;
+        return false;
+    }
+
+    /**
+     * @return number of logs suppressed since last call
+     */
+    synchronized long takeSuppressed() {
+        long count = suppressed;
+        suppressed = 0;
+        return count;
+    }
+}
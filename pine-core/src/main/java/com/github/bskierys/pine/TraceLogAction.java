@@ -0,0 +1,17 @@
+package com.github.bskierys.pine;
+
+/**
+ * {@link CallSiteLogAction} that wants stack trace of logged throwable apart from message. With {@link
+ * ThrowableRenderer} set in {@link LogPipeline}, trace is rendered once per log (and cached between logs) and given
+ * to action as it is, so it does not have to render it again or cut it out of message.
+ */
+public interface TraceLogAction extends CallSiteLogAction {
+    /**
+     * Invoked instead of {@link #action(int, String, LogInfo, String, Throwable)} for logs with throwable when {@link
+     * ThrowableRenderer} is set in {@link LogPipeline}.
+     *
+     * @param message Message as it was logged, without stack trace
+     * @param trace Stack trace rendered by {@link ThrowableRenderer}, possibly just a reference to trace logged before
+     */
+    void action(int priority, String tag, LogInfo logInfo, String message, String trace, Throwable t);
+}
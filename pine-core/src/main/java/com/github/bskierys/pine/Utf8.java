@@ -0,0 +1,81 @@
+package com.github.bskierys.pine;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes text as UTF-8 straight into {@link ByteBuffer} without creating intermediate byte arrays.
+ */
+final class Utf8 {
+    /**
+     * Maximal number of bytes single call to {@link #encode(CharSequence, int, ByteBuffer)} puts for one character.
+     */
+    static final int MAX_CHAR_BYTES = 4;
+
+    private static final byte REPLACEMENT = '?';
+
+    private Utf8() {}
+
+    /**
+     * @return number of bytes text takes when encoded
+     */
+    static int encodedLength(CharSequence text) {
+        int length = text.length();
+        int bytes = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) {
+                bytes++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Encodes text starting from given index until its end or until buffer has less than {@link #MAX_CHAR_BYTES}
+     * bytes left. Broken surrogate pairs are replaced with '?'.
+     *
+     * @return index of first character that was not encoded
+     */
+    static int encode(CharSequence text, int index, ByteBuffer out) {
+        return encode(text, index, text.length(), out);
+    }
+
+    /**
+     * Same as {@link #encode(CharSequence, int, ByteBuffer)}, but stops at given end index.
+     */
+    static int encode(CharSequence text, int index, int length, ByteBuffer out) {
+        while (index < length && out.remaining() >= MAX_CHAR_BYTES) {
+            char c = text.charAt(index++);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | (c >> 6)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && index < length
+                    && Character.isLowSurrogate(text.charAt(index))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(index++));
+                out.put((byte) (0xF0 | (codePoint >> 18)));
+                out.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                out.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) {
+                out.put(REPLACEMENT);
+            } else {
+                out.put((byte) (0xE0 | (c >> 12)));
+                out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        return index;
+    }
+}
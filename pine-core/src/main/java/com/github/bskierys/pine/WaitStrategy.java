@@ -0,0 +1,24 @@
+package com.github.bskierys.pine;
+
+/**
+ * How thread waits when there is nothing to take from or no room to put into {@link AsyncDispatch} buffer.
+ */
+public enum WaitStrategy {
+    /**
+     * Parks thread until it is signalled. Uses no CPU when idle, but every log has to check if consumer needs waking.
+     */
+    BLOCKING,
+    /**
+     * Spins for a moment and then parks thread for short periods. Good balance between latency and CPU usage.
+     */
+    SLEEPING,
+    /**
+     * Yields thread to others. Low latency, but consumer thread keeps one core busy when there are other threads to
+     * run.
+     */
+    YIELDING,
+    /**
+     * Spins constantly. Lowest latency, but consumer thread keeps one core fully busy all the time.
+     */
+    BUSY_SPIN
+}
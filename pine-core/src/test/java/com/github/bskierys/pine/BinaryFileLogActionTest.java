@@ -0,0 +1,192 @@
+package com.github.bskierys.pine;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryFileLogActionTest {
+    private static final String TIMESTAMP = "\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}\\.\\d{3} ";
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private final LogInfo mainInfo = new AutoValue_LogInfo("PINE.sample", "Main", "onCreate", 12, "PINE");
+    private final LogInfo workerInfo = new AutoValue_LogInfo("PINE.sample", "Worker", "run", 40, "PINE");
+
+    private String decode(File file) throws IOException {
+        StringBuilder out = new StringBuilder();
+        BinaryLogDecoder.decode(file, out);
+        return out.toString();
+    }
+
+    private byte[] readBytes(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        InputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            while (offset < bytes.length) {
+                offset += in.read(bytes, offset, bytes.length - offset);
+            }
+        } finally {
+            in.close();
+        }
+        return bytes;
+    }
+
+    @Test public void testDecodesToDefaultTextLayout() throws Exception {
+        File directory = folder.newFolder();
+        BinaryFileLogAction action = new BinaryFileLogAction.Builder(directory).build();
+
+        action.action(Priority.INFO, "PINE.smpl", mainInfo, "Zażółć gęślą jaźń 🌲", null);
+        action.action(Priority.WARN, "PINE.smpl", workerInfo, "second", null);
+        action.action(Priority.DEBUG, "PINE.smpl", mainInfo, "third", null);
+        action.close();
+
+        String[] lines = decode(new File(directory, "pine.plog")).split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0], lines[0].matches(TIMESTAMP + "I/PINE\\.smpl: Main, onCreate, 12 ---> Zażółć gęślą jaźń 🌲"));
+        assertTrue(lines[1], lines[1].matches(TIMESTAMP + "W/PINE\\.smpl: Worker, run, 40 ---> second"));
+        assertTrue(lines[2], lines[2].matches(TIMESTAMP + "D/PINE\\.smpl: Main, onCreate, 12 ---> third"));
+    }
+
+    @Test public void testKeepsTagsOfTheSameCallSiteApart() throws Exception {
+        File directory = folder.newFolder();
+        BinaryFileLogAction action = new BinaryFileLogAction.Builder(directory).build();
+
+        action.action(Priority.INFO, "first", mainInfo, "a", null);
+        action.action(Priority.INFO, "second", mainInfo, "b", null);
+        action.action(Priority.INFO, "first", mainInfo, "c", null);
+        action.close();
+
+        String[] lines = decode(new File(directory, "pine.plog")).split("\n");
+        assertTrue(lines[0].contains("I/first: "));
+        assertTrue(lines[1].contains("I/second: "));
+        assertTrue(lines[2].contains("I/first: "));
+    }
+
+    @Test public void testWritesLogsWithoutCallSiteAsTheyAre() throws Exception {
+        File directory = folder.newFolder();
+        BinaryFileLogAction action = new BinaryFileLogAction.Builder(directory).build();
+
+        action.action(Priority.ERROR, "TAG", "already formatted", null);
+        action.close();
+
+        assertTrue(decode(new File(directory, "pine.plog")).matches(TIMESTAMP + "E/TAG: already formatted\n"));
+    }
+
+    @Test public void testIsSmallerThanText() throws Exception {
+        File directory = folder.newFolder();
+        BinaryFileLogAction binary = new BinaryFileLogAction.Builder(directory).build();
+        FileLogAction text = new FileLogAction.Builder(directory).build();
+        DefaultMessageFormatter formatter = new DefaultMessageFormatter();
+
+        for (int i = 0; i < 1000; i++) {
+            LogInfo info = i % 2 == 0 ? mainInfo : workerInfo;
+            binary.action(Priority.DEBUG, "PINE.smpl", info, "tick " + i, null);
+            MessageInfo messageInfo = new AutoValue_MessageInfo(info, "tick " + i, null);
+            text.action(Priority.DEBUG, "PINE.smpl", formatter.format(messageInfo), null);
+        }
+        binary.close();
+        text.close();
+
+        long binarySize = new File(directory, "pine.plog").length();
+        long textSize = new File(directory, "pine.log").length();
+        assertTrue(binarySize + " vs " + textSize, binarySize * 3 < textSize);
+    }
+
+    @Test public void testEverySegmentDecodesOnItsOwn() throws Exception {
+        File directory = folder.newFolder();
+        BinaryFileLogAction action = new BinaryFileLogAction.Builder(directory).rotateBySize(200)
+                                                                               .flushEveryRecords(1)
+                                                                               .build();
+        for (int i = 0; i < 50; i++) {
+            action.action(Priority.DEBUG, "TAG", i % 2 == 0 ? mainInfo : workerInfo, "message number " + i, null);
+        }
+        action.close();
+
+        File[] files = directory.listFiles();
+        assertTrue(files.length > 1);
+        int lines = 0;
+        for (File file : files) {
+            lines += decode(file).split("\n").length;
+        }
+        assertEquals(50, lines);
+    }
+
+    @Test public void testAppendsToFileAfterRestart() throws Exception {
+        File directory = folder.newFolder();
+        BinaryFileLogAction first = new BinaryFileLogAction.Builder(directory).build();
+        first.action(Priority.DEBUG, "TAG", workerInfo, "before", null);
+        first.close();
+        BinaryFileLogAction second = new BinaryFileLogAction.Builder(directory).build();
+        second.action(Priority.DEBUG, "TAG", mainInfo, "after", null);
+        second.close();
+
+        String[] lines = decode(new File(directory, "pine.plog")).split("\n");
+        assertTrue(lines[0].endsWith("Worker, run, 40 ---> before"));
+        assertTrue(lines[1].endsWith("Main, onCreate, 12 ---> after"));
+    }
+
+    @Test public void testSkipsLogCutAtTheEnd() throws Exception {
+        File directory = folder.newFolder();
+        BinaryFileLogAction action = new BinaryFileLogAction.Builder(directory).build();
+        action.action(Priority.DEBUG, "TAG", mainInfo, "complete", null);
+        action.action(Priority.DEBUG, "TAG", mainInfo, "cut in half", null);
+        action.close();
+
+        byte[] bytes = readBytes(new File(directory, "pine.plog"));
+        StringBuilder out = new StringBuilder();
+        long logs = BinaryLogDecoder.decode(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 4)), out);
+
+        assertEquals(1, logs);
+        assertTrue(out.toString().endsWith("---> complete\n"));
+    }
+
+    @Test public void testStartsSegmentAgainAfterFailedFlushOnTimer() throws Exception {
+        File directory = new File(folder.getRoot(), "logs");
+        // file in place of directory makes writes fail
+        assertTrue(directory.createNewFile());
+        BinaryFileLogAction action = new BinaryFileLogAction.Builder(directory).flushEvery(50, TimeUnit.MILLISECONDS)
+                                                                               .build();
+
+        action.action(Priority.INFO, "PINE.smpl", mainInfo, "lost", null);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (action.failedWrites() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, action.failedWrites());
+        assertTrue(directory.delete());
+        action.action(Priority.INFO, "PINE.smpl", mainInfo, "kept", null);
+        action.close();
+
+        String[] lines = decode(new File(directory, "pine.plog")).split("\n");
+        assertEquals(1, lines.length);
+        assertTrue(lines[0], lines[0].matches(TIMESTAMP + "I/PINE\\.smpl: Main, onCreate, 12 ---> kept"));
+    }
+
+    @Test public void testPipelinePassesCallSite() throws Exception {
+        File directory = folder.newFolder();
+        BinaryFileLogAction action = new BinaryFileLogAction.Builder(directory).build();
+        LogPipeline pipeline = new LogPipeline.Builder().setTagFormatter(new TagFormatter() {
+            @Override public String format(LogInfo info) {
+                return "TAG";
+            }
+        }).addLogAction(action).build();
+
+        pipeline.log(Priority.INFO, null, "from pipeline", null);
+        action.close();
+
+        assertTrue(decode(new File(directory, "pine.plog")).matches(
+                TIMESTAMP + "I/TAG: BinaryFileLogActionTest, testPipelinePassesCallSite, \\d+ ---> from pipeline\n"));
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.bskierys.pine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class CallSiteCacheTest {
+    private static final String CLASS_NAME = "com.example.package.ui.MainActivity";
+
+    private CallSite createCallSite(int line) {
+        LogInfo info = new AutoValue_LogInfo("com.example.package.ui", "MainActivity", "onCreate", line, null);
+        return new AutoValue_CallSite(info, "cm.xmpl.pckg.ui", null, null, Priority.VERBOSE, null, null);
+    }
+
+    @Test public void testCountsMissAndHit() throws Exception {
+        CallSiteCache cache = new CallSiteCache(16);
+        StackTraceElement element = new StackTraceElement(CLASS_NAME, "onCreate", "MainActivity.java", 67);
+        CallSite callSite = createCallSite(67);
+
+        assertNull(cache.get(element));
+        cache.put(element, callSite);
+        assertSame(callSite, cache.get(new StackTraceElement(CLASS_NAME, "onCreate", "MainActivity.java", 67)));
+
+        CacheStats stats = cache.stats();
+        assertEquals(1, stats.hitCount());
+        assertEquals(1, stats.missCount());
+        assertEquals(1, stats.size());
+        assertEquals(0.5, stats.hitRate(), 0.0001);
+    }
+
+    @Test public void testDistinguishesLines() throws Exception {
+        CallSiteCache cache = new CallSiteCache(16);
+        cache.put(new StackTraceElement(CLASS_NAME, "onCreate", "MainActivity.java", 67), createCallSite(67));
+
+        assertNull(cache.get(new StackTraceElement(CLASS_NAME, "onCreate", "MainActivity.java", 68)));
+    }
+
+    @Test public void testDoesNotGrowOverMaxSize() throws Exception {
+        CallSiteCache cache = new CallSiteCache(4);
+        for (int line = 0; line < 10; line++) {
+            cache.put(new StackTraceElement(CLASS_NAME, "onCreate", "MainActivity.java", line), createCallSite(line));
+        }
+
+        assertEquals(2, cache.stats().size());
+        assertEquals(4, cache.stats().maxSize());
+    }
+
+    @Test public void testDisabledCacheKeepsNothing() throws Exception {
+        CallSiteCache cache = new CallSiteCache(0);
+        StackTraceElement element = new StackTraceElement(CLASS_NAME, "onCreate", "MainActivity.java", 67);
+        cache.put(element, createCallSite(67));
+
+        assertNull(cache.get(element));
+        assertEquals(0, cache.stats().size());
+    }
+}
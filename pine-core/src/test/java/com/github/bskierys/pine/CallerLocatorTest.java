@@ -0,0 +1,78 @@
+package com.github.bskierys.pine;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CallerLocatorTest {
+    private static final FrameFilter FILTER = new FrameFilter(Arrays.asList(
+            ThrowableCallerLocator.class.getName(),
+            StackWalkerCallerLocator.class.getName(),
+            Facade.class.getName()));
+
+    static class Facade {
+        static StackTraceElement log(CallerLocator locator) {
+            return nested(locator);
+        }
+
+        private static StackTraceElement nested(CallerLocator locator) {
+            return locator.locateCaller();
+        }
+    }
+
+    @Test public void testFrameFilterSkipsInnerClasses() throws Exception {
+        FrameFilter filter = new FrameFilter(Collections.singletonList("timber.log.Timber"));
+
+        assertTrue(filter.isSkipped("timber.log.Timber"));
+        assertTrue(filter.isSkipped("timber.log.Timber$Tree"));
+        assertTrue(filter.isSkipped("timber.log.Timber$1"));
+        assertFalse(filter.isSkipped("timber.log.TimberExtensions"));
+    }
+
+    @Test public void testThrowableLocatorSkipsFacade() throws Exception {
+        StackTraceElement caller = Facade.log(new ThrowableCallerLocator(FILTER, 64));
+
+        assertEquals(CallerLocatorTest.class.getName(), caller.getClassName());
+        assertEquals("testThrowableLocatorSkipsFacade", caller.getMethodName());
+    }
+
+    @Test public void testStackWalkerLocatorSkipsFacade() throws Exception {
+        CallerLocator locator = StackWalkerCallerLocator.createIfAvailable(FILTER, 64);
+        if (locator == null) {
+            // runtime older than Java 9
+            assertFalse(hasStackWalker());
+            return;
+        }
+
+        StackTraceElement caller = Facade.log(locator);
+
+        assertNotNull(caller);
+        assertEquals(CallerLocatorTest.class.getName(), caller.getClassName());
+        assertEquals("testStackWalkerLocatorSkipsFacade", caller.getMethodName());
+    }
+
+    @Test public void testLocatorGivesUpAfterMaxDepth() throws Exception {
+        assertNull(Facade.log(new ThrowableCallerLocator(FILTER, 2)));
+
+        CallerLocator locator = StackWalkerCallerLocator.createIfAvailable(FILTER, 2);
+        if (locator != null) {
+            assertNull(Facade.log(locator));
+        }
+    }
+
+    private static boolean hasStackWalker() {
+        try {
+            Class.forName("java.lang.StackWalker");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
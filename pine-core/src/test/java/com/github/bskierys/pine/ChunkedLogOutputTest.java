@@ -0,0 +1,56 @@
+package com.github.bskierys.pine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ChunkedLogOutputTest {
+    private static class RecordingOutput extends ChunkedLogOutput {
+        final List<String> chunks = new ArrayList<>();
+
+        RecordingOutput(int maxLength) {
+            super(maxLength);
+        }
+
+        @Override protected void printChunk(int priority, String tag, String chunk) {
+            chunks.add(chunk);
+        }
+    }
+
+    @Test public void testPrintsShortMessageAtOnce() throws Exception {
+        RecordingOutput output = new RecordingOutput(40);
+
+        output.print(Priority.INFO, "TAG", "Main, run, 1 > ", "first\nsecond", null);
+
+        assertEquals(Collections.singletonList("Main, run, 1 > first\nsecond"), output.chunks);
+    }
+
+    @Test public void testSplitsLongMessageWithPrefixOnEveryChunk() throws Exception {
+        RecordingOutput output = new RecordingOutput(10);
+
+        output.print(Priority.INFO, "TAG", "P> ", new StringBuilder("abcdefghij\nxyz\n\nend"), null);
+
+        assertEquals(Arrays.asList("P> abcdefg", "P> hij", "P> xyz", "P> ", "P> end"), output.chunks);
+    }
+
+    @Test public void testSplitsWholeMessageWithoutPrefix() throws Exception {
+        RecordingOutput output = new RecordingOutput(4);
+
+        output.print(Priority.INFO, "TAG", "abcdef", null);
+
+        assertEquals(Arrays.asList("abcd", "ef"), output.chunks);
+    }
+
+    @Test public void testKeepsRoomForMessageWhenPrefixIsLong() throws Exception {
+        RecordingOutput output = new RecordingOutput(8);
+
+        output.print(Priority.INFO, "TAG", "long prefix ", "abcd", null);
+
+        assertEquals(Arrays.asList("long prefix ab", "long prefix cd"), output.chunks);
+    }
+}
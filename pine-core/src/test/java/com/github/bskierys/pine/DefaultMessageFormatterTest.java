@@ -16,8 +16,8 @@ public class DefaultMessageFormatterTest {
         int line = 67;
         String message = "Hello world!";
 
-        LogInfo logInfo = new AutoValue_LogInfo(packageName, className, methodName, line);
-        MessageInfo messageInfo = new AutoValue_MessageInfo(logInfo, message);
+        LogInfo logInfo = new AutoValue_LogInfo(packageName, className, methodName, line, null);
+        MessageInfo messageInfo = new AutoValue_MessageInfo(logInfo, message, null);
 
         String expectedMessage = String.format(Locale.UK, "%s, %s, %d ---> %s", className, methodName, line,
                                                message);
@@ -26,4 +26,14 @@ public class DefaultMessageFormatterTest {
 
         assertEquals(expectedMessage, actualMessage);
     }
-}
\ No newline at end of file
+
+    @Test public void testFormatToAppendsToBuffer() throws Exception {
+        AppendingMessageFormatter strategy = new DefaultMessageFormatter();
+
+        LogInfo logInfo = new AutoValue_LogInfo("com.github.bskierys", "Pine", "log", 12, null);
+        StringBuilder buffer = new StringBuilder(">");
+        strategy.formatTo(new AutoValue_MessageInfo(logInfo, "Hello world!", null), buffer);
+
+        assertEquals(">Pine, log, 12 ---> Hello world!", buffer.toString());
+    }
+}
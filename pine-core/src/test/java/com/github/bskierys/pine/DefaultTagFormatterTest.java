@@ -9,7 +9,7 @@ public class DefaultTagFormatterTest {
         TagFormatter strategy = new DefaultTagFormatter();
 
         String packageName = "{$1$}.utils.advancedHelpers";
-        LogInfo info = new AutoValue_LogInfo(packageName, "fakeClass", "fakeMethod", 67);
+        LogInfo info = new AutoValue_LogInfo(packageName, "fakeClass", "fakeMethod", 67, null);
 
         String expected = "{$1$}.tls.dvncdHlprs";
         String actual = strategy.format(info);
@@ -21,7 +21,7 @@ public class DefaultTagFormatterTest {
         TagFormatter strategy = new DefaultTagFormatter();
 
         String packageName = "{$1$}.communication.ui.wrappers";
-        LogInfo info = new AutoValue_LogInfo(packageName, "fakeClass", "fakeMethod", 67);
+        LogInfo info = new AutoValue_LogInfo(packageName, "fakeClass", "fakeMethod", 67, null);
 
         String expected = "{$1$}.cmmnctn.ui.wrpprs";
         String actual = strategy.format(info);
@@ -33,11 +33,41 @@ public class DefaultTagFormatterTest {
         TagFormatter strategy = new DefaultTagFormatter();
 
         String packageName = "com.github.bskierys.communication.ui.wrappers";
-        LogInfo info = new AutoValue_LogInfo(packageName, "fakeClass", "fakeMethod", 67);
+        LogInfo info = new AutoValue_LogInfo(packageName, "fakeClass", "fakeMethod", 67, null);
 
         String expected = "cm.gthb.bskrs.cmmnctn.ui.wrpprs";
         String actual = strategy.format(info);
 
         assertEquals(expected, actual);
     }
-}
\ No newline at end of file
+
+    @Test public void testCreateLogTagKeepsReplacement() throws Exception {
+        TagFormatter strategy = new DefaultTagFormatter();
+
+        String packageName = "PINE.utils.advancedHelpers";
+        LogInfo info = new AutoValue_LogInfo(packageName, "fakeClass", "fakeMethod", 67, "PINE");
+
+        String expected = "PINE.tls.dvncdHlprs";
+        String actual = strategy.format(info);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test public void testCreateLogTagWithReplacementOnly() throws Exception {
+        TagFormatter strategy = new DefaultTagFormatter();
+
+        LogInfo info = new AutoValue_LogInfo("APP", "fakeClass", "fakeMethod", 67, "APP");
+
+        assertEquals("APP", strategy.format(info));
+    }
+
+    @Test public void testFormatToAppendsToBuffer() throws Exception {
+        AppendingTagFormatter strategy = new DefaultTagFormatter();
+
+        LogInfo info = new AutoValue_LogInfo("PINE.utils.advancedHelpers", "fakeClass", "fakeMethod", 67, "PINE");
+        StringBuilder buffer = new StringBuilder("tag: ");
+        strategy.formatTo(info, buffer);
+
+        assertEquals("tag: PINE.tls.dvncdHlprs", buffer.toString());
+    }
+}
@@ -0,0 +1,147 @@
+package com.github.bskierys.pine;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FileLogActionTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private String read(File file) throws IOException {
+        if (!file.exists()) {
+            return "";
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] chunk = new byte[1024];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        return out.toString("UTF-8");
+    }
+
+    @Test public void testWritesLine() throws Exception {
+        File directory = folder.newFolder();
+        FileLogAction action = new FileLogAction.Builder(directory).build();
+
+        action.action(Priority.INFO, "PINE.tls", "Main, onCreate, 12 ---> Zażółć gęślą jaźń 🌲", null);
+        action.close();
+
+        String content = read(new File(directory, "pine.log"));
+        assertTrue(content, content.matches(
+                "\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}\\.\\d{3} I/PINE\\.tls: Main, onCreate, 12 ---> "
+                        + "Zażółć gęślą jaźń 🌲\n"));
+    }
+
+    @Test public void testBuffersUntilRecordLimit() throws Exception {
+        File directory = folder.newFolder();
+        FileLogAction action = new FileLogAction.Builder(directory).flushEveryRecords(3)
+                                                                   .flushEvery(0, TimeUnit.MILLISECONDS)
+                                                                   .build();
+        File file = new File(directory, "pine.log");
+
+        action.action(Priority.DEBUG, "TAG", "first", null);
+        action.action(Priority.DEBUG, "TAG", "second", null);
+        assertEquals("", read(file));
+
+        action.action(Priority.DEBUG, "TAG", "third", null);
+        assertEquals(3, read(file).split("\n").length);
+    }
+
+    @Test public void testFlushesOnTimerWithoutNextLog() throws Exception {
+        File directory = folder.newFolder();
+        FileLogAction action = new FileLogAction.Builder(directory).flushEvery(50, TimeUnit.MILLISECONDS).build();
+        File file = new File(directory, "pine.log");
+
+        action.action(Priority.DEBUG, "TAG", "last one", null);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (read(file).isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(read(file).endsWith("D/TAG: last one\n"));
+        action.close();
+    }
+
+    @Test public void testWritesRightAwayFromForcePriority() throws Exception {
+        File directory = folder.newFolder();
+        FileLogAction action = new FileLogAction.Builder(directory).flushEvery(0, TimeUnit.MILLISECONDS).build();
+        File file = new File(directory, "pine.log");
+
+        action.action(Priority.DEBUG, "TAG", "debug", null);
+        assertEquals("", read(file));
+
+        action.action(Priority.ERROR, "TAG", "error", null);
+        String content = read(file);
+        assertTrue(content.contains("D/TAG: debug\n"));
+        assertTrue(content.contains("E/TAG: error\n"));
+    }
+
+    @Test public void testHandlesLinesLongerThanBuffer() throws Exception {
+        File directory = folder.newFolder();
+        FileLogAction action = new FileLogAction.Builder(directory).setBufferSize(64).build();
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            message.append(i % 10);
+        }
+
+        action.action(Priority.DEBUG, "TAG", message.toString(), null);
+        action.close();
+
+        assertTrue(read(new File(directory, "pine.log")).endsWith("D/TAG: " + message + "\n"));
+    }
+
+    @Test public void testRotatesBySize() throws Exception {
+        File directory = folder.newFolder();
+        FileLogAction action = new FileLogAction.Builder(directory).setName("app")
+                                                                   .rotateBySize(200)
+                                                                   .flushEveryRecords(1)
+                                                                   .build();
+        for (int i = 0; i < 20; i++) {
+            action.action(Priority.DEBUG, "TAG", "message number " + i, null);
+        }
+        action.close();
+
+        File[] files = directory.listFiles();
+        assertTrue(files.length > 1);
+        int lines = 0;
+        for (File file : files) {
+            assertTrue(file.getName().startsWith("app"));
+            assertTrue(file.length() <= 200);
+            lines += read(file).split("\n").length;
+        }
+        assertEquals(20, lines);
+    }
+
+    @Test public void testRotatesByTime() throws Exception {
+        File directory = folder.newFolder();
+        FileLogAction action = new FileLogAction.Builder(directory).rotateByTime(20, TimeUnit.MILLISECONDS)
+                                                                   .flushEveryRecords(1)
+                                                                   .build();
+        action.action(Priority.DEBUG, "TAG", "old", null);
+        Thread.sleep(50);
+        action.action(Priority.DEBUG, "TAG", "new", null);
+        action.close();
+
+        assertEquals(2, directory.listFiles().length);
+        String active = read(new File(directory, "pine.log"));
+        assertTrue(active.contains("new"));
+        assertFalse(active.contains("old"));
+    }
+}
@@ -0,0 +1,159 @@
+package com.github.bskierys.pine;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FlightRecorderLogActionTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private String[] dump(FlightRecorderLogAction action) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        action.dump(out);
+        String content = out.toString("UTF-8");
+        return content.isEmpty() ? new String[0] : content.split("\n");
+    }
+
+    private String read(File file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] chunk = new byte[1024];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        return out.toString("UTF-8");
+    }
+
+    @Test public void testDumpsLogsInOrder() throws Exception {
+        FlightRecorderLogAction action = new FlightRecorderLogAction.Builder().build();
+
+        action.action(Priority.VERBOSE, "TAG", "first", null);
+        action.action(Priority.INFO, "PINE.tls", "Zażółć gęślą jaźń 🌲", null);
+
+        String[] lines = dump(action);
+        assertEquals(2, lines.length);
+        assertTrue(lines[0], lines[0].matches("\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}\\.\\d{3} V/TAG: first"));
+        assertTrue(lines[1], lines[1].endsWith(" I/PINE.tls: Zażółć gęślą jaźń 🌲"));
+    }
+
+    @Test public void testOverwritesOldestLogs() throws Exception {
+        FlightRecorderLogAction action = new FlightRecorderLogAction.Builder().setCapacity(1024).build();
+
+        for (int i = 0; i < 1000; i++) {
+            action.action(Priority.DEBUG, "TAG", "message number " + i, null);
+        }
+
+        String[] lines = dump(action);
+        assertTrue(lines.length > 10);
+        assertTrue(lines.length < 1000);
+        for (int i = 0; i < lines.length; i++) {
+            assertTrue(lines[i], lines[i].endsWith("D/TAG: message number " + (1000 - lines.length + i)));
+        }
+    }
+
+    @Test public void testCutsLongMessages() throws Exception {
+        FlightRecorderLogAction action = new FlightRecorderLogAction.Builder().setCapacity(4096)
+                                                                              .setMaxRecordSize(1024)
+                                                                              .build();
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            message.append('x');
+        }
+
+        action.action(Priority.DEBUG, "TAG", message.toString(), null);
+        action.action(Priority.DEBUG, "TAG", "after", null);
+
+        String[] lines = dump(action);
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].substring(lines[0].indexOf(": ") + 2).length() < 1024);
+        assertTrue(lines[1].endsWith("D/TAG: after"));
+    }
+
+    @Test public void testKeepsLogsOfManyThreadsWhole() throws Exception {
+        final FlightRecorderLogAction action = new FlightRecorderLogAction.Builder().setCapacity(16 * 1024).build();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final String tag = "T" + t;
+            Thread thread = new Thread(new Runnable() {
+                @Override public void run() {
+                    for (int i = 0; i < 5000; i++) {
+                        action.action(Priority.DEBUG, tag, "message " + i, null);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        String[] lines = dump(action);
+        assertTrue(lines.length > 100);
+        for (String line : lines) {
+            assertTrue(line, line.matches(".* D/T\\d: message \\d+"));
+        }
+    }
+
+    @Test public void testDumpsToFileWhenThrowableIsLogged() throws Exception {
+        File dumpFile = new File(folder.newFolder(), "crash/flight.log");
+        FlightRecorderLogAction action = new FlightRecorderLogAction.Builder().dumpTo(dumpFile, Priority.ERROR)
+                                                                              .build();
+
+        action.action(Priority.VERBOSE, "TAG", "before", null);
+        action.action(Priority.WARN, "TAG", "warning", new RuntimeException());
+        action.action(Priority.ERROR, "TAG", "no throwable", null);
+        assertFalse(dumpFile.exists());
+
+        action.action(Priority.ERROR, "TAG", "failure", new RuntimeException());
+        String content = read(dumpFile);
+        assertTrue(content.contains("V/TAG: before\n"));
+        assertTrue(content.endsWith("E/TAG: failure\n"));
+        assertEquals(0, action.failedDumps());
+    }
+
+    @Test public void testDumpsOnUncaughtException() throws Exception {
+        File dumpFile = new File(folder.newFolder(), "flight.log");
+        FlightRecorderLogAction action = new FlightRecorderLogAction.Builder().dumpTo(dumpFile, Priority.ASSERT)
+                                                                              .build();
+        final List<Throwable> passedOn = new ArrayList<>();
+        Thread.UncaughtExceptionHandler original = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override public void uncaughtException(Thread thread, Throwable e) {
+                passedOn.add(e);
+            }
+        });
+        try {
+            action.dumpOnUncaughtException();
+            action.action(Priority.DEBUG, "TAG", "last words", null);
+            IllegalStateException crash = new IllegalStateException("boom");
+
+            Thread.getDefaultUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), crash);
+
+            String content = read(dumpFile);
+            assertTrue(content.contains("D/TAG: last words\n"));
+            assertTrue(content.contains("A/Pine: Uncaught exception in thread "));
+            assertTrue(content.contains("IllegalStateException: boom"));
+            assertEquals(1, passedOn.size());
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(original);
+        }
+    }
+}
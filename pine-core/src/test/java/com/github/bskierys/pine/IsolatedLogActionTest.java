@@ -0,0 +1,102 @@
+package com.github.bskierys.pine;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IsolatedLogActionTest {
+    private static class RecordingAction implements LogAction {
+        final List<String> messages = new CopyOnWriteArrayList<>();
+
+        @Override public void action(int priority, String tag, String message, Throwable t) {
+            messages.add(message);
+        }
+    }
+
+    @Test public void testFailingActionDoesNotStopOthers() throws Exception {
+        RecordingAction recording = new RecordingAction();
+        IsolatedLogAction failing = new IsolatedLogAction.Builder(new LogAction() {
+            @Override public void action(int priority, String tag, String message, Throwable t) {
+                throw new IllegalStateException("Action failed");
+            }
+        }).build();
+        IsolatedLogAction isolated = new IsolatedLogAction.Builder(recording).build();
+        LogPipeline pipeline = new LogPipeline.Builder().addLogAction(failing).addLogAction(isolated).build();
+
+        pipeline.log(Priority.INFO, "TAG", "first", null);
+        pipeline.log(Priority.INFO, "TAG", "second", null);
+
+        assertTrue(pipeline.flushLogActions(5000));
+        assertEquals(2, recording.messages.size());
+        assertEquals(2, failing.stats().failedCount());
+        failing.shutdown(1000);
+        isolated.shutdown(1000);
+    }
+
+    @Test public void testStalledActionDoesNotDelayOthers() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        RecordingAction recording = new RecordingAction();
+        IsolatedLogAction stalled = new IsolatedLogAction.Builder(new LogAction() {
+            @Override public void action(int priority, String tag, String message, Throwable t) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }).setAsyncDispatch(new AsyncDispatch.Builder().setCapacity(2)
+                                                         .setOverflowPolicy(OverflowPolicy.DROP_NEWEST)
+                                                         .build()).build();
+        IsolatedLogAction isolated = new IsolatedLogAction.Builder(recording).build();
+        LogPipeline pipeline = new LogPipeline.Builder().addLogAction(stalled).addLogAction(isolated).build();
+
+        for (int i = 0; i < 10; i++) {
+            pipeline.log(Priority.INFO, "TAG", "message " + i, null);
+        }
+
+        assertTrue(isolated.flush(5000));
+        assertEquals(10, recording.messages.size());
+        assertTrue(stalled.stats().droppedCount() > 0);
+        release.countDown();
+        assertTrue(pipeline.flushLogActions(5000));
+        stalled.shutdown(1000);
+        isolated.shutdown(1000);
+    }
+
+    @Test public void testPassesCallSiteToAction() throws Exception {
+        final List<LogInfo> infos = new CopyOnWriteArrayList<>();
+        IsolatedLogAction isolated = new IsolatedLogAction.Builder(new CallSiteLogAction() {
+            @Override public void action(int priority, String tag, LogInfo logInfo, String message, Throwable t) {
+                infos.add(logInfo);
+            }
+
+            @Override public void action(int priority, String tag, String message, Throwable t) {
+                throw new AssertionError("Call site should be passed");
+            }
+        }).setAsyncDispatch(new AsyncDispatch.Builder().useVirtualThread().build()).build();
+        LogPipeline pipeline = new LogPipeline.Builder().addLogAction(isolated).build();
+
+        pipeline.log(Priority.INFO, "TAG", "message", null);
+
+        assertTrue(pipeline.flushLogActions(5000));
+        assertEquals(1, infos.size());
+        assertEquals("testPassesCallSiteToAction", infos.get(0).methodName());
+        isolated.shutdown(1000);
+    }
+
+    @Test public void testCreatesDaemonThreadWhenVirtualThreadIsNotAskedFor() throws Exception {
+        Thread thread = LogRingBuffer.newThread("Pine-test", new Runnable() {
+            @Override public void run() {
+            }
+        }, false);
+
+        assertEquals("Pine-test", thread.getName());
+        assertTrue(thread.isDaemon());
+    }
+}
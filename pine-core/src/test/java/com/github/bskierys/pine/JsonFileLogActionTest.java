@@ -0,0 +1,112 @@
+package com.github.bskierys.pine;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JsonFileLogActionTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private final LogInfo mainInfo = new AutoValue_LogInfo("PINE.sample", "Main", "onCreate", 12, "PINE");
+
+    private String[] readLines(File file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] chunk = new byte[1024];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        return out.toString("UTF-8").split("\n");
+    }
+
+    @Test public void testWritesFieldsWithoutRendering() throws Exception {
+        File directory = folder.newFolder();
+        JsonFileLogAction action = new JsonFileLogAction.Builder(directory).build();
+        StructuredMessage message = StructuredMessage.of("Loaded {count} items").with("count", -1234567890123L)
+                                                                                .with("ratio", 0.25)
+                                                                                .with("cached", false)
+                                                                                .with("user", "\"bob\"")
+                                                                                .with("none", null);
+
+        action.action(Priority.INFO, "PINE.smpl", mainInfo, message, null);
+        action.close();
+
+        String[] lines = readLines(new File(directory, "pine.jsonl"));
+        assertEquals(1, lines.length);
+        assertTrue(lines[0], lines[0].matches("\\{\"time\":\\d+,\"priority\":\"I\",\"tag\":\"PINE.smpl\","
+                + "\"package\":\"PINE.sample\",\"class\":\"Main\",\"method\":\"onCreate\",\"line\":12,"
+                + "\"template\":\"Loaded \\{count\\} items\",\"fields\":\\{\"count\":-1234567890123,\"ratio\":0.25,"
+                + "\"cached\":false,\"user\":\"\\\\\"bob\\\\\"\",\"none\":null\\}\\}"));
+        assertFalse(message.isRendered());
+    }
+
+    @Test public void testEscapesMessage() throws Exception {
+        File directory = folder.newFolder();
+        JsonFileLogAction action = new JsonFileLogAction.Builder(directory).build();
+
+        action.action(Priority.WARN, null, "line\nnext\t\"quoted\" \\ \u0001 Zażółć 🌲", null);
+        action.close();
+
+        String[] lines = readLines(new File(directory, "pine.jsonl"));
+        assertEquals(1, lines.length);
+        assertTrue(lines[0], lines[0].endsWith(",\"priority\":\"W\",\"tag\":\"\","
+                + "\"message\":\"line\\nnext\\t\\\"quoted\\\" \\\\ \\u0001 Zażółć 🌲\"}"));
+    }
+
+    @Test public void testAddsThrowable() throws Exception {
+        File directory = folder.newFolder();
+        JsonFileLogAction action = new JsonFileLogAction.Builder(directory).build();
+
+        action.action(Priority.ERROR, "TAG", mainInfo, "failed", new IllegalStateException("boom"));
+        action.close();
+
+        String line = readLines(new File(directory, "pine.jsonl"))[0];
+        assertTrue(line, line.contains(
+                "\"message\":\"failed\",\"throwable\":\"java.lang.IllegalStateException: boom\\n"));
+    }
+
+    @Test public void testPipelinePassesFields() throws Exception {
+        File directory = folder.newFolder();
+        JsonFileLogAction action = new JsonFileLogAction.Builder(directory).build();
+        LogPipeline pipeline = new LogPipeline.Builder().addLogAction(action).build();
+
+        pipeline.log(Priority.DEBUG, "TAG", StructuredMessage.of("took {ms} ms").with("ms", 15), null);
+        pipeline.log(Priority.DEBUG, "TAG", "plain", null);
+        action.close();
+
+        String[] lines = readLines(new File(directory, "pine.jsonl"));
+        assertEquals(2, lines.length);
+        assertTrue(lines[0], lines[0].contains(
+                "\"class\":\"JsonFileLogActionTest\",\"method\":\"testPipelinePassesFields\""));
+        assertTrue(lines[0], lines[0].endsWith("\"template\":\"took {ms} ms\",\"fields\":{\"ms\":15}}"));
+        assertTrue(lines[1], lines[1].endsWith("\"message\":\"plain\"}"));
+    }
+
+    @Test public void testWritesRenderedTrace() throws Exception {
+        File directory = folder.newFolder();
+        JsonFileLogAction action = new JsonFileLogAction.Builder(directory).build();
+
+        action.action(Priority.ERROR, "TAG", mainInfo, "failed", "[see trace #1] java.lang.Exception: boom",
+                      new Exception("boom"));
+        action.close();
+
+        String line = readLines(new File(directory, "pine.jsonl"))[0];
+        assertTrue(line, line.endsWith(
+                "\"message\":\"failed\",\"throwable\":\"[see trace #1] java.lang.Exception: boom\"}"));
+    }
+}
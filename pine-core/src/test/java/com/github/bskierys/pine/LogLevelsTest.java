@@ -0,0 +1,54 @@
+package com.github.bskierys.pine;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LogLevelsTest {
+    private final HashMap<String, Integer> tags = new HashMap<>();
+    private final LinkedHashMap<String, Integer> packages = new LinkedHashMap<>();
+
+    @Test public void testNothingDependsOnCallerWithoutOverrides() throws Exception {
+        LogLevels levels = new LogLevels(Priority.INFO, tags, packages);
+
+        for (int priority = Priority.VERBOSE; priority <= Priority.ASSERT; priority++) {
+            assertFalse(levels.dependsOnCaller(priority));
+        }
+        assertEquals(Priority.INFO, levels.packageMinPriority("com.example.package.MainActivity"));
+    }
+
+    @Test public void testDependsOnCallerBetweenOverrides() throws Exception {
+        packages.put("com.example.package", Priority.DEBUG);
+        tags.put("Network", Priority.ERROR);
+        LogLevels levels = new LogLevels(Priority.INFO, tags, packages);
+
+        assertFalse(levels.dependsOnCaller(Priority.VERBOSE));
+        assertTrue(levels.dependsOnCaller(Priority.DEBUG));
+        assertTrue(levels.dependsOnCaller(Priority.WARN));
+        assertFalse(levels.dependsOnCaller(Priority.ERROR));
+    }
+
+    @Test public void testLongestPackageWins() throws Exception {
+        packages.put("com.example", Priority.WARN);
+        packages.put("com.example.package.network", Priority.ERROR);
+        LogLevels levels = new LogLevels(Priority.VERBOSE, tags, packages);
+
+        assertEquals(Priority.ERROR, levels.packageMinPriority("com.example.package.network.Client"));
+        assertEquals(Priority.WARN, levels.packageMinPriority("com.example.package.ui.MainActivity"));
+        assertEquals(Priority.VERBOSE, levels.packageMinPriority("org.other.Library"));
+    }
+
+    @Test public void testTagPriority() throws Exception {
+        tags.put("Network", Priority.ERROR);
+        LogLevels levels = new LogLevels(Priority.VERBOSE, tags, packages);
+
+        assertEquals(Integer.valueOf(Priority.ERROR), levels.tagMinPriority("Network"));
+        assertNull(levels.tagMinPriority("Database"));
+    }
+}
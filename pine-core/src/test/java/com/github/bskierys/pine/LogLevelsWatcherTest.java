@@ -0,0 +1,69 @@
+package com.github.bskierys.pine;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LogLevelsWatcherTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private void write(File file, String content) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    @Test public void testAppliesPrioritiesFromFile() throws Exception {
+        File file = folder.newFile("levels.properties");
+        write(file, "priority=WARN\npriority.tag.Network=v\npriority.package.org.example=6\n");
+        LogPipeline pipeline = new LogPipeline.Builder().setMinPriority(Priority.DEBUG).build();
+        LogLevelsWatcher watcher = new LogLevelsWatcher(pipeline, file);
+
+        assertTrue(watcher.check());
+        assertFalse(watcher.check());
+
+        assertFalse(pipeline.isLoggable("TAG", Priority.INFO));
+        assertTrue(pipeline.isLoggable("Network", Priority.VERBOSE));
+        assertEquals(Priority.ERROR, pipeline.getCallSite(
+                new StackTraceElement("org.example.Db", "query", "Db.java", 1)).minPriority());
+    }
+
+    @Test public void testRestoresPrioritiesWhenFileIsGone() throws Exception {
+        File file = folder.newFile("levels.properties");
+        write(file, "priority=ERROR\n");
+        LogPipeline pipeline = new LogPipeline.Builder().setMinPriority(Priority.DEBUG).build();
+        LogLevelsWatcher watcher = new LogLevelsWatcher(pipeline, file);
+        watcher.check();
+        assertFalse(pipeline.isLoggable("TAG", Priority.DEBUG));
+
+        assertTrue(file.delete());
+        assertTrue(watcher.check());
+
+        assertTrue(pipeline.isLoggable("TAG", Priority.DEBUG));
+    }
+
+    @Test public void testSkipsBrokenFile() throws Exception {
+        File file = folder.newFile("levels.properties");
+        write(file, "priority=LOUD\n");
+        LogPipeline pipeline = new LogPipeline.Builder().setMinPriority(Priority.INFO).build();
+        LogLevelsWatcher watcher = new LogLevelsWatcher(pipeline, file);
+
+        assertFalse(watcher.check());
+
+        assertEquals(1, watcher.failedReads());
+        assertFalse(pipeline.isLoggable("TAG", Priority.DEBUG));
+        assertTrue(pipeline.isLoggable("TAG", Priority.INFO));
+    }
+}
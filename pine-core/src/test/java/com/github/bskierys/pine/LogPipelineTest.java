@@ -0,0 +1,526 @@
+package com.github.bskierys.pine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LogPipelineTest {
+    private static class RecordingOutput implements LogOutput {
+        final List<String> lines = new ArrayList<>();
+        Throwable lastThrowable;
+
+        @Override public void print(int priority, String tag, String message, Throwable t) {
+            lines.add(priority + " " + tag + ": " + message);
+            lastThrowable = t;
+        }
+    }
+
+    private static class Facade {
+        private final LogPipeline pipeline;
+
+        Facade(LogPipeline pipeline) {
+            this.pipeline = pipeline;
+        }
+
+        void debug(String message) {
+            if (pipeline.isLoggable(null, Priority.DEBUG)) {
+                pipeline.log(Priority.DEBUG, null, message, null);
+            }
+        }
+
+        /**
+         * The way Timber handles empty message: log passes but is never made.
+         */
+        void emptyDebug() {
+            pipeline.isLoggable(null, Priority.DEBUG);
+        }
+
+        void error(String message) {
+            if (pipeline.isLoggable(null, Priority.ERROR)) {
+                pipeline.log(Priority.ERROR, null, message, null);
+            }
+        }
+    }
+
+    @Test public void testLogsThroughFacadeToOutput() throws Exception {
+        RecordingOutput output = new RecordingOutput();
+        LogPipeline pipeline = new LogPipeline.Builder().addPackageReplacePattern("com.github.bskierys", "PINE")
+                                                        .addFacadeClass(Facade.class)
+                                                        .setOutput(output)
+                                                        .build();
+
+        new Facade(pipeline).debug("Hello world!");
+
+        assertEquals(1, output.lines.size());
+        assertTrue(output.lines.get(0).startsWith(Priority.DEBUG + " PINE.pn: LogPipelineTest, "
+                                                          + "testLogsThroughFacadeToOutput, "));
+        assertTrue(output.lines.get(0).endsWith(" ---> Hello world!"));
+    }
+
+    @Test public void testPassesThrowableToOutputAndActions() throws Exception {
+        final List<Throwable> actionThrowables = new ArrayList<>();
+        RecordingOutput output = new RecordingOutput();
+        LogPipeline pipeline = new LogPipeline.Builder().setOutput(output)
+                                                        .addLogAction(new LogAction() {
+                                                            @Override public void action(int priority, String tag,
+                                                                                         String message, Throwable t) {
+                                                                actionThrowables.add(t);
+                                                            }
+                                                        }).build();
+        Exception exception = new Exception("failure");
+
+        pipeline.log(Priority.ERROR, "TAG", "message", exception);
+
+        assertEquals(exception, output.lastThrowable);
+        assertEquals(1, actionThrowables.size());
+        assertEquals(exception, actionThrowables.get(0));
+    }
+
+    @Test public void testWorksWithoutOutput() throws Exception {
+        final List<String> messages = new ArrayList<>();
+        LogPipeline pipeline = new LogPipeline.Builder().setMinPriority(Priority.INFO)
+                                                        .addLogAction(new LogAction() {
+                                                            @Override public void action(int priority, String tag,
+                                                                                         String message, Throwable t) {
+                                                                messages.add(message);
+                                                            }
+                                                        }).build();
+
+        assertFalse(pipeline.isLoggable(null, Priority.DEBUG));
+        pipeline.log(Priority.INFO, "TAG", "message", null);
+
+        assertEquals(1, messages.size());
+        assertNull(pipeline.dispatchStats());
+    }
+
+    @Test public void testRateLimitsCallSiteAndReportsSuppressed() throws Exception {
+        RecordingOutput output = new RecordingOutput();
+        Facade facade = new Facade(new LogPipeline.Builder().setRateLimit(20, 1)
+                                                            .addFacadeClass(Facade.class)
+                                                            .setOutput(output)
+                                                            .build());
+
+        for (int i = 0; i < 4; i++) {
+            if (i == 3) {
+                Thread.sleep(200);
+            }
+            facade.debug("message " + i);
+        }
+
+        assertEquals(3, output.lines.size());
+        assertTrue(output.lines.get(0).endsWith(" ---> message 0"));
+        assertTrue(output.lines.get(1).endsWith(" ---> Suppressed 2 logs from this place by rate limit"));
+        assertTrue(output.lines.get(2).endsWith(" ---> message 3"));
+    }
+
+    @Test public void testKeepsRateLimitAcrossEvictionAndEdit() throws Exception {
+        RecordingOutput output = new RecordingOutput();
+        LogPipeline pipeline = new LogPipeline.Builder().setRateLimit(0.001, 2)
+                                                        .setCallSiteCacheSize(1)
+                                                        .addFacadeClass(Facade.class)
+                                                        .setOutput(output)
+                                                        .build();
+        Facade facade = new Facade(pipeline);
+
+        for (int i = 0; i < 6; i++) {
+            if (i == 4) {
+                assertTrue(pipeline.edit().setMinPriority(Priority.VERBOSE).apply());
+            }
+            // two places take turns in cache of single call site
+            facade.debug("first place");
+            facade.debug("second place");
+        }
+
+        assertEquals(4, output.lines.size());
+    }
+
+    @Test public void testRateLimitsWithoutCallSiteCache() throws Exception {
+        RecordingOutput output = new RecordingOutput();
+        Facade facade = new Facade(new LogPipeline.Builder().setRateLimit(0.001, 2)
+                                                            .setCallSiteCacheSize(0)
+                                                            .addFacadeClass(Facade.class)
+                                                            .setOutput(output)
+                                                            .build());
+
+        for (int i = 0; i < 5; i++) {
+            facade.debug("message " + i);
+        }
+
+        assertEquals(2, output.lines.size());
+        assertTrue(output.lines.get(1).endsWith(" ---> message 1"));
+    }
+
+    @Test public void testCoalescesRepeatsFromCallSite() throws Exception {
+        RecordingOutput output = new RecordingOutput();
+        Facade facade = new Facade(new LogPipeline.Builder().coalesceRepeats(1, TimeUnit.HOURS)
+                                                            .addFacadeClass(Facade.class)
+                                                            .setOutput(output)
+                                                            .build());
+
+        for (int i = 0; i < 6; i++) {
+            facade.debug(i < 5 ? "retrying" : "connected");
+        }
+
+        assertEquals(3, output.lines.size());
+        assertTrue(output.lines.get(0).endsWith(" ---> retrying"));
+        assertTrue(output.lines.get(1).endsWith(" ---> Last message repeated 4 times"));
+        assertTrue(output.lines.get(2).endsWith(" ---> connected"));
+    }
+
+    @Test public void testKeepsRepeatsAcrossEviction() throws Exception {
+        RecordingOutput output = new RecordingOutput();
+        Facade facade = new Facade(new LogPipeline.Builder().coalesceRepeats(1, TimeUnit.HOURS)
+                                                            .setCallSiteCacheSize(1)
+                                                            .addFacadeClass(Facade.class)
+                                                            .setOutput(output)
+                                                            .build());
+
+        for (int i = 0; i < 5; i++) {
+            // two places take turns in cache of single call site
+            facade.debug("retrying");
+            facade.debug("waiting");
+        }
+
+        assertEquals(2, output.lines.size());
+        assertTrue(output.lines.get(0).endsWith(" ---> retrying"));
+        assertTrue(output.lines.get(1).endsWith(" ---> waiting"));
+    }
+
+    @Test public void testCoalescesRepeatsWithoutCallSiteCache() throws Exception {
+        RecordingOutput output = new RecordingOutput();
+        Facade facade = new Facade(new LogPipeline.Builder().coalesceRepeats(1, TimeUnit.HOURS)
+                                                            .setCallSiteCacheSize(0)
+                                                            .addFacadeClass(Facade.class)
+                                                            .setOutput(output)
+                                                            .build());
+
+        for (int i = 0; i < 6; i++) {
+            facade.debug(i < 5 ? "retrying" : "connected");
+        }
+
+        assertEquals(3, output.lines.size());
+        assertTrue(output.lines.get(0).endsWith(" ---> retrying"));
+        assertTrue(output.lines.get(1).endsWith(" ---> Last message repeated 4 times"));
+        assertTrue(output.lines.get(2).endsWith(" ---> connected"));
+    }
+
+    @Test public void testDropsLogOfAsyncActionInsteadOfWaitingForItself() throws Exception {
+        final List<String> handled = new ArrayList<>();
+        final LogPipeline[] pipeline = new LogPipeline[1];
+        pipeline[0] = new LogPipeline.Builder().setAsyncDispatch(new AsyncDispatch.Builder()
+                                                                        .setCapacity(1)
+                                                                        .setOverflowPolicy(OverflowPolicy.BLOCK)
+                                                                        .build())
+                                               .addLogAction(new LogAction() {
+                                                   @Override public void action(int priority, String tag,
+                                                                                String message, Throwable t) {
+                                                       handled.add(message);
+                                                       if (message.endsWith("outer")) {
+                                                           // buffer is full with log handled right now
+                                                           pipeline[0].log(Priority.ERROR, "TAG", "inner", null);
+                                                       }
+                                                   }
+                                               }).build();
+
+        pipeline[0].log(Priority.INFO, "TAG", "outer", null);
+
+        assertTrue(pipeline[0].flushLogActions(5000));
+        assertEquals(1, handled.size());
+        assertEquals(1, pipeline[0].dispatchStats().droppedCount());
+        assertTrue(pipeline[0].shutdown(5000));
+    }
+
+    @Test public void testShutdownReportsHeldRepeatsAndStopsThreads() throws Exception {
+        RecordingOutput output = new RecordingOutput();
+        final List<String> handled = new ArrayList<>();
+        int threadsBefore = countPipelineThreads();
+        LogPipeline pipeline = new LogPipeline.Builder().coalesceRepeats(1, TimeUnit.HOURS)
+                                                        .dumpMetricsEvery(1, TimeUnit.HOURS, new MetricsListener() {
+                                                            @Override public void onMetrics(MetricsSnapshot snapshot) {
+                                                            }
+                                                        })
+                                                        .setAsyncDispatch(new AsyncDispatch.Builder().build())
+                                                        .addLogAction(new LogAction() {
+                                                            @Override public void action(int priority, String tag,
+                                                                                         String message, Throwable t) {
+                                                                handled.add(message);
+                                                            }
+                                                        })
+                                                        .addFacadeClass(Facade.class)
+                                                        .setOutput(output)
+                                                        .build();
+        Facade facade = new Facade(pipeline);
+        assertEquals(threadsBefore + 3, countPipelineThreads());
+
+        for (int i = 0; i < 3; i++) {
+            facade.debug("retrying");
+        }
+        assertTrue(pipeline.shutdown(5000));
+        facade.debug("stopped");
+
+        assertEquals(3, output.lines.size());
+        assertTrue(output.lines.get(1).endsWith(" ---> Last message repeated 2 times"));
+        assertEquals(2, handled.size());
+        assertEquals(1, pipeline.dispatchStats().droppedCount());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (countPipelineThreads() > threadsBefore && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(threadsBefore, countPipelineThreads());
+    }
+
+    private static int countPipelineThreads() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            String name = thread.getName();
+            if (thread.isAlive() && (name.equals("Pine-repeats") || name.equals("Pine-metrics")
+                    || name.equals("Pine-actions"))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test public void testRendersStructuredMessageForOutput() throws Exception {
+        RecordingOutput output = new RecordingOutput();
+        LogPipeline pipeline = new LogPipeline.Builder().setOutput(output).build();
+
+        pipeline.log(Priority.INFO, "TAG", StructuredMessage.of("Loaded {count} items").with("count", 3), null);
+
+        assertEquals(1, output.lines.size());
+        assertTrue(output.lines.get(0).endsWith(" ---> Loaded 3 items"));
+    }
+
+    @Test public void testDoesNotRenderStructuredMessageForStructuredAction() throws Exception {
+        final List<StructuredMessage> messages = new ArrayList<>();
+        LogPipeline pipeline = new LogPipeline.Builder().addLogAction(new StructuredLogAction() {
+            @Override public void action(int priority, String tag, LogInfo logInfo, StructuredMessage message,
+                                         Throwable t) {
+                messages.add(message);
+            }
+
+            @Override public void action(int priority, String tag, LogInfo logInfo, String message, Throwable t) {
+                throw new AssertionError("Text should not be needed");
+            }
+
+            @Override public void action(int priority, String tag, String message, Throwable t) {
+                throw new AssertionError("Text should not be needed");
+            }
+        }).build();
+        StructuredMessage message = StructuredMessage.of("Loaded {count} items").with("count", 3);
+
+        pipeline.log(Priority.INFO, "TAG", message, null);
+
+        assertEquals(1, messages.size());
+        assertEquals(message, messages.get(0));
+        assertFalse(message.isRendered());
+    }
+
+    @Test public void testChangesSettingsWhileRunning() throws Exception {
+        RecordingOutput output = new RecordingOutput();
+        final List<String> actionMessages = new ArrayList<>();
+        LogPipeline.Builder builder = new LogPipeline.Builder().setMinPriority(Priority.INFO)
+                                                               .addFacadeClass(Facade.class)
+                                                               .setOutput(output);
+        LogPipeline pipeline = builder.build();
+        Facade facade = new Facade(pipeline);
+        // builder changed after build does not touch pipeline
+        builder.setMinPriority(Priority.VERBOSE);
+
+        facade.debug("dropped");
+        assertTrue(pipeline.edit().setMinPriority(Priority.DEBUG)
+                           .addPackageReplacePattern("com.github.bskierys", "PINE")
+                           .addLogAction(new LogAction() {
+                               @Override public void action(int priority, String tag, String message, Throwable t) {
+                                   actionMessages.add(message);
+                               }
+                           }).apply());
+        facade.debug("logged");
+
+        assertEquals(1, output.lines.size());
+        assertTrue(output.lines.get(0), output.lines.get(0).startsWith(Priority.DEBUG + " PINE.pn: "));
+        assertEquals(1, actionMessages.size());
+        assertTrue(actionMessages.get(0).endsWith(" ---> logged"));
+    }
+
+    @Test public void testDoesNotApplyEditOfOutdatedSettings() throws Exception {
+        LogPipeline pipeline = new LogPipeline.Builder().build();
+        ConfigEditor first = pipeline.edit().setMinPriority(Priority.WARN);
+        ConfigEditor second = pipeline.edit().setMinPriority(Priority.ERROR);
+
+        assertTrue(first.apply());
+        assertFalse(second.apply());
+        assertFalse(pipeline.isLoggable("TAG", Priority.INFO));
+        assertTrue(pipeline.isLoggable("TAG", Priority.WARN));
+    }
+
+    @Test public void testReplacesAppendedTraceWithRenderedOne() throws Exception {
+        RecordingOutput output = new RecordingOutput();
+        LogPipeline pipeline = new LogPipeline.Builder()
+                .setOutput(output)
+                .setThrowableRenderer(new ThrowableRenderer.Builder().referenceRepeats().build())
+                .build();
+        Exception exception = new Exception("failure");
+        String appended = "message\n" + exception + "\n\tat Some.frame(Some.java:1)";
+
+        pipeline.logWithAppendedTrace(Priority.ERROR, "TAG", appended, exception);
+        pipeline.logWithAppendedTrace(Priority.ERROR, "TAG", appended, exception);
+
+        assertEquals(2, output.lines.size());
+        assertTrue(output.lines.get(0), output.lines.get(0).contains(" ---> message\n[trace #1] " + exception));
+        assertFalse(output.lines.get(0), output.lines.get(0).contains("Some.frame"));
+        assertTrue(output.lines.get(1), output.lines.get(1).endsWith(" ---> message\n[see trace #1] " + exception));
+    }
+
+    @Test public void testPassesTraceApartToTraceLogAction() throws Exception {
+        final List<String> messages = new ArrayList<>();
+        final List<String> traces = new ArrayList<>();
+        LogPipeline pipeline = new LogPipeline.Builder().setThrowableRenderer(new ThrowableRenderer.Builder().build())
+                                                        .addLogAction(new TraceLogAction() {
+            @Override public void action(int priority, String tag, LogInfo logInfo, String message, String trace,
+                                         Throwable t) {
+                messages.add(message);
+                traces.add(trace);
+            }
+
+            @Override public void action(int priority, String tag, LogInfo logInfo, String message, Throwable t) {
+                throw new AssertionError("Trace should be passed apart");
+            }
+
+            @Override public void action(int priority, String tag, String message, Throwable t) {
+                throw new AssertionError("Call site should be passed");
+            }
+        }).build();
+        Exception exception = new Exception("failure");
+
+        pipeline.log(Priority.ERROR, "TAG", "message", exception);
+
+        assertEquals(1, messages.size());
+        assertEquals("message", messages.get(0));
+        assertTrue(traces.get(0), traces.get(0).startsWith(exception + "\n\tat "));
+    }
+
+    @Test public void testStripsTraceAppendedByTimber() throws Exception {
+        Exception exception = new Exception("failure");
+        String trace = exception + "\n\tat Some.frame(Some.java:1)";
+
+        assertEquals("message", LogPipeline.stripTrace("message\n" + trace, exception));
+        assertEquals("", LogPipeline.stripTrace(trace, exception));
+        assertEquals("message", LogPipeline.stripTrace("message", exception));
+    }
+
+    @Test public void testTakesCallerFromHint() throws Exception {
+        RecordingOutput output = new RecordingOutput();
+        LogPipeline pipeline = new LogPipeline.Builder().setOutput(output).build();
+
+        CallSiteHint.enter(new StackTraceElement("com.example.Sample", "load", "Sample.java", 42));
+        try {
+            pipeline.log(Priority.INFO, null, "message", null);
+        } finally {
+            CallSiteHint.exit();
+        }
+        pipeline.log(Priority.INFO, null, "message", null);
+
+        assertEquals(2, output.lines.size());
+        assertEquals(Priority.INFO + " cm.xmpl: Sample, load, 42 ---> message", output.lines.get(0));
+        assertTrue(output.lines.get(1), output.lines.get(1).contains("LogPipelineTest, testTakesCallerFromHint, "));
+    }
+
+    @Test public void testGivesPrefixApartToChunkedOutput() throws Exception {
+        final List<String> printed = new ArrayList<>();
+        LogPipeline pipeline = new LogPipeline.Builder().addPackageReplacePattern("com.github.bskierys", "PINE")
+                                                        .usePackagePlaceholders()
+                                                        .setOutput(new ChunkedLogOutput(4000) {
+            @Override public void print(int priority, String tag, String prefix, CharSequence message, Throwable t) {
+                printed.add(prefix + "|" + message);
+            }
+
+            @Override protected void printChunk(int priority, String tag, String chunk) {
+                throw new AssertionError("Not called when print is overridden");
+            }
+        }).build();
+
+        pipeline.log(Priority.INFO, "TAG", "message", null);
+
+        assertEquals(1, printed.size());
+        assertTrue(printed.get(0), printed.get(0).matches("LogPipelineTest, testGivesPrefixApartToChunkedOutput, "
+                + "\\d+ ---> \\|message"));
+    }
+
+    @Test public void testPassesReusedEventToEventAction() throws Exception {
+        final List<LogEvent> events = new ArrayList<>();
+        final List<String> lines = new ArrayList<>();
+        LogPipeline pipeline = new LogPipeline.Builder().addLogAction(new LogEventAction() {
+            @Override public void action(LogEvent event) {
+                events.add(event);
+                lines.add(event.priority() + " " + event.tag() + " " + event.logInfo().methodName() + " "
+                                  + event.message() + " " + (event.thread() == Thread.currentThread()));
+            }
+
+            @Override public void action(int priority, String tag, String message, Throwable t) {
+                throw new AssertionError("Not called for logs that go through pipeline");
+            }
+        }).build();
+
+        pipeline.log(Priority.INFO, "TAG", "first", null);
+        pipeline.log(Priority.WARN, "TAG", StructuredMessage.of("{count} items").with("count", 3), null);
+
+        assertEquals(Priority.INFO + " TAG testPassesReusedEventToEventAction first true", lines.get(0));
+        assertEquals(Priority.WARN + " TAG testPassesReusedEventToEventAction 3 items true", lines.get(1));
+        assertTrue(events.get(0) == events.get(1));
+        // references are dropped once actions are done with event
+        assertNull(events.get(0).message());
+    }
+
+    @Test public void testGivesNestedLogOwnEvent() throws Exception {
+        final List<String> messages = new ArrayList<>();
+        final LogPipeline[] pipeline = new LogPipeline[1];
+        pipeline[0] = new LogPipeline.Builder().addLogAction(new LogEventAction() {
+            @Override public void action(LogEvent event) {
+                if (event.message().equals("outer")) {
+                    pipeline[0].log(Priority.INFO, "TAG", "nested", null);
+                }
+                messages.add(event.message());
+            }
+
+            @Override public void action(int priority, String tag, String message, Throwable t) {
+            }
+        }).build();
+
+        pipeline[0].log(Priority.INFO, "TAG", "outer", null);
+
+        assertEquals(2, messages.size());
+        assertEquals("nested", messages.get(0));
+        assertEquals("outer", messages.get(1));
+    }
+
+    @Test public void testDoesNotReuseCallerOfSkippedLog() throws Exception {
+        RecordingOutput output = new RecordingOutput();
+        Facade facade = new Facade(new LogPipeline.Builder().setMinPriority(Priority.DEBUG)
+                                                            .setPackageMinPriority("com.nothing", Priority.WARN)
+                                                            .addFacadeClass(Facade.class)
+                                                            .setOutput(output)
+                                                            .build());
+
+        logEmptyDebug(facade);
+        logError(facade);
+
+        assertEquals(1, output.lines.size());
+        assertTrue(output.lines.get(0), output.lines.get(0).contains("LogPipelineTest, logError, "));
+    }
+
+    private static void logEmptyDebug(Facade facade) {
+        facade.emptyDebug();
+    }
+
+    private static void logError(Facade facade) {
+        facade.error("boom");
+    }
+}
@@ -0,0 +1,178 @@
+package com.github.bskierys.pine;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LogRingBufferTest {
+    private final List<String> handled = Collections.synchronizedList(new ArrayList<String>());
+    private final CountDownLatch release = new CountDownLatch(1);
+    private LogRingBuffer buffer;
+
+    @After public void tearDown() throws Exception {
+        release.countDown();
+        if (buffer != null) {
+            buffer.shutdown(1000);
+        }
+    }
+
+    private static LogEvent event(int priority, String message) {
+        return new LogEvent().set(priority, "TAG", null, null, null, message, null, null);
+    }
+
+    private LogRingBuffer createBuffer(AsyncDispatch dispatch, final boolean blockHandler) {
+        return new LogRingBuffer(dispatch, new LogRingBuffer.Handler() {
+            @Override public void handle(PipelineConfig config, LogEvent event) {
+                if (blockHandler) {
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                handled.add(event.formattedMessage());
+            }
+        }, "test-consumer");
+    }
+
+    @Test public void testHandlesLogsInOrder() throws Exception {
+        buffer = createBuffer(new AsyncDispatch.Builder().setCapacity(8).build(), false);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(buffer.publish(null, event(Priority.DEBUG, "message " + i)));
+        }
+
+        assertTrue(buffer.awaitDrained(5000));
+        assertEquals(100, handled.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("message " + i, handled.get(i));
+        }
+        assertEquals(100, buffer.stats().queuedCount());
+        assertEquals(0, buffer.stats().pendingCount());
+    }
+
+    @Test public void testRoundsCapacityToPowerOfTwo() throws Exception {
+        buffer = createBuffer(new AsyncDispatch.Builder().setCapacity(100).build(), false);
+
+        assertEquals(128, buffer.stats().capacity());
+    }
+
+    @Test public void testDropsNewestWhenFull() throws Exception {
+        buffer = createBuffer(new AsyncDispatch.Builder().setCapacity(4)
+                                                        .setOverflowPolicy(OverflowPolicy.DROP_NEWEST)
+                                                        .build(), true);
+        int accepted = 0;
+        for (int i = 0; i < 10; i++) {
+            if (buffer.publish(null, event(Priority.ERROR, "message " + i))) {
+                accepted++;
+            }
+        }
+        release.countDown();
+
+        assertTrue(buffer.awaitDrained(5000));
+        assertEquals(accepted, handled.size());
+        assertEquals(10 - accepted, buffer.stats().droppedCount());
+        assertTrue(buffer.stats().droppedCount() > 0);
+    }
+
+    @Test public void testDropsOnlyBelowPriorityWhenFull() throws Exception {
+        buffer = createBuffer(new AsyncDispatch.Builder().setCapacity(2)
+                                                        .setOverflowPolicy(OverflowPolicy.DROP_BELOW_PRIORITY)
+                                                        .setDropPriority(Priority.WARN)
+                                                        .build(), true);
+        // slot is freed only when blocked consumer is done with it, so two logs fill the buffer
+        buffer.publish(null, event(Priority.ERROR, "error 0"));
+        buffer.publish(null, event(Priority.ERROR, "error 1"));
+
+        assertFalse(buffer.publish(null, event(Priority.DEBUG, "debug")));
+        release.countDown();
+        assertTrue(buffer.publish(null, event(Priority.ERROR, "error 2")));
+
+        assertTrue(buffer.awaitDrained(5000));
+        assertEquals(3, handled.size());
+        assertFalse(handled.contains("debug"));
+        assertEquals(1, buffer.stats().droppedCount());
+    }
+
+    @Test public void testBlocksWhenFull() throws Exception {
+        buffer = createBuffer(new AsyncDispatch.Builder().setCapacity(2)
+                                                        .setWaitStrategy(WaitStrategy.BLOCKING)
+                                                        .build(), false);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(buffer.publish(null, event(Priority.DEBUG, "message " + i)));
+        }
+
+        assertTrue(buffer.awaitDrained(5000));
+        assertEquals(1000, handled.size());
+        assertEquals(0, buffer.stats().droppedCount());
+    }
+
+    @Test public void testManyProducers() throws Exception {
+        buffer = createBuffer(new AsyncDispatch.Builder().setCapacity(16).build(), false);
+        Thread[] producers = new Thread[4];
+        for (int p = 0; p < producers.length; p++) {
+            producers[p] = new Thread(new Runnable() {
+                @Override public void run() {
+                    for (int i = 0; i < 500; i++) {
+                        buffer.publish(null, event(Priority.DEBUG, "message"));
+                    }
+                }
+            });
+            producers[p].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertTrue(buffer.awaitDrained(5000));
+        assertEquals(2000, handled.size());
+    }
+
+    @Test public void testCountsFailedActions() throws Exception {
+        buffer = new LogRingBuffer(new AsyncDispatch.Builder().build(), new LogRingBuffer.Handler() {
+            @Override public void handle(PipelineConfig config, LogEvent event) {
+                throw new IllegalStateException("Action failed");
+            }
+        }, "test-consumer");
+        buffer.publish(null, event(Priority.DEBUG, "message"));
+        buffer.publish(null, event(Priority.DEBUG, "message"));
+
+        assertTrue(buffer.awaitDrained(5000));
+        assertEquals(2, buffer.stats().failedCount());
+    }
+
+    @Test public void testKeepsConsumingAfterErrorOfAction() throws Exception {
+        buffer = new LogRingBuffer(new AsyncDispatch.Builder().setCapacity(2).build(), new LogRingBuffer.Handler() {
+            @Override public void handle(PipelineConfig config, LogEvent event) {
+                if (event.formattedMessage().equals("error")) {
+                    throw new StackOverflowError();
+                }
+                handled.add(event.formattedMessage());
+            }
+        }, "test-consumer");
+        buffer.publish(null, event(Priority.DEBUG, "error"));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(buffer.publish(null, event(Priority.DEBUG, "message " + i)));
+        }
+
+        assertTrue(buffer.awaitDrained(5000));
+        assertEquals(10, handled.size());
+        assertEquals(1, buffer.stats().failedCount());
+    }
+
+    @Test public void testDropsAfterShutdown() throws Exception {
+        buffer = createBuffer(new AsyncDispatch.Builder().build(), false);
+        assertTrue(buffer.shutdown(1000));
+
+        assertFalse(buffer.publish(null, event(Priority.DEBUG, "message")));
+        assertEquals(1, buffer.stats().droppedCount());
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.bskierys.pine;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PackageTrieTest {
+    private PackageTrie<String> trie;
+
+    @Before public void setUp() throws Exception {
+        trie = new PackageTrie<>();
+    }
+
+    @Test public void testFindsPackage() throws Exception {
+        trie.put("com.example.package", "REP");
+
+        PackageTrie.Entry<String> entry = trie.findLongestPrefix("com.example.package.ui.main.presenter");
+
+        assertEquals("com.example.package", entry.packageName());
+        assertEquals("REP", entry.value());
+    }
+
+    @Test public void testNotFindsPackage() throws Exception {
+        trie.put("com.example.package", "REP");
+
+        assertNull(trie.findLongestPrefix("com.kalafior.package.ui.main.presenter"));
+    }
+
+    @Test public void testNotFindsPackageInTheMiddle() throws Exception {
+        trie.put("example.package", "REP");
+
+        assertNull(trie.findLongestPrefix("com.example.package.ui.main.presenter"));
+    }
+
+    @Test public void testNotFindsLongerPackage() throws Exception {
+        trie.put("com.example.package.sample", "REP");
+
+        assertNull(trie.findLongestPrefix("com.example.package"));
+    }
+
+    @Test public void testFindsLongestPackage() throws Exception {
+        trie.put("com.example", "SHORT");
+        trie.put("com.example.package.sample", "LONG");
+        trie.put("com.example.package", "MIDDLE");
+
+        assertEquals("LONG", trie.findLongestPrefix("com.example.package.sample.ui").value());
+        assertEquals("MIDDLE", trie.findLongestPrefix("com.example.package.ui").value());
+        assertEquals("SHORT", trie.findLongestPrefix("com.example.ui").value());
+    }
+
+    @Test public void testReplacesValueOfSamePackage() throws Exception {
+        trie.put("com.example.package", "REP");
+        trie.put("com.example.package", "KEP");
+
+        assertEquals(1, trie.size());
+        assertEquals("KEP", trie.findLongestPrefix("com.example.package.ui").value());
+    }
+
+    @Test public void testFindsOneOfManyPackages() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            trie.put("com.example.module" + i, "MOD" + i);
+        }
+
+        assertEquals("MOD42", trie.findLongestPrefix("com.example.module42.ui").value());
+        assertEquals("MOD4", trie.findLongestPrefix("com.example.module4.ui").value());
+    }
+}
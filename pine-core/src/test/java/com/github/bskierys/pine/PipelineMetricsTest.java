@@ -0,0 +1,97 @@
+package com.github.bskierys.pine;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PipelineMetricsTest {
+    private static class SlowAction implements LogAction {
+        @Override public void action(int priority, String tag, String message, Throwable t) {
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Test public void testHistogramPercentiles() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 98; i++) {
+            histogram.record(100);
+        }
+        histogram.record(5000);
+        histogram.record(1000000);
+
+        StageStats stats = histogram.snapshot("stage");
+
+        assertEquals(100, stats.count());
+        assertEquals(127, stats.p50Nanos());
+        assertEquals(8191, stats.p99Nanos());
+        assertEquals(1000000, stats.maxNanos());
+        assertEquals((98 * 100 + 5000 + 1000000) / 100, stats.meanNanos());
+    }
+
+    @Test public void testHistogramOfNothing() throws Exception {
+        StageStats stats = new LatencyHistogram().snapshot("stage");
+
+        assertEquals(0, stats.count());
+        assertEquals(0, stats.p99Nanos());
+        assertEquals(0, stats.meanNanos());
+    }
+
+    @Test public void testMetricsAreOffByDefault() throws Exception {
+        assertNull(new LogPipeline.Builder().build().metrics());
+    }
+
+    @Test public void testCountsAndTimesStages() throws Exception {
+        LogPipeline pipeline = new LogPipeline.Builder().setMinPriority(Priority.INFO)
+                                                        .addLogAction(new SlowAction())
+                                                        .enableMetrics()
+                                                        .build();
+
+        assertFalse(pipeline.isLoggable(null, Priority.DEBUG));
+        pipeline.log(Priority.INFO, null, "first", null);
+        pipeline.log(Priority.INFO, null, "second", null);
+        pipeline.log(Priority.ERROR, null, "third", null);
+
+        MetricsSnapshot metrics = pipeline.metrics();
+        assertEquals(1, metrics.filteredCount(Priority.DEBUG));
+        assertEquals(2, metrics.loggedCount(Priority.INFO));
+        assertEquals(1, metrics.loggedCount(Priority.ERROR));
+        assertEquals(3, metrics.stage(PipelineStage.CALLER_LOOKUP).count());
+        assertEquals(3, metrics.stage(PipelineStage.MESSAGE_FORMAT).count());
+        assertEquals(0, metrics.stage(PipelineStage.OUTPUT).count());
+        assertTrue(metrics.stage(PipelineStage.LOG_INFO).count() >= 1);
+
+        StageStats action = metrics.actions().get(0);
+        assertEquals(SlowAction.class.getName(), action.name());
+        assertEquals(3, action.count());
+        assertTrue(action.maxNanos() >= TimeUnit.MILLISECONDS.toNanos(2));
+        assertTrue(metrics.toString().contains("action #0 " + SlowAction.class.getName() + " count=3"));
+    }
+
+    @Test public void testDumpsMetricsPeriodically() throws Exception {
+        final CountDownLatch dumped = new CountDownLatch(2);
+        final AtomicReference<MetricsSnapshot> lastSnapshot = new AtomicReference<>();
+        LogPipeline pipeline = new LogPipeline.Builder()
+                .dumpMetricsEvery(10, TimeUnit.MILLISECONDS, new MetricsListener() {
+                    @Override public void onMetrics(MetricsSnapshot snapshot) {
+                        lastSnapshot.set(snapshot);
+                        dumped.countDown();
+                    }
+                }).build();
+
+        pipeline.log(Priority.WARN, "TAG", "message", null);
+
+        assertTrue(dumped.await(5, TimeUnit.SECONDS));
+        assertEquals(1, lastSnapshot.get().loggedCount(Priority.WARN));
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.bskierys.pine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RepeatTrackerTest {
+    @Test public void testHoldsRepeatsAndReportsThemWhenRunEnds() throws Exception {
+        RepeatTracker tracker = new RepeatTracker();
+
+        assertNull(tracker.track(Priority.INFO, "tag", "polling", 0));
+        assertSame(RepeatTracker.HELD_FIRST, tracker.track(Priority.INFO, "tag", "polling", 1));
+        assertSame(RepeatTracker.HELD, tracker.track(Priority.INFO, "tag", "polling", 2));
+        assertTrue(tracker.hasRepeats());
+
+        RepeatTracker.Run run = tracker.track(Priority.INFO, "tag", "done", 3);
+        assertEquals(2, run.repeats);
+        assertEquals(Priority.INFO, run.priority);
+        assertEquals("tag", run.tag);
+        assertEquals("Last message repeated 2 times", run.summary());
+        assertFalse(tracker.hasRepeats());
+    }
+
+    @Test public void testDifferentTagOrPriorityIsNotRepeat() throws Exception {
+        RepeatTracker tracker = new RepeatTracker();
+
+        assertNull(tracker.track(Priority.INFO, "tag", "polling", 0));
+        assertNull(tracker.track(Priority.WARN, "tag", "polling", 0));
+        assertNull(tracker.track(Priority.WARN, "other", "polling", 0));
+        assertNull(tracker.track(Priority.WARN, "other", "pollinG", 0));
+    }
+
+    @Test public void testMessageWithoutTextIsNeverRepeat() throws Exception {
+        RepeatTracker tracker = new RepeatTracker();
+
+        assertNull(tracker.track(Priority.ERROR, "tag", null, 0));
+        assertNull(tracker.track(Priority.ERROR, "tag", null, 0));
+        assertFalse(tracker.hasRepeats());
+    }
+
+    @Test public void testExpiresLongRun() throws Exception {
+        RepeatTracker tracker = new RepeatTracker();
+        tracker.track(Priority.DEBUG, "tag", "tick", 0);
+        tracker.track(Priority.DEBUG, "tag", "tick", 10);
+        tracker.track(Priority.DEBUG, "tag", "tick", 20);
+
+        assertNull(tracker.expire(50, 100));
+        assertEquals(2, tracker.expire(110, 100).repeats);
+        assertNull(tracker.expire(300, 100));
+        assertSame(RepeatTracker.HELD_FIRST, tracker.track(Priority.DEBUG, "tag", "tick", 310));
+        assertEquals("Last message repeated 1 time", tracker.expire(410, 100).summary());
+    }
+}
@@ -0,0 +1,143 @@
+package com.github.bskierys.pine;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SegmentArchiverTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private String readGzip(File file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream in = new GZIPInputStream(new FileInputStream(file));
+        try {
+            byte[] chunk = new byte[1024];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        return out.toString("UTF-8");
+    }
+
+    private void createFile(File file, int bytes) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[bytes]);
+        } finally {
+            out.close();
+        }
+    }
+
+    @Test public void testCompressesRotatedFilesOnly() throws Exception {
+        File directory = folder.newFolder();
+        FileLogAction action = new FileLogAction.Builder(directory).rotateBySize(200)
+                                                                   .flushEveryRecords(1)
+                                                                   .compressRotated()
+                                                                   .build();
+        for (int i = 0; i < 20; i++) {
+            action.action(Priority.DEBUG, "TAG", "message number " + i, null);
+        }
+        action.close();
+        assertTrue(action.archiver.awaitIdle(5000));
+
+        int lines = 0;
+        for (File file : directory.listFiles()) {
+            if (file.getName().equals("pine.log")) {
+                continue;
+            }
+            assertTrue(file.getName(), file.getName().endsWith(".log.gz"));
+            lines += readGzip(file).split("\n").length;
+        }
+        assertTrue(new File(directory, "pine.log").exists());
+        assertEquals(0, action.failedArchives());
+        assertTrue(lines > 0);
+    }
+
+    @Test public void testKeepsNewestFiles() throws Exception {
+        File directory = folder.newFolder();
+        createFile(new File(directory, "pine-20260101-100000.log"), 10);
+        createFile(new File(directory, "pine-20260101-100000-1.log.gz"), 10);
+        createFile(new File(directory, "pine-20260102-100000.log.gz"), 10);
+        createFile(new File(directory, "pine.log"), 10);
+        createFile(new File(directory, "other.txt"), 10);
+
+        SegmentArchiver archiver = new SegmentArchiver(directory, "pine", "log", false, 2, 0);
+        archiver.segmentRotated();
+        assertTrue(archiver.awaitIdle(5000));
+
+        assertFalse(new File(directory, "pine-20260101-100000.log").exists());
+        assertTrue(new File(directory, "pine-20260101-100000-1.log.gz").exists());
+        assertTrue(new File(directory, "pine-20260102-100000.log.gz").exists());
+        assertTrue(new File(directory, "pine.log").exists());
+        assertTrue(new File(directory, "other.txt").exists());
+    }
+
+    @Test public void testKeepsFilesUnderTotalSize() throws Exception {
+        File directory = folder.newFolder();
+        createFile(new File(directory, "pine-20260101-100000.log"), 100);
+        createFile(new File(directory, "pine-20260102-100000.log"), 100);
+        createFile(new File(directory, "pine-20260103-100000.log"), 100);
+        createFile(new File(directory, "pine.log"), 1000);
+
+        SegmentArchiver archiver = new SegmentArchiver(directory, "pine", "log", false, 0, 250);
+        archiver.segmentRotated();
+        assertTrue(archiver.awaitIdle(5000));
+
+        assertFalse(new File(directory, "pine-20260101-100000.log").exists());
+        assertTrue(new File(directory, "pine-20260102-100000.log").exists());
+        assertTrue(new File(directory, "pine-20260103-100000.log").exists());
+    }
+
+    @Test public void testCleansUpAfterKilledCompression() throws Exception {
+        File directory = folder.newFolder();
+        createFile(new File(directory, "pine-20260101-100000.log"), 100);
+        createFile(new File(directory, "pine-20260101-100000.log.gz.tmp"), 10);
+
+        SegmentArchiver archiver = new SegmentArchiver(directory, "pine", "log", true, 0, 0);
+        archiver.segmentRotated();
+        assertTrue(archiver.awaitIdle(5000));
+
+        assertFalse(new File(directory, "pine-20260101-100000.log.gz.tmp").exists());
+        assertFalse(new File(directory, "pine-20260101-100000.log").exists());
+        assertEquals(100, readGzip(new File(directory, "pine-20260101-100000.log.gz")).length());
+    }
+
+    @Test public void testDecodesCompressedBinaryFile() throws Exception {
+        File directory = folder.newFolder();
+        BinaryFileLogAction action = new BinaryFileLogAction.Builder(directory).rotateByTime(1, TimeUnit.MILLISECONDS)
+                                                                               .flushEveryRecords(1)
+                                                                               .compressRotated()
+                                                                               .build();
+        LogInfo info = new AutoValue_LogInfo("PINE", "Main", "run", 1, null);
+        action.action(Priority.INFO, "TAG", info, "old", null);
+        Thread.sleep(10);
+        action.action(Priority.INFO, "TAG", info, "new", null);
+        action.close();
+        assertTrue(action.archiver.awaitIdle(5000));
+
+        File[] compressed = directory.listFiles();
+        StringBuilder out = new StringBuilder();
+        for (File file : compressed) {
+            if (file.getName().endsWith(".gz")) {
+                BinaryLogDecoder.decode(file, out);
+            }
+        }
+        assertTrue(out.toString(), out.toString().endsWith("Main, run, 1 ---> old\n"));
+    }
+}
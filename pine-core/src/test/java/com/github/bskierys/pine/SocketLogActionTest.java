@@ -0,0 +1,252 @@
+package com.github.bskierys.pine;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SocketLogActionTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Stand-in for collector process: reads records framed by {@link SocketLogAction} from TCP connections or UDP
+     * datagrams on local port.
+     */
+    private static class Collector implements Runnable {
+        final BlockingQueue<String> records = new LinkedBlockingQueue<>();
+        private final ServerSocketChannel server;
+        private final DatagramChannel datagrams;
+        private final Thread thread;
+
+        Collector(boolean udp, int port) throws IOException {
+            InetSocketAddress address = new InetSocketAddress("127.0.0.1", port);
+            if (udp) {
+                server = null;
+                datagrams = DatagramChannel.open();
+                datagrams.bind(address);
+            } else {
+                server = ServerSocketChannel.open();
+                server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+                server.bind(address);
+                datagrams = null;
+            }
+            thread = new Thread(this, "test-collector");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int port() throws IOException {
+            InetSocketAddress address = (InetSocketAddress) (server != null ? server.getLocalAddress()
+                                                                             : datagrams.getLocalAddress());
+            return address.getPort();
+        }
+
+        @Override public void run() {
+            try {
+                if (datagrams != null) {
+                    ByteBuffer buffer = ByteBuffer.allocate(65536);
+                    while (true) {
+                        buffer.clear();
+                        datagrams.receive(buffer);
+                        buffer.flip();
+                        records.add(UTF_8.decode(buffer).toString());
+                    }
+                }
+                while (true) {
+                    SocketChannel channel = server.accept();
+                    readFrames(channel);
+                }
+            } catch (IOException e) {
+                // closed by test
+            }
+        }
+
+        private void readFrames(SocketChannel channel) {
+            ByteBuffer length = ByteBuffer.allocate(4);
+            try {
+                while (true) {
+                    length.clear();
+                    readFully(channel, length);
+                    ByteBuffer record = ByteBuffer.allocate(length.getInt(0));
+                    readFully(channel, record);
+                    records.add(UTF_8.decode(record).toString());
+                }
+            } catch (IOException e) {
+                // connection closed, frame that was cut off is dropped
+            }
+        }
+
+        private static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) == -1) {
+                    throw new IOException("Connection closed");
+                }
+            }
+            buffer.flip();
+        }
+
+        void close() throws IOException {
+            if (server != null) {
+                server.close();
+            } else {
+                datagrams.close();
+            }
+        }
+    }
+
+    private final List<Collector> collectors = new ArrayList<>();
+    private SocketLogAction action;
+
+    private Collector startCollector(boolean udp, int port) throws IOException {
+        Collector collector = new Collector(udp, port);
+        collectors.add(collector);
+        return collector;
+    }
+
+    @After public void tearDown() throws Exception {
+        if (action != null) {
+            action.shutdown(1000);
+        }
+        for (Collector collector : collectors) {
+            collector.close();
+        }
+    }
+
+    @Test public void testSendsFramedRecordsOverTcp() throws Exception {
+        Collector collector = startCollector(false, 0);
+        action = new SocketLogAction.Builder("127.0.0.1", collector.port()).setBatchSize(256)
+                                                                          .setLinger(1, TimeUnit.MINUTES)
+                                                                          .build();
+        for (int i = 0; i < 100; i++) {
+            action.action(Priority.INFO, "TAG", "message " + i, null);
+        }
+
+        assertTrue(action.flush(5000));
+        for (int i = 0; i < 100; i++) {
+            String record = collector.records.poll(5, TimeUnit.SECONDS);
+            assertNotNull(record);
+            assertTrue(record, record.matches("\\d+ I/TAG: message " + i));
+        }
+        assertEquals(100, action.sentRecords());
+    }
+
+    @Test public void testSendsBatchOnceLingerPasses() throws Exception {
+        Collector collector = startCollector(false, 0);
+        action = new SocketLogAction.Builder("127.0.0.1", collector.port()).setLinger(50, TimeUnit.MILLISECONDS)
+                                                                          .build();
+
+        action.action(Priority.WARN, "TAG", "lonely", null);
+
+        String record = collector.records.poll(5, TimeUnit.SECONDS);
+        assertNotNull(record);
+        assertTrue(record, record.endsWith(" W/TAG: lonely"));
+    }
+
+    @Test public void testSendsCallSiteAndTraceOfPipelineLogs() throws Exception {
+        Collector collector = startCollector(false, 0);
+        action = new SocketLogAction.Builder("127.0.0.1", collector.port()).build();
+        LogPipeline pipeline = new LogPipeline.Builder().addLogAction(action).build();
+
+        pipeline.log(Priority.ERROR, "TAG", "failed", new IllegalStateException("broken"));
+
+        assertTrue(action.flush(5000));
+        String record = collector.records.poll(5, TimeUnit.SECONDS);
+        assertTrue(record, record.contains(" E/TAG: [SocketLogActionTest.testSendsCallSiteAndTraceOfPipelineLogs:"));
+        assertTrue(record, record.contains("] failed\njava.lang.IllegalStateException: broken\n"));
+    }
+
+    @Test public void testSpillsWhileDisconnectedAndReconnects() throws Exception {
+        Collector probe = startCollector(false, 0);
+        int port = probe.port();
+        probe.close();
+        action = new SocketLogAction.Builder("127.0.0.1", port).setLinger(0, TimeUnit.MILLISECONDS)
+                                                               .setReconnectBackoff(10, 50, TimeUnit.MILLISECONDS)
+                                                               .build();
+        for (int i = 0; i < 10; i++) {
+            action.action(Priority.INFO, "TAG", "message " + i, null);
+        }
+        assertFalse(action.flush(200));
+
+        Collector collector = startCollector(false, port);
+        assertTrue(action.flush(5000));
+        for (int i = 0; i < 10; i++) {
+            String record = collector.records.poll(5, TimeUnit.SECONDS);
+            assertTrue(record, record.endsWith("message " + i));
+        }
+        assertTrue(action.failedConnects() > 0);
+        assertEquals(0, action.droppedRecords());
+    }
+
+    @Test public void testDropsOldestWhenSpillIsFull() throws Exception {
+        Collector probe = startCollector(false, 0);
+        int port = probe.port();
+        probe.close();
+        action = new SocketLogAction.Builder("127.0.0.1", port).setBatchSize(256)
+                                                               .setSpillSize(256)
+                                                               .setLinger(0, TimeUnit.MILLISECONDS)
+                                                               .setReconnectBackoff(10, 50, TimeUnit.MILLISECONDS)
+                                                               .build();
+        for (int i = 0; i < 50; i++) {
+            action.action(Priority.INFO, "TAG", "message " + i, null);
+        }
+
+        Collector collector = startCollector(false, port);
+        assertTrue(action.flush(5000));
+        assertTrue(action.droppedRecords() > 0);
+        assertEquals(50, action.droppedRecords() + action.sentRecords());
+        String last = null;
+        for (String record = collector.records.poll(1, TimeUnit.SECONDS); record != null;
+             record = collector.records.poll(200, TimeUnit.MILLISECONDS)) {
+            last = record;
+        }
+        assertTrue(last, last.endsWith("message 49"));
+    }
+
+    @Test public void testSendsRecordPerDatagramOverUdp() throws Exception {
+        Collector collector = startCollector(true, 0);
+        action = new SocketLogAction.Builder("127.0.0.1", collector.port()).useUdp().build();
+        action.action(Priority.DEBUG, "TAG", "first", null);
+        action.action(Priority.DEBUG, "TAG", "second", null);
+
+        assertTrue(action.flush(5000));
+        assertTrue(collector.records.poll(5, TimeUnit.SECONDS).endsWith(" D/TAG: first"));
+        assertTrue(collector.records.poll(5, TimeUnit.SECONDS).endsWith(" D/TAG: second"));
+        assertNull(collector.records.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test public void testKeepsOnlyFramesThatWereNotWrittenCompletely() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        for (String record : new String[]{"first", "second", "third"}) {
+            buffer.putInt(record.length()).put(record.getBytes(UTF_8));
+        }
+        buffer.flip();
+        int end = buffer.limit();
+
+        // connection broke in the middle of second frame
+        assertEquals(1, SocketLogAction.dropWrittenFrames(buffer, 4 + 5 + 7, end));
+
+        buffer.flip();
+        assertEquals(4 + 6 + 4 + 5, buffer.remaining());
+        assertEquals(6, buffer.getInt(0));
+        assertEquals(0, SocketLogAction.dropWrittenFrames(buffer, 0, buffer.limit()));
+        assertEquals(4 + 6 + 4 + 5, buffer.position());
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.bskierys.pine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StructuredMessageTest {
+    @Test public void testRendersFieldsOfEveryType() throws Exception {
+        StructuredMessage message = StructuredMessage.of("{count} items, {ratio} full, cached: {cached}, by {user}")
+                                                     .with("count", 12)
+                                                     .with("ratio", 0.5)
+                                                     .with("cached", true)
+                                                     .with("user", "bob");
+
+        assertEquals("12 items, 0.5 full, cached: true, by bob", message.render());
+    }
+
+    @Test public void testKeepsUnknownPlaceholdersAndBraces() throws Exception {
+        StructuredMessage message = StructuredMessage.of("{a} {unknown} {} {a} {").with("a", 1);
+
+        assertEquals("1 {unknown} {} 1 {", message.render());
+    }
+
+    @Test public void testRendersOnlyOnce() throws Exception {
+        StructuredMessage message = StructuredMessage.of("value: {v}").with("v", 42L);
+
+        assertFalse(message.isRendered());
+        String first = message.render();
+        assertTrue(message.isRendered());
+        assertSame(first, message.render());
+        assertEquals("value: 42", message.toString());
+    }
+
+    @Test public void testGivesFieldsWithoutRendering() throws Exception {
+        StructuredMessage message = StructuredMessage.of("t");
+        for (int i = 0; i < 10; i++) {
+            message.with("key" + i, (long) i);
+        }
+        message.with("object", null);
+
+        assertEquals(11, message.size());
+        assertEquals("key7", message.key(7));
+        assertEquals(StructuredMessage.Type.LONG, message.type(7));
+        assertEquals(7, message.longValue(7));
+        assertEquals(7L, message.value(7));
+        assertEquals(10, message.indexOf("object"));
+        assertEquals(-1, message.indexOf("missing"));
+        assertFalse(message.isRendered());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testChecksTypeOfField() throws Exception {
+        StructuredMessage.of("t").with("flag", true).longValue(0);
+    }
+}
@@ -0,0 +1,91 @@
+package com.github.bskierys.pine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ThrowableRendererTest {
+    private static Exception failure(String message) {
+        // every call from the same line has the same stack
+        return new IllegalStateException(message, new RuntimeException("cause"));
+    }
+
+    @Test public void testRendersTraceLikePrintStackTrace() throws Exception {
+        ThrowableRenderer renderer = new ThrowableRenderer.Builder().build();
+        Exception exception = failure("failure");
+
+        String trace = renderer.render(exception);
+
+        assertTrue(trace, trace.startsWith(exception + "\n\tat "));
+        assertTrue(trace, trace.contains("Caused by: java.lang.RuntimeException: cause"));
+        assertFalse(trace, trace.endsWith("\n"));
+    }
+
+    @Test public void testReusesTraceOfRepeatedThrowable() throws Exception {
+        ThrowableRenderer renderer = new ThrowableRenderer.Builder().build();
+        String[] traces = new String[2];
+        for (int i = 0; i < traces.length; i++) {
+            traces[i] = renderer.render(failure("failure"));
+        }
+
+        assertSame(traces[0], traces[1]);
+    }
+
+    @Test public void testRendersAgainWhenMessageChanges() throws Exception {
+        ThrowableRenderer renderer = new ThrowableRenderer.Builder().build();
+        String[] traces = new String[2];
+        for (int i = 0; i < traces.length; i++) {
+            traces[i] = renderer.render(failure("failure " + i));
+        }
+
+        assertNotEquals(traces[0], traces[1]);
+        assertTrue(traces[1], traces[1].startsWith("java.lang.IllegalStateException: failure 1"));
+    }
+
+    @Test public void testRendersAgainWhenSuppressedThrowablesChange() throws Exception {
+        ThrowableRenderer renderer = new ThrowableRenderer.Builder().build();
+        Exception[] exceptions = new Exception[3];
+        for (int i = 0; i < exceptions.length; i++) {
+            exceptions[i] = failure("failure");
+        }
+        exceptions[1].addSuppressed(new Exception("close failed"));
+        exceptions[2].addSuppressed(new Exception("close failed again"));
+
+        String plain = renderer.render(exceptions[0]);
+        String suppressed = renderer.render(exceptions[1]);
+        String suppressedAgain = renderer.render(exceptions[2]);
+
+        assertFalse(plain, plain.contains("Suppressed: "));
+        assertTrue(suppressed, suppressed.contains("Suppressed: java.lang.Exception: close failed\n"));
+        assertTrue(suppressedAgain, suppressedAgain.contains("Suppressed: java.lang.Exception: close failed again"));
+        assertSame(plain, renderer.render(exceptions[0]));
+    }
+
+    @Test public void testReferencesRepeats() throws Exception {
+        ThrowableRenderer renderer = new ThrowableRenderer.Builder().referenceRepeats().build();
+        String[] traces = new String[3];
+        for (int i = 0; i < traces.length; i++) {
+            traces[i] = renderer.render(failure("failure " + i / 2));
+        }
+        String other = renderer.render(new Exception("other"));
+
+        assertTrue(traces[0], traces[0].startsWith("[trace #1] java.lang.IllegalStateException: failure 0\n\tat "));
+        assertEquals("[see trace #1] java.lang.IllegalStateException: failure 0", traces[1]);
+        assertEquals("[see trace #1] java.lang.IllegalStateException: failure 1", traces[2]);
+        assertTrue(other, other.startsWith("[trace #2] java.lang.Exception: other"));
+    }
+
+    @Test public void testForgetsLeastRecentlyRenderedThrowable() throws Exception {
+        ThrowableRenderer renderer = new ThrowableRenderer.Builder().setCacheSize(1).referenceRepeats().build();
+
+        renderer.render(failure("failure"));
+        renderer.render(new Exception("other"));
+        String trace = renderer.render(failure("failure"));
+
+        assertTrue(trace, trace.startsWith("[trace #3] "));
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.bskierys.pine;
+
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBucketTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test public void testAllowsBurstThenSuppresses() throws Exception {
+        TokenBucket bucket = new TokenBucket(RateLimit.create(1, 3), 0);
+
+        assertTrue(bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0));
+        assertFalse(bucket.tryAcquire(0));
+        assertFalse(bucket.tryAcquire(0));
+        assertEquals(2, bucket.takeSuppressed());
+        assertEquals(0, bucket.takeSuppressed());
+    }
+
+    @Test public void testRefillsAtRate() throws Exception {
+        TokenBucket bucket = new TokenBucket(RateLimit.create(2, 1), 0);
+
+        assertTrue(bucket.tryAcquire(0));
+        assertFalse(bucket.tryAcquire(SECOND / 4));
+        assertTrue(bucket.tryAcquire(SECOND / 2));
+        assertFalse(bucket.tryAcquire(SECOND / 2));
+    }
+
+    @Test public void testDoesNotRefillOverBurst() throws Exception {
+        TokenBucket bucket = new TokenBucket(RateLimit.create(10, 2), 0);
+
+        assertTrue(bucket.tryAcquire(100 * SECOND));
+        assertTrue(bucket.tryAcquire(100 * SECOND));
+        assertFalse(bucket.tryAcquire(100 * SECOND));
+    }
+
+    @Test public void testPackageLimitWinsOverDefault() throws Exception {
+        LinkedHashMap<String, RateLimit> packageLimits = new LinkedHashMap<>();
+        packageLimits.put("com.example.render", RateLimit.create(1, 1));
+        RateLimits rateLimits = new RateLimits(RateLimit.create(100, 100), packageLimits);
+
+        assertEquals(RateLimit.create(1, 1), rateLimits.limitFor("com.example.render.Frame"));
+        assertEquals(RateLimit.create(100, 100), rateLimits.limitFor("com.example.ui.Screen"));
+    }
+
+    @Test public void testNoBucketWithoutLimits() throws Exception {
+        RateLimits rateLimits = new RateLimits(null, new LinkedHashMap<String, RateLimit>());
+
+        assertFalse(rateLimits.isEnabled());
+        assertNull(rateLimits.limitFor("com.example.ui.Screen"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsEmptyBurst() throws Exception {
+        RateLimit.create(1, 0);
+    }
+}
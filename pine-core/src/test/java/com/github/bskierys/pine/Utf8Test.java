@@ -0,0 +1,41 @@
+package com.github.bskierys.pine;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class Utf8Test {
+    private static final String TEXT = "Pine ó € 🌲";
+
+    @Test public void testEncodesLikeJdk() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+
+        assertEquals(TEXT.length(), Utf8.encode(TEXT, 0, buffer));
+
+        byte[] actual = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(actual);
+        assertArrayEquals(TEXT.getBytes("UTF-8"), actual);
+        assertEquals(actual.length, Utf8.encodedLength(TEXT));
+    }
+
+    @Test public void testStopsWhenBufferIsFull() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(6);
+
+        assertEquals(3, Utf8.encode("abcdef", 0, buffer));
+        assertEquals(3, buffer.position());
+    }
+
+    @Test public void testReplacesBrokenSurrogate() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+
+        Utf8.encode("a\uD83Cb", 0, buffer);
+
+        assertEquals(3, buffer.position());
+        assertEquals('?', buffer.get(1));
+        assertEquals(3, Utf8.encodedLength("a\uD83Cb"));
+    }
+}
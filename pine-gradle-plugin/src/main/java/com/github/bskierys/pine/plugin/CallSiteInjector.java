@@ -0,0 +1,229 @@
+package com.github.bskierys.pine.plugin;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.FrameNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.LineNumberNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+import org.objectweb.asm.tree.TypeInsnNode;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>Rewrites class files, so logs made through Timber know where they come from without walking stack trace. Every
+ * call to Timber (and to {@link #PINE} structured log) gets its own static field with {@link StackTraceElement} of
+ * the call - class, method, file and line taken from class file - created once in static initializer. Call is
+ * surrounded with {@link #HINT}.enter(field) and {@link #HINT}.exit(), so Pine reads caller from there.</p> <p>Call
+ * that throws must not leave hint behind, or every later log of code that was not rewritten would get its place.
+ * Existing handlers that cover the call start with exit(), and catch-all handler added last to the method calls exit()
+ * and throws again when none of them catches. Its frame declares no locals, so nothing has to be loaded to compute
+ * it. Other inserted code does not branch and leaves stack as it was, so existing stack map frames stay valid.
+ * Interfaces and classes of Timber and Pine are left as they are.</p>
+ */
+public class CallSiteInjector {
+    static final String TIMBER = "timber/log/Timber";
+    static final String TREE = "timber/log/Timber$Tree";
+    static final String PINE = "com/github/bskierys/pine/Pine";
+    static final String HINT = "com/github/bskierys/pine/CallSiteHint";
+    static final String FIELD_PREFIX = "pine$callSite$";
+
+    private static final String ELEMENT = "java/lang/StackTraceElement";
+    private static final String ELEMENT_DESC = "L" + ELEMENT + ";";
+    private static final String STRUCTURED_LOG_DESC = "(ILcom/github/bskierys/pine/StructuredMessage;)V";
+
+    /**
+     * @return rewritten class or null if there was nothing to rewrite in it
+     */
+    public byte[] transform(byte[] classFile) {
+        ClassNode classNode = ClassFiles.read(classFile);
+        return rewrite(classNode) ? ClassFiles.write(classNode) : null;
+    }
+
+    /**
+     * @return true if class was changed
+     */
+    public boolean rewrite(ClassNode classNode) {
+        if ((classNode.access & Opcodes.ACC_INTERFACE) != 0 || isLoggingLibrary(classNode.name)
+                || isRewritten(classNode)) {
+            return false;
+        }
+
+        List<CallSite> callSites = new ArrayList<>();
+        for (MethodNode method : classNode.methods) {
+            Set<LabelNode> handlersWithExit = new HashSet<>();
+            int line = -1;
+            for (AbstractInsnNode insn = method.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+                if (insn instanceof LineNumberNode) {
+                    line = ((LineNumberNode) insn).line;
+                } else if (insn instanceof MethodInsnNode && isLogCall((MethodInsnNode) insn)) {
+                    String field = FIELD_PREFIX + callSites.size();
+                    callSites.add(new CallSite(field, method.name, line));
+                    method.instructions.insertBefore(insn, enter(classNode.name, field));
+                    method.instructions.insert(insn, exit());
+                    exitOnThrow(classNode, method, insn, handlersWithExit);
+                }
+            }
+        }
+        if (callSites.isEmpty()) {
+            return false;
+        }
+
+        InsnList init = new InsnList();
+        String className = classNode.name.replace('/', '.');
+        for (CallSite callSite : callSites) {
+            classNode.fields.add(new FieldNode(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL
+                                                       | Opcodes.ACC_SYNTHETIC, callSite.field, ELEMENT_DESC, null,
+                                               null));
+            init.add(createElement(className, callSite.method, classNode.sourceFile, callSite.line));
+            init.add(new FieldInsnNode(Opcodes.PUTSTATIC, classNode.name, callSite.field, ELEMENT_DESC));
+        }
+        staticInitializer(classNode).instructions.insert(init);
+        return true;
+    }
+
+    static boolean isLoggingLibrary(String className) {
+        return isInPackage(className, "timber/log/") || isInPackage(className, "com/github/bskierys/pine/");
+    }
+
+    private static boolean isInPackage(String className, String packagePrefix) {
+        // subpackages are not part of library, sample app lives in one of them
+        return className.startsWith(packagePrefix) && className.indexOf('/', packagePrefix.length()) == -1;
+    }
+
+    private static boolean isRewritten(ClassNode classNode) {
+        for (FieldNode field : classNode.fields) {
+            if (field.name.startsWith(FIELD_PREFIX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isLogCall(MethodInsnNode insn) {
+        if (insn.getOpcode() == Opcodes.INVOKESTATIC && TIMBER.equals(insn.owner)) {
+            return isLogMethod(insn.name);
+        } else if (insn.getOpcode() == Opcodes.INVOKEVIRTUAL && TREE.equals(insn.owner)) {
+            return isLogMethod(insn.name);
+        } else if (insn.getOpcode() == Opcodes.INVOKEVIRTUAL && PINE.equals(insn.owner)) {
+            return "log".equals(insn.name) && STRUCTURED_LOG_DESC.equals(insn.desc);
+        }
+        return false;
+    }
+
+    private static boolean isLogMethod(String name) {
+        switch (name) {
+            case "v":
+            case "d":
+            case "i":
+            case "w":
+            case "e":
+            case "wtf":
+            case "log":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Makes log call clear hint when it throws, whichever handler gets exception.
+     */
+    private static void exitOnThrow(ClassNode classNode, MethodNode method, AbstractInsnNode call,
+                                    Set<LabelNode> handlersWithExit) {
+        LabelNode start = new LabelNode();
+        LabelNode end = new LabelNode();
+        method.instructions.insertBefore(call, start);
+        method.instructions.insert(call, end);
+
+        int callIndex = method.instructions.indexOf(call);
+        for (TryCatchBlockNode block : method.tryCatchBlocks) {
+            if (method.instructions.indexOf(block.start) < callIndex && callIndex < method.instructions.indexOf(
+                    block.end) && handlersWithExit.add(block.handler)) {
+                method.instructions.insert(firstInstruction(block.handler), exit());
+            }
+        }
+
+        LabelNode handler = new LabelNode();
+        InsnList rethrow = new InsnList();
+        rethrow.add(handler);
+        if ((classNode.version & 0xFFFF) >= Opcodes.V1_6) {
+            rethrow.add(new FrameNode(Opcodes.F_FULL, 0, new Object[0], 1, new Object[]{"java/lang/Throwable"}));
+        }
+        rethrow.add(exit());
+        rethrow.add(new InsnNode(Opcodes.ATHROW));
+        method.instructions.add(rethrow);
+        // last in table, so handlers already in method get exception first
+        method.tryCatchBlocks.add(new TryCatchBlockNode(start, end, handler, null));
+    }
+
+    /**
+     * @return node right before first instruction of handler that starts with given label
+     */
+    private static AbstractInsnNode firstInstruction(LabelNode handler) {
+        AbstractInsnNode node = handler;
+        while (node.getNext() != null && node.getNext().getOpcode() == -1) {
+            node = node.getNext();
+        }
+        return node;
+    }
+
+    private static MethodInsnNode exit() {
+        return new MethodInsnNode(Opcodes.INVOKESTATIC, HINT, "exit", "()V", false);
+    }
+
+    private static InsnList enter(String owner, String field) {
+        InsnList list = new InsnList();
+        list.add(new FieldInsnNode(Opcodes.GETSTATIC, owner, field, ELEMENT_DESC));
+        list.add(new MethodInsnNode(Opcodes.INVOKESTATIC, HINT, "enter", "(" + ELEMENT_DESC + ")V", false));
+        return list;
+    }
+
+    private static InsnList createElement(String className, String method, String file, int line) {
+        InsnList list = new InsnList();
+        list.add(new TypeInsnNode(Opcodes.NEW, ELEMENT));
+        list.add(new InsnNode(Opcodes.DUP));
+        list.add(new LdcInsnNode(className));
+        list.add(new LdcInsnNode(method));
+        list.add(file == null ? new InsnNode(Opcodes.ACONST_NULL) : new LdcInsnNode(file));
+        list.add(new LdcInsnNode(line));
+        list.add(new MethodInsnNode(Opcodes.INVOKESPECIAL, ELEMENT, "<init>",
+                                    "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;I)V", false));
+        return list;
+    }
+
+    private static MethodNode staticInitializer(ClassNode classNode) {
+        for (MethodNode method : classNode.methods) {
+            if ("<clinit>".equals(method.name)) {
+                return method;
+            }
+        }
+        MethodNode method = new MethodNode(Opcodes.ACC_STATIC, "<clinit>", "()V", null, null);
+        method.instructions.add(new InsnNode(Opcodes.RETURN));
+        classNode.methods.add(method);
+        return method;
+    }
+
+    private static final class CallSite {
+        final String field;
+        final String method;
+        final int line;
+
+        CallSite(String field, String method, int line) {
+            this.field = field;
+            this.method = method;
+            this.line = line;
+        }
+    }
+}
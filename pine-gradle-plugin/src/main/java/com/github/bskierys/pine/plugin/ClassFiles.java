@@ -0,0 +1,30 @@
+package com.github.bskierys.pine.plugin;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.tree.ClassNode;
+
+/**
+ * Reads and writes class files for rewriters of this plugin.
+ */
+final class ClassFiles {
+    private ClassFiles() {
+        // no instances
+    }
+
+    static ClassNode read(byte[] classFile) {
+        ClassNode classNode = new ClassNode();
+        new ClassReader(classFile).accept(classNode, 0);
+        return classNode;
+    }
+
+    /**
+     * Rewriters never add branches nor change types on stack, so existing frames stay valid and only max stack has to
+     * be computed again. Handlers they add come with frames of their own. Nothing has to be loaded for that.
+     */
+    static byte[] write(ClassNode classNode) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        classNode.accept(writer);
+        return writer.toByteArray();
+    }
+}
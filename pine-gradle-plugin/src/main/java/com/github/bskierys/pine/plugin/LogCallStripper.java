@@ -0,0 +1,219 @@
+package com.github.bskierys.pine.plugin;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.IntInsnNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * <p>Removes Timber calls below given priority from class files: {@code Timber.v}, {@code Timber.d} and so on, and
+ * their {@code Timber.tag(tag).v} forms. Code that builds arguments goes away with the call if it surely has no side
+ * effects - constants, local variables, varargs array and boxing of primitives. Otherwise arguments are still
+ * evaluated and only dropped, so behaviour of app does not change. {@code Timber.log(priority, ...)} is left as it
+ * is, because its priority is known only at runtime.</p> <p>Removed code is straight and has no labels in it, so stack
+ * map frames stay valid.</p>
+ */
+public class LogCallStripper {
+    private final int minPriority;
+
+    /**
+     * @param minPriority Calls below it are removed, one of {@code android.util.Log} priorities
+     */
+    public LogCallStripper(int minPriority) {
+        this.minPriority = minPriority;
+    }
+
+    /**
+     * @return rewritten class or null if there was nothing to remove in it
+     */
+    public byte[] transform(byte[] classFile) {
+        ClassNode classNode = ClassFiles.read(classFile);
+        return rewrite(classNode) ? ClassFiles.write(classNode) : null;
+    }
+
+    /**
+     * @return true if class was changed
+     */
+    public boolean rewrite(ClassNode classNode) {
+        if (CallSiteInjector.isLoggingLibrary(classNode.name)) {
+            return false;
+        }
+        boolean changed = false;
+        for (MethodNode method : classNode.methods) {
+            AbstractInsnNode insn = method.instructions.getFirst();
+            while (insn != null) {
+                AbstractInsnNode next = insn.getNext();
+                if (insn instanceof MethodInsnNode && isStripped((MethodInsnNode) insn)) {
+                    changed |= strip(method, (MethodInsnNode) insn);
+                }
+                insn = next;
+            }
+        }
+        return changed;
+    }
+
+    private boolean isStripped(MethodInsnNode insn) {
+        boolean timber = insn.getOpcode() == Opcodes.INVOKESTATIC && CallSiteInjector.TIMBER.equals(insn.owner);
+        boolean tree = insn.getOpcode() == Opcodes.INVOKEVIRTUAL && CallSiteInjector.TREE.equals(insn.owner);
+        return (timber || tree) && priority(insn.name) < minPriority;
+    }
+
+    /**
+     * @return priority of Timber method or {@link Integer#MAX_VALUE} if it is not known at build time
+     */
+    static int priority(String methodName) {
+        switch (methodName) {
+            case "v":
+                return 2;
+            case "d":
+                return 3;
+            case "i":
+                return 4;
+            case "w":
+                return 5;
+            case "e":
+                return 6;
+            case "wtf":
+                return 7;
+            default:
+                return Integer.MAX_VALUE;
+        }
+    }
+
+    private static boolean strip(MethodNode method, MethodInsnNode call) {
+        int slots = Type.getArgumentsAndReturnSizes(call.desc) >> 2;
+        if (call.getOpcode() == Opcodes.INVOKESTATIC) {
+            // size above counts receiver
+            slots--;
+        }
+        AbstractInsnNode start = argumentsStart(call, slots);
+        if (start != null) {
+            AbstractInsnNode insn = start;
+            while (insn != call) {
+                AbstractInsnNode next = insn.getNext();
+                method.instructions.remove(insn);
+                insn = next;
+            }
+            method.instructions.remove(call);
+            return true;
+        }
+        if (call.getOpcode() == Opcodes.INVOKEVIRTUAL) {
+            // receiver may come from Timber.tag(), which must not be left without log that clears it
+            return false;
+        }
+        // every argument of Timber methods is reference, so one slot each
+        for (int i = 0; i < slots; i++) {
+            method.instructions.insertBefore(call, new InsnNode(Opcodes.POP));
+        }
+        method.instructions.remove(call);
+        return true;
+    }
+
+    /**
+     * Walks back from call as long as instructions only put side effect free values on stack.
+     *
+     * @return first instruction that builds arguments of call or null if they cannot be removed safely
+     */
+    private static AbstractInsnNode argumentsStart(MethodInsnNode call, int slots) {
+        int needed = slots;
+        AbstractInsnNode insn = call;
+        while (needed > 0) {
+            insn = insn.getPrevious();
+            if (insn == null) {
+                return null;
+            }
+            int[] effect = stackEffect(insn);
+            if (effect == null) {
+                return null;
+            }
+            needed = needed - effect[1] + effect[0];
+            if (needed < 0) {
+                return null;
+            }
+        }
+        return insn == call ? null : insn;
+    }
+
+    /**
+     * @return slots taken from and put on stack by instruction or null if it is not known to be side effect free.
+     * Labels, line numbers and frames are not, so removed code never spans them.
+     */
+    private static int[] stackEffect(AbstractInsnNode insn) {
+        int opcode = insn.getOpcode();
+        switch (opcode) {
+            case Opcodes.ACONST_NULL:
+            case Opcodes.ICONST_M1:
+            case Opcodes.ICONST_0:
+            case Opcodes.ICONST_1:
+            case Opcodes.ICONST_2:
+            case Opcodes.ICONST_3:
+            case Opcodes.ICONST_4:
+            case Opcodes.ICONST_5:
+            case Opcodes.FCONST_0:
+            case Opcodes.FCONST_1:
+            case Opcodes.FCONST_2:
+            case Opcodes.BIPUSH:
+            case Opcodes.SIPUSH:
+            case Opcodes.ILOAD:
+            case Opcodes.FLOAD:
+            case Opcodes.ALOAD:
+                return new int[] {0, 1};
+            case Opcodes.LCONST_0:
+            case Opcodes.LCONST_1:
+            case Opcodes.DCONST_0:
+            case Opcodes.DCONST_1:
+            case Opcodes.LLOAD:
+            case Opcodes.DLOAD:
+                return new int[] {0, 2};
+            case Opcodes.LDC:
+                Object constant = ((LdcInsnNode) insn).cst;
+                return new int[] {0, constant instanceof Long || constant instanceof Double ? 2 : 1};
+            case Opcodes.DUP:
+                return new int[] {1, 2};
+            case Opcodes.ANEWARRAY:
+                // varargs array, its size is constant and cannot be negative
+                return isSize(insn.getPrevious()) ? new int[] {1, 1} : null;
+            case Opcodes.AASTORE:
+                return new int[] {3, 0};
+            case Opcodes.INVOKESTATIC:
+                return invokeEffect((MethodInsnNode) insn);
+            default:
+                return null;
+        }
+    }
+
+    private static boolean isSize(AbstractInsnNode insn) {
+        if (insn == null) {
+            return false;
+        }
+        int opcode = insn.getOpcode();
+        if (opcode >= Opcodes.ICONST_0 && opcode <= Opcodes.ICONST_5) {
+            return true;
+        }
+        return (opcode == Opcodes.BIPUSH || opcode == Opcodes.SIPUSH) && ((IntInsnNode) insn).operand >= 0;
+    }
+
+    /**
+     * Boxing of primitives, {@code String.valueOf} of them and {@code Timber.tag}, which only matters for log that
+     * follows it.
+     */
+    private static int[] invokeEffect(MethodInsnNode insn) {
+        if (CallSiteInjector.TIMBER.equals(insn.owner) && "tag".equals(insn.name)) {
+            return new int[] {1, 1};
+        }
+        if (!"valueOf".equals(insn.name) || !insn.owner.startsWith("java/lang/")) {
+            return null;
+        }
+        Type[] arguments = Type.getArgumentTypes(insn.desc);
+        if (arguments.length != 1 || arguments[0].getSort() > Type.DOUBLE
+                || !Type.getReturnType(insn.desc).getInternalName().equals(insn.owner)) {
+            return null;
+        }
+        return new int[] {arguments[0].getSize(), 1};
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.bskierys.pine.plugin;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Settings of Pine Gradle plugin, set in {@code pine { }} block of build script.
+ */
+public class PineExtension {
+    private static final String[] PRIORITY_NAMES = {"VERBOSE", "DEBUG", "INFO", "WARN", "ERROR", "ASSERT"};
+    private static final int VERBOSE = 2;
+
+    private boolean injectCallSites = true;
+    private final LinkedHashMap<String, Integer> stripBelow = new LinkedHashMap<>();
+
+    public boolean isInjectCallSites() {
+        return injectCallSites;
+    }
+
+    /**
+     * Rewrites Timber calls, so Pine knows where logs come from without walking stack trace. See {@link
+     * CallSiteInjector}. On by default.
+     */
+    public void setInjectCallSites(boolean injectCallSites) {
+        this.injectCallSites = injectCallSites;
+    }
+
+    /**
+     * Removes Timber calls below given priority from classes of build type or variant, see {@link LogCallStripper}.
+     * Setting for whole variant wins over setting for its build type: {@code stripBelow 'release', 'INFO'} and {@code
+     * stripBelow 'stagingRelease', 'DEBUG'}.
+     *
+     * @param priority Priority number or its name: VERBOSE, DEBUG, INFO, WARN, ERROR, ASSERT or their first letter
+     */
+    public void stripBelow(String buildTypeOrVariant, Object priority) {
+        stripBelow.put(buildTypeOrVariant, parsePriority(priority));
+    }
+
+    /**
+     * @return priority below which calls are removed in given variant or null if nothing is removed
+     */
+    Integer stripPriority(String variantName) {
+        Integer priority = stripBelow.get(variantName);
+        if (priority != null) {
+            return priority;
+        }
+        for (Map.Entry<String, Integer> entry : stripBelow.entrySet()) {
+            String buildType = entry.getKey();
+            // variant name is flavors followed by capitalized build type
+            String suffix = Character.toUpperCase(buildType.charAt(0)) + buildType.substring(1);
+            if (variantName.endsWith(suffix)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    static int parsePriority(Object priority) {
+        if (priority instanceof Number) {
+            return ((Number) priority).intValue();
+        }
+        String name = String.valueOf(priority).trim().toUpperCase(Locale.US);
+        for (int i = 0; i < PRIORITY_NAMES.length; i++) {
+            if (PRIORITY_NAMES[i].equals(name) || name.length() == 1 && PRIORITY_NAMES[i].charAt(0) == name.charAt(0)) {
+                return VERBOSE + i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown priority: " + priority);
+    }
+}
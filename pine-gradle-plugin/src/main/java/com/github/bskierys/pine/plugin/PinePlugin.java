@@ -0,0 +1,27 @@
+package com.github.bskierys.pine.plugin;
+
+import com.android.build.gradle.BaseExtension;
+import com.android.build.gradle.LibraryPlugin;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+
+/**
+ * <p>Gradle plugin that rewrites compiled classes of Android application or library with {@link PineTransform}.
+ * Apply it after Android plugin:</p> <pre>
+ * apply plugin: 'com.android.application'
+ * apply plugin: 'com.github.bskierys.pine'
+ * </pre> <p>Settings go to {@code pine { }} block, see {@link PineExtension}.</p>
+ */
+public class PinePlugin implements Plugin<Project> {
+    @Override public void apply(Project project) {
+        BaseExtension android = project.getExtensions().findByType(BaseExtension.class);
+        if (android == null) {
+            throw new GradleException("Pine plugin needs Android application or library plugin applied first");
+        }
+        PineExtension extension = project.getExtensions().create("pine", PineExtension.class);
+        boolean library = project.getPlugins().hasPlugin(LibraryPlugin.class);
+        android.registerTransform(new PineTransform(extension, library));
+    }
+}
@@ -0,0 +1,156 @@
+package com.github.bskierys.pine.plugin;
+
+import com.android.build.api.transform.DirectoryInput;
+import com.android.build.api.transform.Format;
+import com.android.build.api.transform.JarInput;
+import com.android.build.api.transform.QualifiedContent;
+import com.android.build.api.transform.Transform;
+import com.android.build.api.transform.TransformException;
+import com.android.build.api.transform.TransformInput;
+import com.android.build.api.transform.TransformInvocation;
+import com.android.build.api.transform.TransformOutputProvider;
+import com.android.build.gradle.internal.pipeline.TransformManager;
+
+import org.objectweb.asm.tree.ClassNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Runs {@link LogCallStripper} and {@link CallSiteInjector} over classes of project (and of its subprojects in
+ * application) before they are dexed. Libraries from outside of project are left as they are - their logs find
+ * caller at runtime and are never stripped.
+ */
+class PineTransform extends Transform {
+    private final PineExtension extension;
+    private final boolean library;
+    private final CallSiteInjector injector = new CallSiteInjector();
+
+    PineTransform(PineExtension extension, boolean library) {
+        this.extension = extension;
+        this.library = library;
+    }
+
+    @Override public String getName() {
+        return "pine";
+    }
+
+    @Override public Set<QualifiedContent.ContentType> getInputTypes() {
+        return TransformManager.CONTENT_CLASS;
+    }
+
+    @Override public Set<QualifiedContent.Scope> getScopes() {
+        // library can transform only its own classes
+        return library ? TransformManager.PROJECT_ONLY
+                : EnumSet.of(QualifiedContent.Scope.PROJECT, QualifiedContent.Scope.SUB_PROJECTS);
+    }
+
+    @Override public boolean isIncremental() {
+        return false;
+    }
+
+    @Override public void transform(TransformInvocation invocation)
+            throws TransformException, InterruptedException, IOException {
+        Integer stripPriority = extension.stripPriority(variantName(invocation.getContext().getPath()));
+        LogCallStripper stripper = stripPriority != null ? new LogCallStripper(stripPriority) : null;
+        TransformOutputProvider outputProvider = invocation.getOutputProvider();
+        outputProvider.deleteAll();
+        for (TransformInput input : invocation.getInputs()) {
+            for (DirectoryInput directory : input.getDirectoryInputs()) {
+                File output = outputProvider.getContentLocation(directory.getName(), directory.getContentTypes(),
+                                                                directory.getScopes(), Format.DIRECTORY);
+                transformDirectory(stripper, directory.getFile().toPath(), output.toPath());
+            }
+            for (JarInput jar : input.getJarInputs()) {
+                File output = outputProvider.getContentLocation(jar.getName(), jar.getContentTypes(),
+                                                                jar.getScopes(), Format.JAR);
+                transformJar(stripper, jar.getFile(), output);
+            }
+        }
+    }
+
+    /**
+     * @param taskPath Path of transform task, like ":app:transformClassesWithPineForFreeRelease"
+     */
+    private String variantName(String taskPath) {
+        String marker = "With" + Character.toUpperCase(getName().charAt(0)) + getName().substring(1) + "For";
+        int index = taskPath.lastIndexOf(marker);
+        if (index == -1) {
+            return "";
+        }
+        String variant = taskPath.substring(index + marker.length());
+        return variant.isEmpty() ? variant : Character.toLowerCase(variant.charAt(0)) + variant.substring(1);
+    }
+
+    private void transformDirectory(final LogCallStripper stripper, final Path input, final Path output)
+            throws IOException {
+        Files.walkFileTree(input, new SimpleFileVisitor<Path>() {
+            @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attributes)
+                    throws IOException {
+                Path target = output.resolve(input.relativize(file).toString());
+                Files.createDirectories(target.getParent());
+                Files.write(target, transform(stripper, file.toString(), Files.readAllBytes(file)));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void transformJar(LogCallStripper stripper, File input, File output) throws IOException {
+        output.getParentFile().mkdirs();
+        ZipInputStream in = new ZipInputStream(new FileInputStream(input));
+        try {
+            ZipOutputStream out = new ZipOutputStream(new FileOutputStream(output));
+            try {
+                for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                    if (entry.isDirectory()) {
+                        continue;
+                    }
+                    out.putNextEntry(new ZipEntry(entry.getName()));
+                    out.write(transform(stripper, entry.getName(), readFully(in)));
+                    out.closeEntry();
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private byte[] transform(LogCallStripper stripper, String name, byte[] content) {
+        if (!name.endsWith(".class") || stripper == null && !extension.isInjectCallSites()) {
+            return content;
+        }
+        ClassNode classNode = ClassFiles.read(content);
+        // stripped calls do not need call sites
+        boolean changed = stripper != null && stripper.rewrite(classNode);
+        if (extension.isInjectCallSites()) {
+            changed |= injector.rewrite(classNode);
+        }
+        return changed ? ClassFiles.write(classNode) : content;
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            out.write(chunk, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
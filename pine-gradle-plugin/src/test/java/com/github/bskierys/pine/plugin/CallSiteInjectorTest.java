@@ -0,0 +1,248 @@
+package com.github.bskierys.pine.plugin;
+
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CallSiteInjectorTest {
+    private static final String LOG_DESC = "(Ljava/lang/String;[Ljava/lang/Object;)V";
+
+    private final CallSiteInjector injector = new CallSiteInjector();
+
+    private static class ByteClassLoader extends ClassLoader {
+        Class<?> define(String name, byte[] bytes) throws ClassNotFoundException {
+            defineClass(name, bytes, 0, bytes.length);
+            // initializes class, so every method is verified and call sites are created
+            return Class.forName(name, true, this);
+        }
+    }
+
+    /**
+     * Class with static initializer, method that logs on line 10 or 12, depending on its argument, and method that
+     * catches {@link IllegalArgumentException} of log on line 20.
+     */
+    private static byte[] loggingClass(String name) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V1_7, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+        writer.visitSource("Sample.java", null);
+        writer.visitField(Opcodes.ACC_STATIC, "counter", "I", null, null).visitEnd();
+
+        MethodVisitor clinit = writer.visitMethod(Opcodes.ACC_STATIC, "<clinit>", "()V", null, null);
+        clinit.visitCode();
+        clinit.visitInsn(Opcodes.ICONST_1);
+        clinit.visitFieldInsn(Opcodes.PUTSTATIC, name, "counter", "I");
+        clinit.visitInsn(Opcodes.RETURN);
+        clinit.visitMaxs(0, 0);
+        clinit.visitEnd();
+
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_STATIC, "load", "(Z)V", null, null);
+        method.visitCode();
+        Label elseBranch = new Label();
+        method.visitVarInsn(Opcodes.ILOAD, 0);
+        method.visitJumpInsn(Opcodes.IFEQ, elseBranch);
+        logAt(method, 10, "loaded");
+        method.visitInsn(Opcodes.RETURN);
+        method.visitLabel(elseBranch);
+        logAt(method, 12, "failed");
+        method.visitInsn(Opcodes.RETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        MethodVisitor guarded = writer.visitMethod(Opcodes.ACC_STATIC, "guarded", "()Z", null, null);
+        guarded.visitCode();
+        Label start = new Label();
+        Label end = new Label();
+        Label handler = new Label();
+        guarded.visitTryCatchBlock(start, end, handler, "java/lang/IllegalArgumentException");
+        guarded.visitLabel(start);
+        logAt(guarded, 20, "guarded");
+        guarded.visitLabel(end);
+        guarded.visitInsn(Opcodes.ICONST_1);
+        guarded.visitInsn(Opcodes.IRETURN);
+        guarded.visitLabel(handler);
+        guarded.visitInsn(Opcodes.POP);
+        guarded.visitInsn(Opcodes.ICONST_0);
+        guarded.visitInsn(Opcodes.IRETURN);
+        guarded.visitMaxs(0, 0);
+        guarded.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    /**
+     * Timber whose every log throws, the way bad format string does.
+     */
+    private static byte[] throwingTimber() {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V1_7, Opcodes.ACC_PUBLIC, CallSiteInjector.TIMBER, null, "java/lang/Object", null);
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "d", LOG_DESC, null, null);
+        method.visitCode();
+        method.visitTypeInsn(Opcodes.NEW, "java/lang/IllegalArgumentException");
+        method.visitInsn(Opcodes.DUP);
+        method.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/IllegalArgumentException", "<init>", "()V", false);
+        method.visitInsn(Opcodes.ATHROW);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    /**
+     * Hint that keeps place in public static field instead of thread local, so test can read it.
+     */
+    private static byte[] hint() {
+        String desc = "Ljava/lang/StackTraceElement;";
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V1_7, Opcodes.ACC_PUBLIC, CallSiteInjector.HINT, null, "java/lang/Object", null);
+        writer.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "current", desc, null, null).visitEnd();
+        MethodVisitor enter = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "enter", "(" + desc + ")V",
+                                                 null, null);
+        enter.visitCode();
+        enter.visitVarInsn(Opcodes.ALOAD, 0);
+        enter.visitFieldInsn(Opcodes.PUTSTATIC, CallSiteInjector.HINT, "current", desc);
+        enter.visitInsn(Opcodes.RETURN);
+        enter.visitMaxs(0, 0);
+        enter.visitEnd();
+        MethodVisitor exit = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "exit", "()V", null, null);
+        exit.visitCode();
+        exit.visitInsn(Opcodes.ACONST_NULL);
+        exit.visitFieldInsn(Opcodes.PUTSTATIC, CallSiteInjector.HINT, "current", desc);
+        exit.visitInsn(Opcodes.RETURN);
+        exit.visitMaxs(0, 0);
+        exit.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static void logAt(MethodVisitor method, int line, String message) {
+        Label label = new Label();
+        method.visitLabel(label);
+        method.visitLineNumber(line, label);
+        method.visitLdcInsn(message);
+        method.visitInsn(Opcodes.ICONST_0);
+        method.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/Object");
+        method.visitMethodInsn(Opcodes.INVOKESTATIC, CallSiteInjector.TIMBER, "d", LOG_DESC, false);
+    }
+
+    private static List<String> calls(byte[] classFile, String methodName) {
+        ClassNode classNode = new ClassNode();
+        new ClassReader(classFile).accept(classNode, 0);
+        List<String> calls = new ArrayList<>();
+        for (MethodNode method : classNode.methods) {
+            if (!method.name.equals(methodName)) {
+                continue;
+            }
+            for (AbstractInsnNode insn = method.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+                if (insn instanceof MethodInsnNode) {
+                    calls.add(((MethodInsnNode) insn).owner + "." + ((MethodInsnNode) insn).name);
+                }
+            }
+        }
+        return calls;
+    }
+
+    @Test public void testSurroundsTimberCallsWithHint() throws Exception {
+        byte[] transformed = injector.transform(loggingClass("sample/Sample"));
+
+        assertNotNull(transformed);
+        List<String> calls = calls(transformed, "load");
+        // and one exit for each call that throws
+        assertEquals(8, calls.size());
+        for (int i = 0; i < 6; i += 3) {
+            assertEquals(CallSiteInjector.HINT + ".enter", calls.get(i));
+            assertEquals(CallSiteInjector.TIMBER + ".d", calls.get(i + 1));
+            assertEquals(CallSiteInjector.HINT + ".exit", calls.get(i + 2));
+        }
+        assertEquals(CallSiteInjector.HINT + ".exit", calls.get(6));
+        assertEquals(CallSiteInjector.HINT + ".exit", calls.get(7));
+    }
+
+    @Test public void testClearsHintWhenLogThrows() throws Exception {
+        ByteClassLoader loader = new ByteClassLoader();
+        loader.define("timber.log.Timber", throwingTimber());
+        Field current = loader.define("com.github.bskierys.pine.CallSiteHint", hint()).getField("current");
+        Class<?> loaded = loader.define("sample.Sample", injector.transform(loggingClass("sample/Sample")));
+        Method load = loaded.getDeclaredMethod("load", boolean.class);
+        load.setAccessible(true);
+
+        try {
+            load.invoke(null, true);
+            fail("Exception of log should reach caller");
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        assertNull(current.get(null));
+    }
+
+    @Test public void testClearsHintWhenCallerCatchesExceptionOfLog() throws Exception {
+        ByteClassLoader loader = new ByteClassLoader();
+        loader.define("timber.log.Timber", throwingTimber());
+        Field current = loader.define("com.github.bskierys.pine.CallSiteHint", hint()).getField("current");
+        Class<?> loaded = loader.define("sample.Sample", injector.transform(loggingClass("sample/Sample")));
+        Method guarded = loaded.getDeclaredMethod("guarded");
+        guarded.setAccessible(true);
+
+        // original handler still gets exception
+        assertEquals(false, guarded.invoke(null));
+        assertNull(current.get(null));
+    }
+
+    @Test public void testCreatesCallSitesInStaticInitializer() throws Exception {
+        byte[] transformed = injector.transform(loggingClass("sample/Sample"));
+
+        Class<?> loaded = new ByteClassLoader().define("sample.Sample", transformed);
+
+        assertEquals(new StackTraceElement("sample.Sample", "load", "Sample.java", 10), callSite(loaded, 0));
+        assertEquals(new StackTraceElement("sample.Sample", "load", "Sample.java", 12), callSite(loaded, 1));
+        Field counter = loaded.getDeclaredField("counter");
+        counter.setAccessible(true);
+        // original initializer still runs
+        assertEquals(1, counter.getInt(null));
+    }
+
+    private static Object callSite(Class<?> loaded, int index) throws Exception {
+        Field field = loaded.getDeclaredField(CallSiteInjector.FIELD_PREFIX + index);
+        field.setAccessible(true);
+        return field.get(null);
+    }
+
+    @Test public void testLeavesClassesWithoutLogsAlone() throws Exception {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_7, Opcodes.ACC_PUBLIC, "sample/Empty", null, "java/lang/Object", null);
+        writer.visitEnd();
+
+        assertNull(injector.transform(writer.toByteArray()));
+    }
+
+    @Test public void testDoesNotRewriteTwice() throws Exception {
+        byte[] transformed = injector.transform(loggingClass("sample/Sample"));
+
+        assertNull(injector.transform(transformed));
+    }
+
+    @Test public void testSkipsLoggingLibraries() throws Exception {
+        assertNull(injector.transform(loggingClass("com/github/bskierys/pine/Sample")));
+        assertNull(injector.transform(loggingClass("timber/log/Sample")));
+        assertNotNull(injector.transform(loggingClass("com/github/bskierys/pine/sample/Sample")));
+    }
+}
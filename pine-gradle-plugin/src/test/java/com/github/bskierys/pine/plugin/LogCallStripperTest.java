@@ -0,0 +1,164 @@
+package com.github.bskierys.pine.plugin;
+
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class LogCallStripperTest {
+    private static final String LOG_DESC = "(Ljava/lang/String;[Ljava/lang/Object;)V";
+    private static final String TREE_DESC = "L" + CallSiteInjector.TREE + ";";
+
+    private final LogCallStripper stripper = new LogCallStripper(4);
+
+    private static class ByteClassLoader extends ClassLoader {
+        Class<?> define(String name, byte[] bytes) throws ClassNotFoundException {
+            defineClass(name, bytes, 0, bytes.length);
+            // initializes class, so every method is verified
+            return Class.forName(name, true, this);
+        }
+    }
+
+    private static byte[] loggingClass() {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V1_7, Opcodes.ACC_PUBLIC, "sample/Sample", null, "java/lang/Object", null);
+
+        // Timber.v("count %d", count)
+        MethodVisitor method = begin(writer, "verbose", "(I)V");
+        method.visitLdcInsn("count %d");
+        method.visitInsn(Opcodes.ICONST_1);
+        method.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/Object");
+        method.visitInsn(Opcodes.DUP);
+        method.visitInsn(Opcodes.ICONST_0);
+        method.visitVarInsn(Opcodes.ILOAD, 0);
+        method.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;", false);
+        method.visitInsn(Opcodes.AASTORE);
+        timber(method, "v");
+        end(method);
+
+        // Timber.d(describe())
+        method = begin(writer, "debug", "()V");
+        method.visitMethodInsn(Opcodes.INVOKESTATIC, "sample/Sample", "describe", "()Ljava/lang/String;", false);
+        method.visitInsn(Opcodes.ICONST_0);
+        method.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/Object");
+        timber(method, "d");
+        end(method);
+
+        // Timber.i("loaded")
+        method = begin(writer, "info", "()V");
+        method.visitLdcInsn("loaded");
+        method.visitInsn(Opcodes.ICONST_0);
+        method.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/Object");
+        timber(method, "i");
+        end(method);
+
+        // Timber.tag("TAG").d("loaded") and Timber.tag("TAG").d(describe())
+        method = begin(writer, "tagged", "()V");
+        tagged(method, false);
+        tagged(method, true);
+        end(method);
+
+        method = begin(writer, "describe", "()Ljava/lang/String;");
+        method.visitLdcInsn("description");
+        method.visitInsn(Opcodes.ARETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static MethodVisitor begin(ClassWriter writer, String name, String desc) {
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, name, desc, null, null);
+        method.visitCode();
+        return method;
+    }
+
+    private static void end(MethodVisitor method) {
+        method.visitInsn(Opcodes.RETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+    }
+
+    private static void timber(MethodVisitor method, String name) {
+        method.visitMethodInsn(Opcodes.INVOKESTATIC, CallSiteInjector.TIMBER, name, LOG_DESC, false);
+    }
+
+    private static void tagged(MethodVisitor method, boolean describe) {
+        method.visitLdcInsn("TAG");
+        method.visitMethodInsn(Opcodes.INVOKESTATIC, CallSiteInjector.TIMBER, "tag", "(Ljava/lang/String;)"
+                + TREE_DESC, false);
+        if (describe) {
+            method.visitMethodInsn(Opcodes.INVOKESTATIC, "sample/Sample", "describe", "()Ljava/lang/String;", false);
+        } else {
+            method.visitLdcInsn("loaded");
+        }
+        method.visitInsn(Opcodes.ICONST_0);
+        method.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/Object");
+        method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, CallSiteInjector.TREE, "d", LOG_DESC, false);
+    }
+
+    private static List<String> calls(byte[] classFile, String methodName) {
+        ClassNode classNode = new ClassNode();
+        new ClassReader(classFile).accept(classNode, 0);
+        List<String> calls = new ArrayList<>();
+        for (MethodNode method : classNode.methods) {
+            if (!method.name.equals(methodName)) {
+                continue;
+            }
+            for (AbstractInsnNode insn = method.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+                if (insn instanceof MethodInsnNode) {
+                    calls.add(((MethodInsnNode) insn).name);
+                }
+            }
+        }
+        return calls;
+    }
+
+    @Test public void testRemovesCallWithSideEffectFreeArguments() throws Exception {
+        byte[] transformed = stripper.transform(loggingClass());
+
+        assertEquals(Collections.emptyList(), calls(transformed, "verbose"));
+        Method verbose = new ByteClassLoader().define("sample.Sample", transformed).getMethod("verbose", int.class);
+        // Timber is not on class path, so this fails if call is still there
+        verbose.invoke(null, 1);
+    }
+
+    @Test public void testKeepsArgumentsWithSideEffects() throws Exception {
+        byte[] transformed = stripper.transform(loggingClass());
+
+        assertEquals(Collections.singletonList("describe"), calls(transformed, "debug"));
+        new ByteClassLoader().define("sample.Sample", transformed).getMethod("debug").invoke(null);
+    }
+
+    @Test public void testKeepsCallsFromMinPriority() throws Exception {
+        byte[] transformed = stripper.transform(loggingClass());
+
+        assertEquals(Collections.singletonList("i"), calls(transformed, "info"));
+    }
+
+    @Test public void testRemovesTagOnlyWithCall() throws Exception {
+        byte[] transformed = stripper.transform(loggingClass());
+
+        // tag must not be left set for the next log, so call with unsafe arguments stays whole
+        assertEquals(Arrays.asList("tag", "describe", "d"), calls(transformed, "tagged"));
+    }
+
+    @Test public void testLeavesClassWithoutStrippedCallsAlone() throws Exception {
+        assertNull(new LogCallStripper(2).transform(loggingClass()));
+    }
+}
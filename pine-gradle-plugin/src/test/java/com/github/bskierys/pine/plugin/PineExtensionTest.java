@@ -0,0 +1,31 @@
+package com.github.bskierys.pine.plugin;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PineExtensionTest {
+    @Test public void testMatchesBuildTypeAndVariant() throws Exception {
+        PineExtension extension = new PineExtension();
+        extension.stripBelow("release", "INFO");
+        extension.stripBelow("stagingRelease", 'd');
+
+        assertEquals(Integer.valueOf(4), extension.stripPriority("release"));
+        assertEquals(Integer.valueOf(4), extension.stripPriority("freeRelease"));
+        assertEquals(Integer.valueOf(3), extension.stripPriority("stagingRelease"));
+        assertNull(extension.stripPriority("debug"));
+    }
+
+    @Test public void testParsesPriorities() throws Exception {
+        assertEquals(2, PineExtension.parsePriority("verbose"));
+        assertEquals(5, PineExtension.parsePriority("W"));
+        assertEquals(7, PineExtension.parsePriority("ASSERT"));
+        assertEquals(6, PineExtension.parsePriority(6));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsUnknownPriority() throws Exception {
+        PineExtension.parsePriority("LOUD");
+    }
+}
@@ -8,6 +8,8 @@ package com.github.bskierys.pine.sample;
 import android.app.Application;
 import android.os.Environment;
 
+import com.github.bskierys.pine.AsyncDispatch;
+import com.github.bskierys.pine.FileLogAction;
 import com.github.bskierys.pine.LogInfo;
 import com.github.bskierys.pine.MessageInfo;
 import com.github.bskierys.pine.Pine;
@@ -39,9 +41,15 @@ public class App extends Application {
                 .grow();
 
         // or you can save your logs in file like this (Application needs permission on Marshmallow or newer)
-        FileLogger fileLogger = new FileLogger(new File(Environment.getExternalStorageDirectory(), "PINE-test.log"));
+        FileLogAction fileLogAction = new FileLogAction.Builder(
+                new File(Environment.getExternalStorageDirectory(), "PINE-test"))
+                .rotateBySize(1024 * 1024)
+                .compressRotated()
+                .keepRotatedFiles(10)
+                .build();
         Pine fileCustomPine = new Pine.Builder()
-                .addLogAction(fileLogger)
+                .addLogAction(fileLogAction)
+                .setAsyncDispatch(new AsyncDispatch.Builder().build())
                 .addPackageReplacePattern(getPackageName(), "PINE")
                 .grow();
 
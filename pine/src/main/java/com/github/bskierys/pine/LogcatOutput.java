@@ -0,0 +1,24 @@
+package com.github.bskierys.pine;
+
+import android.util.Log;
+
+/**
+ * Prints logs to logcat, splitting them into entries that fit logcat the way {@link timber.log.Timber.DebugTree} does,
+ * but with class, method and line on every one of them. Throwable is not printed, its stack trace is already appended
+ * to message.
+ */
+class LogcatOutput extends ChunkedLogOutput {
+    private static final int MAX_LOG_LENGTH = 4000;
+
+    LogcatOutput() {
+        super(MAX_LOG_LENGTH);
+    }
+
+    @Override protected void printChunk(int priority, String tag, String chunk) {
+        if (priority == Log.ASSERT) {
+            Log.wtf(tag, chunk);
+        } else {
+            Log.println(priority, tag, chunk);
+        }
+    }
+}
@@ -5,12 +5,8 @@
 */
 package com.github.bskierys.pine;
 
-import android.support.annotation.NonNull;
-
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
 
 import timber.log.Timber;
 
@@ -20,22 +16,16 @@ import timber.log.Timber;
  * implementation:</p> <ul> <li>Tag: by default your tag will be the name of your package. Vowels are removed to reduce
  * length of tag. You can use Builder method {@link Builder#addPackageReplacePattern(String, String)} to replace any
  * package with short phrase (your app name for example)</li> <li>Message: {class name}, {method name}, {line number}
- * ---&gt; {message}. </li> </ul>
+ * ---&gt; {message}. </li> </ul> <p>Pine does not extend {@link timber.log.Timber.DebugTree}, because DebugTree walks
+ * stack trace to find tag before it is known whether message will be logged at all. Pine checks priority settings from
+ * {@link Builder#setMinPriority(int)} first and walks stack trace only for logs that pass.</p> <p>Pine only connects
+ * Timber to {@link LogPipeline} that does the work and prints to logcat.</p>
  */
-public class Pine extends Timber.DebugTree {
-    private static final int CALL_STACK_INDEX = 5;
-    private static final Pattern ANONYMOUS_CLASS = Pattern.compile("(\\$\\d+)+$");
-
-    private final PackageNameHelper packageNameHelper;
-    private final TagFormatter tagFormatter;
-    private final MessageFormatter messageFormatter;
-    private final ArrayList<LogAction> logActions;
+public class Pine extends Timber.Tree {
+    private final LogPipeline pipeline;
 
-    private Pine(Builder builder) {
-        this.tagFormatter = builder.tagFormatter;
-        this.logActions = builder.logActions;
-        this.messageFormatter = builder.messageFormatter;
-        this.packageNameHelper = new PackageNameHelper(builder.packageReplacePatterns);
+    private Pine(LogPipeline pipeline) {
+        this.pipeline = pipeline;
     }
 
     /**
@@ -49,134 +39,111 @@ public class Pine extends Timber.DebugTree {
         return new Builder().grow();
     }
 
-    @Override protected String createStackElementTag(StackTraceElement element) {
-        if (tagFormatter == null) {
-            throw new NullPointerException("Tag formatting strategy is null. This should not happen...");
-        }
-
-        String tag = tagFormatter.format(getLogInfo(element));
-
-        return packageNameHelper.replacePatternWithReplacement(tag);
+    /**
+     * @return statistics of cache that keeps resolved info about places log was called from
+     */
+    public CacheStats callSiteCacheStats() {
+        return pipeline.callSiteCacheStats();
     }
 
-    @Override protected void log(int priority, String tag, String message, Throwable t) {
-        // DO NOT switch this to Thread.getCurrentThread().getStackTrace(). The test will pass
-        // because Robolectric runs them on the JVM but on Android the elements are different.
-        StackTraceElement[] stackTrace = new Throwable().getStackTrace();
-        if (stackTrace.length <= CALL_STACK_INDEX) {
-            throw new IllegalStateException(
-                    "Synthetic stacktrace didn't have enough elements: are you using proguard?");
-        }
-
-        StackTraceElement element = stackTrace[CALL_STACK_INDEX];
-        if (messageFormatter == null) {
-            throw new NullPointerException("Message formatting strategy is null. This should not happen...");
-        }
-
-        String formattedMessage = messageFormatter.format(getMessageInfo(element, message));
-
-        for (int i = 0; i < logActions.size(); i++) {
-            logActions.get(i).action(priority, tag, formattedMessage, t);
-        }
-        super.log(priority, tag, packageNameHelper.replacePatternWithReplacement(formattedMessage), t);
+    /**
+     * @return counters of asynchronous dispatch or null if log actions are run synchronously
+     */
+    public DispatchStats dispatchStats() {
+        return pipeline.dispatchStats();
     }
 
-    private MessageInfo getMessageInfo(StackTraceElement element, String message) {
-        return new AutoValue_MessageInfo(getLogInfo(element), message);
+    /**
+     * @return counts and timings of logs or null if metrics are not turned on with {@link Builder#enableMetrics()}
+     */
+    public MetricsSnapshot metrics() {
+        return pipeline.metrics();
     }
 
-    LogInfo getLogInfo(StackTraceElement element) {
-        String packageName = getPackageName(element);
-        packageName = packageNameHelper.replacePackageWithPattern(packageName);
+    /**
+     * Waits until log actions handle every log that was dispatched asynchronously so far. Returns immediately if log
+     * actions are run synchronously.
+     *
+     * @return true if all logs were handled before timeout
+     */
+    public boolean flushLogActions(long timeoutMillis) {
+        return pipeline.flushLogActions(timeoutMillis);
+    }
 
-        String className = getClassName(element);
-        String methodName = element.getMethodName();
-        int lineNumber = element.getLineNumber();
+    /**
+     * Stops background threads of Pine after logs left for them are handled. Uproot Pine from Timber first. See
+     * {@link LogPipeline#shutdown(long)}.
+     *
+     * @return true if all threads stopped before timeout
+     */
+    public boolean shutdown(long timeoutMillis) {
+        return pipeline.shutdown(timeoutMillis);
+    }
 
-        return new AutoValue_LogInfo(packageName, className, methodName, lineNumber);
+    /**
+     * Starts change of settings while Pine is planted. See {@link ConfigEditor}.
+     *
+     * @return editor with copy of current settings
+     */
+    public ConfigEditor edit() {
+        return pipeline.edit();
     }
 
-    @NonNull private String getFullClassName(StackTraceElement element) {
-        String className = element.getClassName();
-        Matcher m = ANONYMOUS_CLASS.matcher(className);
-        if (m.find()) {
-            className = m.replaceAll("");
-        }
+    /**
+     * Starts polling properties file with priorities. See {@link LogLevelsWatcher} for format of file.
+     *
+     * @return started watcher, close it to stop polling
+     */
+    public LogLevelsWatcher watchLevels(File file, long interval, TimeUnit unit) {
+        LogLevelsWatcher watcher = new LogLevelsWatcher(pipeline, file);
+        watcher.start(interval, unit);
+        return watcher;
+    }
 
-        return className;
+    protected String createStackElementTag(StackTraceElement element) {
+        return pipeline.getCallSite(element).tag();
     }
 
-    @NonNull private String getPackageName(StackTraceElement element) {
-        String className = getFullClassName(element);
-        return getFullClassName(element).substring(0, className.lastIndexOf('.'));
+    @Override protected boolean isLoggable(String tag, int priority) {
+        return pipeline.isLoggable(tag, priority);
     }
 
-    @NonNull private String getClassName(StackTraceElement element) {
-        String className = getFullClassName(element);
-        return className.substring(className.lastIndexOf('.') + 1, className.length());
+    @Override protected void log(int priority, String tag, String message, Throwable t) {
+        pipeline.logWithAppendedTrace(priority, tag, message, t);
     }
 
     /**
-     * Builder for {@link Pine}
+     * Logs message made of template and fields. Message is rendered to text only if something needs it - logcat
+     * output, {@link MessageFormatter} or {@link LogAction} that is not {@link StructuredLogAction}. Call it on Pine
+     * instance you planted, not through Timber. Use Timber to log throwables.
+     *
+     * @param priority One of {@link Priority} constants
      */
-    public static class Builder {
-        private MessageFormatter messageFormatter;
-        private TagFormatter tagFormatter;
-        private LinkedHashMap<String, String> packageReplacePatterns = new LinkedHashMap<>();
-        private ArrayList<LogAction> logActions = new ArrayList<>();
-
-        /**
-         * You can format message you will see in monitor the way you like. When formatting you can use all the data
-         * from {@link MessageInfo}. If not set {@link DefaultMessageFormatter} will be used.
-         */
-        public Builder setMessageFormatter(MessageFormatter formatter) {
-            this.messageFormatter = formatter;
-            return this;
-        }
-
-        /**
-         * You can format tag you will see in monitor the way you like. When formatting you can use all the data from
-         * {@link LogInfo}. If not set {@link DefaultTagFormatter} will be used.
-         */
-        public Builder setTagFormatter(TagFormatter formatter) {
-            this.tagFormatter = formatter;
-            return this;
-        }
-
-        /**
-         * Replace package name with short phrase.
-         *
-         * @param packageName Package name to be replaced
-         * @param replacement Phrase to replace package with
-         */
-        public Builder addPackageReplacePattern(String packageName, String replacement) {
-            this.packageReplacePatterns.put(packageName, replacement);
-            return this;
+    public void log(int priority, StructuredMessage message) {
+        if (pipeline.isLoggable(null, priority)) {
+            pipeline.log(priority, null, message, null);
         }
+    }
 
-        /**
-         * You can make additional action with this log.
-         */
-        public Builder addLogAction(LogAction logAction) {
-            this.logActions.add(logAction);
-            return this;
-        }
+    CallSite getCallSite(StackTraceElement element) {
+        return pipeline.getCallSite(element);
+    }
 
-        private void initEmptyFieldsWithDefaultValues() {
-            if (messageFormatter == null) {
-                messageFormatter = new DefaultMessageFormatter();
-            }
-            if (tagFormatter == null) {
-                tagFormatter = new DefaultTagFormatter();
-            }
-        }
+    LogInfo getLogInfo(StackTraceElement element) {
+        return pipeline.getLogInfo(element);
+    }
 
+    /**
+     * Builder for {@link Pine}. See {@link LogPipeline.BaseBuilder} for all settings.
+     */
+    public static class Builder extends LogPipeline.BaseBuilder<Builder> {
         /**
          * Builds {@link Pine} object
          */
         public Pine grow() {
-            initEmptyFieldsWithDefaultValues();
-            return new Pine(this);
+            addFacadeClass(Timber.class);
+            addFacadeClass(Pine.class);
+            return new Pine(buildPipeline(new LogcatOutput()));
         }
     }
 }
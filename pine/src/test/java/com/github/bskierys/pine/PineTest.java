@@ -1,8 +1,17 @@
 package com.github.bskierys.pine;
 
+import android.util.Log;
+
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class PineTest {
     // TODO: 2016-11-19 test builder
@@ -10,7 +19,7 @@ public class PineTest {
         String packageName = "com.github.bskierys";
         String className = packageName + ".utils.advancedHelpers.SearchMvpViewPresenterHelper";
 
-        Pine tree = new Pine.Builder().addPackageReplacePattern(packageName, "REP").grow();
+        Pine tree = new Pine.Builder().addPackageReplacePattern(packageName, "REP").usePackagePlaceholders().grow();
         StackTraceElement element = new StackTraceElement(className, "fakeMethod", "fakeFile", 67);
         LogInfo info = tree.getLogInfo(element);
 
@@ -22,7 +31,7 @@ public class PineTest {
         String packageName = "com.github.bskierys.pine.sample";
         String className = packageName + ".utils.advancedHelpers.SearchMvpViewPresenterHelper";
 
-        Pine tree = new Pine.Builder().addPackageReplacePattern(packageName, "REP").grow();
+        Pine tree = new Pine.Builder().addPackageReplacePattern(packageName, "REP").usePackagePlaceholders().grow();
         StackTraceElement element = new StackTraceElement(className, "fakeMethod", "fakeFile", 67);
         LogInfo info = tree.getLogInfo(element);
 
@@ -30,6 +39,41 @@ public class PineTest {
         assertEquals(expectedPackage, info.packageName());
     }
 
+    @Test public void testReplacesPackageWithReplacement() throws Exception {
+        String packageName = "com.github.bskierys";
+        String className = packageName + ".utils.advancedHelpers.SearchMvpViewPresenterHelper";
+
+        Pine tree = new Pine.Builder().addPackageReplacePattern(packageName, "REP").grow();
+        StackTraceElement element = new StackTraceElement(className, "fakeMethod", "fakeFile", 67);
+        LogInfo info = tree.getLogInfo(element);
+
+        assertEquals("REP.utils.advancedHelpers", info.packageName());
+        assertEquals("REP", info.packageReplacement());
+    }
+
+    @Test public void testReplacesLongestPackage() throws Exception {
+        String className = "com.github.bskierys.pine.sample.utils.SearchMvpViewPresenterHelper";
+
+        Pine tree = new Pine.Builder().addPackageReplacePattern("com.github.bskierys.pine.sample", "SMPL")
+                                      .addPackageReplacePattern("com.github.bskierys", "REP")
+                                      .grow();
+        StackTraceElement element = new StackTraceElement(className, "fakeMethod", "fakeFile", 67);
+        LogInfo info = tree.getLogInfo(element);
+
+        assertEquals("SMPL.utils", info.packageName());
+    }
+
+    @Test public void testNotReplacesPackageShorterThanPattern() throws Exception {
+        String className = "com.github.bskierys.SearchMvpViewPresenterHelper";
+
+        Pine tree = new Pine.Builder().addPackageReplacePattern("com.github.bskierys.pine", "REP").grow();
+        StackTraceElement element = new StackTraceElement(className, "fakeMethod", "fakeFile", 67);
+        LogInfo info = tree.getLogInfo(element);
+
+        assertEquals("com.github.bskierys", info.packageName());
+        assertNull(info.packageReplacement());
+    }
+
     @Test public void testGetClassName() throws Exception {
         String packageName = "com.github.bskierys.pine.sample";
         String className = "SearchMvpViewPresenterHelper";
@@ -78,6 +122,19 @@ public class PineTest {
         assertEquals(expectedTag, actualTag);
     }
 
+    @Test public void testFullReplacePackageWithPlaceholders() throws Exception {
+        String packageName = "com.github.bskierys";
+        String className = packageName + ".utils.advancedHelpers.SearchMvpViewPresenterHelper";
+
+        Pine tree = new Pine.Builder().addPackageReplacePattern(packageName, "REP")
+                                      .usePackagePlaceholders()
+                                      .grow();
+
+        StackTraceElement element = new StackTraceElement(className, "fakeMethod", "fakeFile", 67);
+
+        assertEquals("REP.tls.dvncdHlprs", tree.createStackElementTag(element));
+    }
+
     @Test public void testFullReplaceTwoPackages() throws Exception {
         String packageName1 = "com.example.package";
         String packageName2 = "com.pcim.package";
@@ -141,4 +198,92 @@ public class PineTest {
         assertEquals("REP1" + classPackage, tree.createStackElementTag(element1));
         assertEquals("REP2" + classPackage, tree.createStackElementTag(element2));
     }
-}
\ No newline at end of file
+
+    @Test public void testCachesCallSite() throws Exception {
+        String className = "com.github.bskierys.utils.advancedHelpers.SearchMvpViewPresenterHelper";
+
+        Pine tree = new Pine.Builder().addPackageReplacePattern("com.github.bskierys", "REP").grow();
+
+        String firstTag = tree.createStackElementTag(new StackTraceElement(className, "fakeMethod", "fakeFile", 67));
+        String secondTag = tree.createStackElementTag(new StackTraceElement(className, "fakeMethod", "fakeFile", 67));
+
+        assertEquals("REP.tls.dvncdHlprs", firstTag);
+        assertEquals(firstTag, secondTag);
+        assertEquals(1, tree.callSiteCacheStats().hitCount());
+        assertEquals(1, tree.callSiteCacheStats().missCount());
+    }
+
+    @Test public void testCachesMessagePrefix() throws Exception {
+        String className = "com.github.bskierys.utils.advancedHelpers.SearchMvpViewPresenterHelper";
+
+        Pine tree = new Pine.Builder().grow();
+        CallSite callSite = tree.getCallSite(new StackTraceElement(className, "fakeMethod", "fakeFile", 67));
+
+        assertEquals("SearchMvpViewPresenterHelper, fakeMethod, 67 ---> ", callSite.messagePrefix());
+    }
+
+    @Test public void testDoesNotCacheCustomMessagePrefix() throws Exception {
+        String className = "com.github.bskierys.utils.advancedHelpers.SearchMvpViewPresenterHelper";
+
+        Pine tree = new Pine.Builder().setMessageFormatter(new MessageFormatter() {
+            @Override public String format(MessageInfo info) {
+                return info.message();
+            }
+        }).grow();
+        CallSite callSite = tree.getCallSite(new StackTraceElement(className, "fakeMethod", "fakeFile", 67));
+
+        assertNull(callSite.messagePrefix());
+    }
+
+    @Test public void testDispatchesLogActionsAsync() throws Exception {
+        final List<String> messages = Collections.synchronizedList(new ArrayList<String>());
+        Pine tree = new Pine.Builder().setAsyncDispatch(new AsyncDispatch.Builder().setCapacity(4).build())
+                                      .addLogAction(new LogAction() {
+                                          @Override
+                                          public void action(int priority, String tag, String message, Throwable t) {
+                                              messages.add(message);
+                                          }
+                                      }).grow();
+
+        tree.log(Log.DEBUG, "TAG", "first", null);
+        tree.log(Log.DEBUG, "TAG", "second", null);
+
+        assertTrue(tree.flushLogActions(5000));
+        assertEquals(2, messages.size());
+        assertTrue(messages.get(0).endsWith(" ---> first"));
+        assertTrue(messages.get(1).endsWith(" ---> second"));
+        assertEquals(2, tree.dispatchStats().queuedCount());
+    }
+
+    @Test public void testDropsBelowMinPriority() throws Exception {
+        Pine tree = new Pine.Builder().setMinPriority(Log.INFO).grow();
+
+        assertFalse(tree.isLoggable(null, Log.DEBUG));
+        assertTrue(tree.isLoggable(null, Log.INFO));
+        assertEquals(0, tree.callSiteCacheStats().missCount());
+    }
+
+    @Test public void testTagPriorityWinsOverMinPriority() throws Exception {
+        Pine tree = new Pine.Builder().setMinPriority(Log.INFO)
+                                      .setTagMinPriority("Network", Log.VERBOSE)
+                                      .setTagMinPriority("Database", Log.ERROR)
+                                      .grow();
+
+        assertTrue(tree.isLoggable("Network", Log.DEBUG));
+        assertFalse(tree.isLoggable("Database", Log.WARN));
+        assertTrue(tree.isLoggable("Database", Log.ERROR));
+    }
+
+    @Test public void testResolvesPackagePriority() throws Exception {
+        String className = "com.github.bskierys.utils.advancedHelpers.SearchMvpViewPresenterHelper";
+
+        Pine tree = new Pine.Builder().setMinPriority(Log.INFO)
+                                      .setPackageMinPriority("com.github.bskierys.utils", Log.ERROR)
+                                      .grow();
+        CallSite callSite = tree.getCallSite(new StackTraceElement(className, "fakeMethod", "fakeFile", 67));
+        CallSite otherCallSite = tree.getCallSite(new StackTraceElement("org.example.Other", "fake", "fakeFile", 1));
+
+        assertEquals(Log.ERROR, callSite.minPriority());
+        assertEquals(Log.INFO, otherCallSite.minPriority());
+    }
+}